@@ -20,15 +20,35 @@
 package net.rcarz.jiraclient;
 
 import net.rcarz.jiraclient.util.JsonUtil;
-import org.apache.http.HttpEntity;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.methods.HttpGet;
+import org.apache.http.Header;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Represents an issue attachment.
@@ -98,6 +118,28 @@ public class Attachment extends Resource {
         return new Attachment(restclient, result);
     }
     
+    /**
+     * Receives the progress of a download or upload.
+     */
+    public interface ProgressListener {
+
+        /**
+         * Called after each chunk that has been transferred.
+         *
+         * @param transferred Bytes transferred so far
+         * @param total Expected size in bytes or -1 when it isn't known
+         */
+        void progress(long transferred, long total);
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /* size of the ranges of a ranged download, which is what a resumed download reuses */
+    static final int RANGE_SIZE = 4 * 1024 * 1024;
+
+    /* one copy buffer per thread, reused by all downloads on that thread */
+    private static final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
     /**
      * Downloads attachment to byte array
      *
@@ -105,26 +147,530 @@ public class Attachment extends Resource {
      *
      * @throws JiraException when the download fails
      */
-    public byte[] download() 
-    	throws JiraException{
-    	ByteArrayOutputStream bos = new ByteArrayOutputStream();
-    	try{
-        	HttpGet get = new HttpGet(content);
-        	HttpResponse response = restclient.getHttpClient().execute(get);
-        	HttpEntity entity = response.getEntity();
-        	if (entity != null) {
-        	    InputStream inputStream = entity.getContent();
-        	    int next = inputStream.read();
-        	    while (next > -1) {
-        	        bos.write(next);
-        	        next = inputStream.read();
-        	    }
-        	    bos.flush();
-        	}
-    	}catch(IOException e){
-    		  throw new JiraException(String.format("Failed downloading attachment from %s: %s", this.content, e.getMessage()));
-    	}
-    	return bos.toByteArray();
+    public byte[] download() throws JiraException {
+        AttachmentCache.Content cached = openCachedContent(null);
+
+        if (cached != null) {
+            try (InputStream in = cached.stream) {
+                ByteArrayOutputStream bos = new ByteArrayOutputStream(Math.max(size, 0));
+                copy(in, bos, -1, null);
+                return bos.toByteArray();
+            } catch (IOException ex) {
+                throw new JiraException("Failed reading cached attachment " + id, ex);
+            }
+        }
+
+        try {
+            return restclient.get(getContentUri(), null, (response, entity) -> {
+                if (entity == null)
+                    return new byte[0];
+
+                long length = entity.getContentLength();
+
+                try (InputStream in = entity.getContent()) {
+                    /* a known length is read straight into the result */
+                    if (length >= 0 && length <= Integer.MAX_VALUE - 8) {
+                        byte[] data = new byte[(int) length];
+                        int n = 0;
+
+                        while (n < data.length) {
+                            int read = in.read(data, n, data.length - n);
+                            if (read < 0)
+                                break;
+                            n += read;
+                        }
+
+                        checkLength(n, length);
+                        return data;
+                    }
+
+                    ByteArrayOutputStream bos = new ByteArrayOutputStream(size > 0 ? size : BUFFER_SIZE);
+                    copy(in, bos, length, null);
+                    return bos.toByteArray();
+                }
+            });
+        } catch (Exception ex) {
+            throw new JiraException("Failed downloading attachment from " + content, ex);
+        }
+    }
+
+    /**
+     * Downloads attachment to a stream. The stream is not closed.
+     *
+     * @param out Stream to write to
+     *
+     * @return the number of bytes written
+     *
+     * @throws JiraException when the download fails
+     */
+    public long download(OutputStream out) throws JiraException {
+        return download(out, null);
+    }
+
+    /**
+     * Downloads attachment to a stream. The stream is not closed.
+     *
+     * @param out Stream to write to
+     * @param listener Receives the progress or null
+     *
+     * @return the number of bytes written
+     *
+     * @throws JiraException when the download fails
+     */
+    public long download(final OutputStream out, final ProgressListener listener)
+            throws JiraException {
+
+        AttachmentCache.Content cached = openCachedContent(listener);
+
+        if (cached != null) {
+            try (InputStream in = cached.stream) {
+                return copy(in, out, size > 0 ? size : -1, cached.listener);
+            } catch (IOException ex) {
+                throw new JiraException("Failed reading cached attachment " + id, ex);
+            }
+        }
+
+        try {
+            return restclient.get(getContentUri(), null, (response, entity) -> {
+                if (entity == null)
+                    return 0L;
+
+                try (InputStream in = entity.getContent()) {
+                    return copy(in, out, entity.getContentLength(), listener);
+                }
+            });
+        } catch (Exception ex) {
+            throw new JiraException("Failed downloading attachment from " + content, ex);
+        }
+    }
+
+    /**
+     * Downloads attachment to a file. The content goes to a temporary file
+     * next to the target first, which then replaces the target, so the
+     * target is never left half written.
+     *
+     * @param path File to write to
+     *
+     * @return the number of bytes written
+     *
+     * @throws JiraException when the download fails
+     */
+    public long download(Path path) throws JiraException {
+        return download(path, null);
+    }
+
+    /**
+     * Downloads attachment to a file. The content goes to a temporary file
+     * next to the target first, which then replaces the target, so the
+     * target is never left half written.
+     *
+     * @param path File to write to
+     * @param listener Receives the progress or null
+     *
+     * @return the number of bytes written
+     *
+     * @throws JiraException when the download fails
+     */
+    public long download(final Path path, final ProgressListener listener) throws JiraException {
+        AttachmentCache.Content cached = openCachedContent(listener);
+
+        if (cached == null)
+            return downloadUncached(path, listener);
+
+        Path temp = null;
+
+        try (InputStream in = cached.stream) {
+            temp = Files.createTempFile(path.toAbsolutePath().getParent(),
+                    path.getFileName().toString() + ".", ".part");
+
+            long written;
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                written = copy(in, out, size > 0 ? size : -1, cached.listener);
+            }
+
+            moveReplacing(temp, path);
+            temp = null;
+            return written;
+        } catch (IOException ex) {
+            throw new JiraException("Failed reading cached attachment " + id, ex);
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
+
+    long downloadUncached(final Path path, final ProgressListener listener) throws JiraException {
+        Path dir = path.toAbsolutePath().getParent();
+        Path temp = null;
+
+        try {
+            temp = Files.createTempFile(dir, path.getFileName().toString() + ".", ".part");
+            final Path target = temp;
+
+            long written = restclient.get(getContentUri(), null, (response, entity) -> {
+                try (FileChannel file = FileChannel.open(target, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+
+                    if (entity == null)
+                        return 0L;
+
+                    long length = entity.getContentLength();
+
+                    try (ReadableByteChannel in = Channels.newChannel(entity.getContent())) {
+                        long position = 0;
+                        long n;
+
+                        while ((n = file.transferFrom(in, position, BUFFER_SIZE)) > 0) {
+                            position += n;
+
+                            if (listener != null)
+                                listener.progress(position, length);
+                        }
+
+                        checkLength(position, length);
+                        return position;
+                    }
+                }
+            });
+
+            moveReplacing(temp, path);
+            temp = null;
+            return written;
+        } catch (Exception ex) {
+            throw new JiraException("Failed downloading attachment from " + content, ex);
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
+
+    /**
+     * Downloads attachment to a file in byte ranges that are fetched
+     * concurrently and written in place into a preallocated file.
+     * <p>
+     * The data goes to <code>file.part</code> and each completed range is
+     * recorded in <code>file.ranges</code>, so a download that failed picks
+     * up where it left off when it's started again. The target is only
+     * replaced once all ranges are done. When the size isn't known or the
+     * server ignores range requests, this is a plain download.
+     * <p>
+     * The listener is called from the worker threads, one call at a time.
+     *
+     * @param path File to write to
+     * @param executor Runs the range requests
+     * @param parallelism Number of ranges fetched at the same time
+     * @param listener Receives the progress or null
+     *
+     * @return the number of bytes written
+     *
+     * @throws JiraException when the download fails
+     */
+    public long download(Path path, ExecutorService executor, int parallelism,
+            ProgressListener listener) throws JiraException {
+
+        return download(path, executor, parallelism, RANGE_SIZE, listener);
+    }
+
+    long download(Path path, ExecutorService executor, int parallelism, int rangeSize,
+            ProgressListener listener) throws JiraException {
+
+        Path part = path.resolveSibling(path.getFileName() + ".part");
+        Path state = path.resolveSibling(path.getFileName() + ".ranges");
+
+        try {
+            long length = size > 0 ? size : probeSize();
+
+            if (length <= 0)
+                return downloadUncached(path, listener);
+
+            BitSet completed = readRanges(state, part, length, rangeSize);
+            StringBuilder sb = new StringBuilder().append(length).append(' ').append(rangeSize).append('\n');
+
+            /* rewritten rather than appended to, so a torn last line can't
+               run into the next entry */
+            for (int r = completed.nextSetBit(0); r >= 0; r = completed.nextSetBit(r + 1))
+                sb.append(r).append('\n');
+
+            Files.write(state, sb.toString().getBytes(StandardCharsets.US_ASCII),
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+
+            try (RandomAccessFile raf = new RandomAccessFile(part.toFile(), "rw");
+                 FileChannel log = FileChannel.open(state, StandardOpenOption.WRITE,
+                         StandardOpenOption.APPEND)) {
+
+                raf.setLength(length);
+                new RangedDownload(raf.getChannel(), log, length, rangeSize, completed, listener)
+                        .run(executor, parallelism);
+                raf.getChannel().force(true);
+            }
+
+            moveReplacing(part, path);
+            Files.deleteIfExists(state);
+            return length;
+        } catch (RangesNotSupportedException ex) {
+            deleteQuietly(part);
+            deleteQuietly(state);
+            return downloadUncached(path, listener);
+        } catch (Exception ex) {
+            throw new JiraException("Failed downloading attachment from " + content, ex);
+        }
+    }
+
+    private long probeSize() throws Exception {
+        return restclient.head(getContentUri(), (response, entity) -> {
+            Header header = response.getFirstHeader("Content-Length");
+            return header != null ? Long.parseLong(header.getValue().trim()) : -1L;
+        });
+    }
+
+    /**
+     * Reads the ranges completed by an earlier attempt. Nothing is reused
+     * unless the data file is still there and the attempt was for the same
+     * size and range size. Only lines that end in a newline count, so a
+     * line cut short by a crash is ignored.
+     */
+    private static BitSet readRanges(Path state, Path part, long length, int rangeSize)
+            throws IOException {
+
+        BitSet completed = new BitSet();
+
+        if (!Files.exists(state) || !Files.exists(part))
+            return completed;
+
+        String text = new String(Files.readAllBytes(state), StandardCharsets.US_ASCII);
+        String[] lines = text.substring(0, text.lastIndexOf('\n') + 1).split("\n");
+        long count = (length + rangeSize - 1) / rangeSize;
+
+        if (!lines[0].equals(length + " " + rangeSize))
+            return completed;
+
+        for (int i = 1; i < lines.length; i++) {
+            try {
+                int r = Integer.parseInt(lines[i].trim());
+
+                if (r < 0 || r >= count)
+                    break;
+
+                completed.set(r);
+            } catch (NumberFormatException ex) {
+                break;
+            }
+        }
+
+        return completed;
+    }
+
+    /**
+     * Signals a server that answers range requests with the full content.
+     */
+    private static final class RangesNotSupportedException extends IOException {
+        RangesNotSupportedException() {
+            super("Server does not support range requests");
+        }
+    }
+
+    /**
+     * One ranged download. Workers take the next missing range until none
+     * are left or one of them has failed.
+     */
+    private final class RangedDownload {
+        private final FileChannel file;
+        private final FileChannel log;
+        private final long length;
+        private final int rangeSize;
+        private final int count;
+        private final BitSet completed;
+        private final ProgressListener listener;
+        private final AtomicInteger cursor = new AtomicInteger();
+        private final AtomicLong transferred = new AtomicLong();
+        private volatile boolean failed = false;
+
+        RangedDownload(FileChannel file, FileChannel log, long length, int rangeSize,
+                BitSet completed, ProgressListener listener) {
+            this.file = file;
+            this.log = log;
+            this.length = length;
+            this.rangeSize = rangeSize;
+            this.count = (int) ((length + rangeSize - 1) / rangeSize);
+            this.completed = completed;
+            this.listener = listener;
+
+            for (int r = completed.nextSetBit(0); r >= 0 && r < count; r = completed.nextSetBit(r + 1))
+                transferred.addAndGet(rangeEnd(r) - rangeStart(r));
+        }
+
+        void run(ExecutorService executor, int parallelism) throws Exception {
+            List<Future<Void>> workers = new ArrayList<Future<Void>>();
+            int missing = count - completed.cardinality();
+
+            for (int i = 0; i < Math.min(Math.max(parallelism, 1), missing); i++) {
+                workers.add(executor.submit(() -> {
+                    int r;
+
+                    try {
+                        while (!failed && (r = nextRange()) >= 0)
+                            fetch(r);
+                    } catch (Exception ex) {
+                        failed = true;
+                        throw ex;
+                    }
+
+                    return null;
+                }));
+            }
+
+            try {
+                for (Future<Void> worker : workers)
+                    worker.get();
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof Exception)
+                    throw (Exception) ex.getCause();
+
+                throw ex;
+            } finally {
+                for (Future<Void> worker : workers)
+                    worker.cancel(true);
+            }
+        }
+
+        private int nextRange() {
+            int r;
+
+            do {
+                r = cursor.getAndIncrement();
+            } while (r < count && completed.get(r));
+
+            return r < count ? r : -1;
+        }
+
+        private long rangeStart(int r) {
+            return (long) r * rangeSize;
+        }
+
+        private long rangeEnd(int r) {
+            return Math.min(length, rangeStart(r) + rangeSize);
+        }
+
+        private void fetch(final int r) throws Exception {
+            final long start = rangeStart(r);
+            final long end = rangeEnd(r);
+            Map<String, String> headers = Collections.singletonMap("Range",
+                    "bytes=" + start + "-" + (end - 1));
+
+            restclient.get(getContentUri(), headers, (response, entity) -> {
+                Header range = response.getFirstHeader("Content-Range");
+
+                if (response.getStatusLine().getStatusCode() != 206 || entity == null)
+                    throw new RangesNotSupportedException();
+                if (range == null || !range.getValue().startsWith("bytes " + start + "-" + (end - 1) + "/"))
+                    throw new IOException("Unexpected content range " + (range != null ? range.getValue() : null));
+
+                byte[] buffer = BUFFERS.get();
+                long position = start;
+
+                try (InputStream in = entity.getContent()) {
+                    while (position < end) {
+                        int n = in.read(buffer, 0, (int) Math.min(buffer.length, end - position));
+                        if (n < 0)
+                            break;
+
+                        ByteBuffer bb = ByteBuffer.wrap(buffer, 0, n);
+
+                        while (bb.hasRemaining())
+                            position += file.write(bb, position);
+
+                        progress(n);
+                    }
+                }
+
+                checkLength(position - start, end - start);
+                return null;
+            });
+
+            /* the range only counts once its data is on disk */
+            file.force(false);
+
+            synchronized (log) {
+                log.write(ByteBuffer.wrap((r + "\n").getBytes(StandardCharsets.US_ASCII)));
+            }
+        }
+
+        private void progress(int n) {
+            long total = transferred.addAndGet(n);
+
+            if (listener != null) {
+                synchronized (listener) {
+                    listener.progress(total, length);
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens the cached content, downloading it into the cache first if
+     * needed.
+     *
+     * @param listener Receives the progress or null
+     *
+     * @return the content or null when there's no cache or the attachment
+     * can't be cached
+     */
+    private AttachmentCache.Content openCachedContent(ProgressListener listener) throws JiraException {
+        AttachmentCache cache = restclient != null ? restclient.getAttachmentCache() : null;
+        return cache != null ? cache.fetch(this, listener) : null;
+    }
+
+    private URI getContentUri() throws JiraException {
+        if (content == null)
+            throw new JiraException("Attachment " + id + " has no content URL");
+
+        return URI.create(content);
+    }
+
+    private static long copy(InputStream in, OutputStream out, long length, ProgressListener listener)
+            throws IOException {
+
+        byte[] buffer = BUFFERS.get();
+        long total = 0;
+        int n;
+
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+            total += n;
+
+            if (listener != null)
+                listener.progress(total, length);
+        }
+
+        checkLength(total, length);
+        return total;
+    }
+
+    /**
+     * The HTTP client doesn't complain when the connection closes early,
+     * so a short body is caught here.
+     */
+    private static void checkLength(long received, long expected) throws IOException {
+        if (expected >= 0 && received != expected)
+            throw new IOException("Expected " + expected + " bytes but received " + received);
+    }
+
+    static void moveReplacing(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    static void deleteQuietly(Path path) {
+        if (path == null)
+            return;
+
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            /* nothing left to do about it */
+        }
     }
 
     @Override
@@ -0,0 +1,559 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * An on-disk cache of attachment content, keyed by attachment id.
+ * <p>
+ * Set on {@link RestClient#setAttachmentCache(AttachmentCache)}, it serves
+ * repeat downloads from local files. An entry is only used while the size
+ * and creation date of the attachment match, otherwise the content is
+ * fetched again. New content is written to a temporary file that then
+ * replaces the cached file, so readers never see a partial file.
+ * <p>
+ * The index is an open addressing hash table in a memory-mapped file, so
+ * lookups don't read from disk and the cache survives restarts. When the
+ * cached content exceeds the byte budget, the least recently used entries
+ * are evicted, in an order kept in memory alongside the table.
+ * Attachments larger than the budget aren't cached.
+ * <p>
+ * The cache is thread-safe. A directory must not be shared by two caches
+ * at the same time. Files in it that the cache didn't create are left
+ * alone, and an index file it didn't write is refused.
+ */
+public final class AttachmentCache implements Closeable {
+
+    /**
+     * Name of the index file in the cache directory.
+     */
+    public static final String INDEX = "index";
+
+    private static final int MAGIC = 0x4a434143;
+    private static final int HEADER_SIZE = 32;
+    private static final int SLOT_SIZE = 32;
+
+    /* slot ids: 0 is an empty slot, -1 a slot whose entry was removed */
+    private static final long EMPTY = 0;
+    private static final long REMOVED = -1;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final int capacity;
+    private final FileChannel channel;
+    private final MappedByteBuffer index;
+
+    /* the ids of the entries, least recently used first */
+    private final LinkedHashMap<Long, Boolean> recency = new LinkedHashMap<Long, Boolean>(16, 0.75f, true);
+
+    private long clock;
+    private long usedBytes = 0;
+    private int live = 0;
+    private int removed = 0;
+
+    /**
+     * Opens or creates a cache with room for 65536 entries.
+     *
+     * @param directory Cache directory
+     * @param maxBytes Byte budget for the cached content
+     *
+     * @throws IOException when the directory or index can't be opened
+     */
+    public AttachmentCache(Path directory, long maxBytes) throws IOException {
+        this(directory, maxBytes, 65536);
+    }
+
+    /**
+     * Opens or creates a cache.
+     *
+     * @param directory Cache directory
+     * @param maxBytes Byte budget for the cached content
+     * @param capacity Number of index slots, rounded up to a power of two.
+     * At most three quarters of them are used. An existing index with
+     * another number of slots is rebuilt with this one, keeping the most
+     * recently used entries that fit.
+     *
+     * @throws IOException when the directory or index can't be opened or the
+     * index file isn't one the cache wrote
+     */
+    public AttachmentCache(Path directory, long maxBytes, int capacity) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.capacity = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+
+        Files.createDirectories(directory);
+        int stored = checkIndex(directory.resolve(INDEX));
+
+        if (stored > 0 && stored != this.capacity)
+            resize(directory.resolve(INDEX), stored);
+
+        this.channel = FileChannel.open(directory.resolve(INDEX), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.index = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                HEADER_SIZE + (long) this.capacity * SLOT_SIZE);
+
+        if (index.getInt(0) != MAGIC || index.getInt(4) != this.capacity)
+            format();
+
+        load();
+    }
+
+    /**
+     * Gets the number of bytes of cached content.
+     *
+     * @return the used bytes
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Gets the number of cached attachments.
+     *
+     * @return the number of entries
+     */
+    public synchronized int size() {
+        return live;
+    }
+
+    /**
+     * Drops all cached content.
+     *
+     * @throws IOException when a file can't be deleted
+     */
+    public synchronized void clear() throws IOException {
+        for (int slot = 0; slot < capacity; slot++) {
+            long id = getId(slot);
+
+            if (id > 0)
+                Files.deleteIfExists(getFile(id));
+        }
+
+        format();
+        recency.clear();
+        usedBytes = 0;
+        live = 0;
+        removed = 0;
+    }
+
+    /**
+     * Writes the index to disk and releases it.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        index.force();
+        channel.close();
+    }
+
+    /**
+     * Content read through the cache.
+     */
+    static final class Content {
+        final InputStream stream;
+        final Attachment.ProgressListener listener;
+
+        /**
+         * @param stream The content, to be closed by the caller
+         * @param listener Receives the progress of reading the stream, or
+         * null when the download already reported it
+         */
+        Content(InputStream stream, Attachment.ProgressListener listener) {
+            this.stream = stream;
+            this.listener = listener;
+        }
+    }
+
+    /**
+     * Opens the cached content of an attachment, downloading it first when
+     * it isn't cached or has changed. Content that turns out to be larger
+     * than the budget is read from a temporary file that is deleted when
+     * the stream is closed, so it isn't downloaded twice.
+     *
+     * @param attachment Attachment to get
+     * @param listener Receives the progress of the download or of reading
+     * the cached content, or null
+     *
+     * @return the content or null when the attachment can't be cached
+     *
+     * @throws JiraException when the download fails
+     */
+    Content fetch(Attachment attachment, Attachment.ProgressListener listener) throws JiraException {
+        long id = getCacheId(attachment);
+
+        if (id <= 0 || attachment.getSize() > maxBytes)
+            return null;
+
+        InputStream cached = open(id, attachment);
+        if (cached != null)
+            return new Content(cached, listener);
+
+        Path temp = null;
+
+        try {
+            temp = Files.createTempFile(directory, id + ".", ".part");
+            long size = attachment.downloadUncached(temp, listener);
+            InputStream in;
+
+            if (size > maxBytes)
+                in = Files.newInputStream(temp, StandardOpenOption.DELETE_ON_CLOSE);
+            else
+                in = store(id, attachment, temp, size);
+
+            temp = null;
+            return new Content(in, null);
+        } catch (IOException ex) {
+            throw new JiraException("Failed to cache attachment " + attachment.getId(), ex);
+        } finally {
+            Attachment.deleteQuietly(temp);
+        }
+    }
+
+    /**
+     * Opens a cached file while holding the lock, so an eviction by
+     * another thread can't pull it away first.
+     */
+    private synchronized InputStream open(long id, Attachment attachment) {
+        int slot = find(id);
+
+        if (slot < 0)
+            return null;
+
+        Path file = getFile(id);
+        long size = getLong(slot, 8);
+
+        if ((attachment.getSize() > 0 && size != attachment.getSize())
+                || getLong(slot, 16) != getCreated(attachment)
+                || !isFile(file, size)) {
+            remove(slot);
+            return null;
+        }
+
+        InputStream in;
+
+        try {
+            in = Files.newInputStream(file);
+        } catch (IOException ex) {
+            remove(slot);
+            return null;
+        }
+
+        putLong(slot, 24, ++clock);
+        index.putLong(8, clock);
+        recency.get(id);
+        return in;
+    }
+
+    private synchronized InputStream store(long id, Attachment attachment, Path temp, long size)
+            throws IOException {
+
+        Path file = getFile(id);
+        int slot = find(id);
+
+        if (slot >= 0)
+            remove(slot);
+
+        Attachment.moveReplacing(temp, file);
+        evict(size);
+
+        if (live + removed >= capacity / 4 * 3)
+            rehash();
+
+        slot = insert(id);
+        putLong(slot, 8, size);
+        putLong(slot, 16, getCreated(attachment));
+        putLong(slot, 24, ++clock);
+        index.putLong(8, clock);
+        recency.put(id, Boolean.TRUE);
+        usedBytes += size;
+        return Files.newInputStream(file);
+    }
+
+    /**
+     * Evicts least recently used entries until the given number of bytes
+     * and one more entry fit.
+     */
+    private void evict(long incoming) {
+        while (live > 0 && (usedBytes + incoming > maxBytes || live + 1 > capacity / 4 * 3))
+            remove(find(recency.keySet().iterator().next()));
+    }
+
+    private void remove(int slot) {
+        recency.remove(getId(slot));
+        Attachment.deleteQuietly(getFile(getId(slot)));
+        usedBytes -= getLong(slot, 8);
+        putLong(slot, 0, REMOVED);
+        live--;
+        removed++;
+    }
+
+    private int find(long id) {
+        for (int i = 0, slot = hash(id); i < capacity; i++, slot = (slot + 1) & (capacity - 1)) {
+            long current = getId(slot);
+
+            if (current == id)
+                return slot;
+            if (current == EMPTY)
+                return -1;
+        }
+
+        return -1;
+    }
+
+    private int insert(long id) {
+        int slot = hash(id);
+
+        while (getId(slot) > 0)
+            slot = (slot + 1) & (capacity - 1);
+
+        if (getId(slot) == REMOVED)
+            removed--;
+
+        putLong(slot, 0, id);
+        live++;
+        return slot;
+    }
+
+    /**
+     * Rebuilds the table without the slots of removed entries, which would
+     * otherwise make lookups of missing ids scan ever longer.
+     */
+    private void rehash() {
+        List<long[]> entries = new ArrayList<long[]>(live);
+
+        for (int slot = 0; slot < capacity; slot++) {
+            if (getId(slot) > 0)
+                entries.add(new long[] { getId(slot), getLong(slot, 8), getLong(slot, 16), getLong(slot, 24) });
+        }
+
+        for (int slot = 0; slot < capacity; slot++)
+            putLong(slot, 0, EMPTY);
+
+        live = 0;
+        removed = 0;
+
+        for (long[] entry : entries) {
+            int slot = insert(entry[0]);
+            putLong(slot, 8, entry[1]);
+            putLong(slot, 16, entry[2]);
+            putLong(slot, 24, entry[3]);
+        }
+    }
+
+    private void format() {
+        for (int i = 0; i < HEADER_SIZE; i += 8)
+            index.putLong(i, 0);
+        for (int slot = 0; slot < capacity; slot++)
+            putLong(slot, 0, EMPTY);
+
+        index.putInt(0, MAGIC);
+        index.putInt(4, capacity);
+    }
+
+    /**
+     * Refuses an existing index file that doesn't start with the magic,
+     * since formatting it would destroy whatever it is. An empty file is
+     * what a crash right after creating the index leaves behind.
+     *
+     * @return the number of slots of the existing index, or 0 when there
+     * is none
+     */
+    private static int checkIndex(Path file) throws IOException {
+        if (!Files.exists(file) || Files.size(file) == 0)
+            return 0;
+
+        ByteBuffer header = ByteBuffer.allocate(8);
+
+        if (Files.size(file) >= header.capacity()) {
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                in.read(header, 0);
+            }
+        }
+
+        if (header.hasRemaining() || header.getInt(0) != MAGIC)
+            throw new IOException(file + " is not an attachment cache index");
+
+        return header.getInt(4);
+    }
+
+    /**
+     * Moves the entries of an index with another number of slots to a new
+     * index file. When they don't all fit, the least recently used ones
+     * are left out and their files are deleted by {@link #load()} like
+     * any other file without an entry.
+     */
+    private void resize(Path file, int stored) throws IOException {
+        List<long[]> entries = new ArrayList<long[]>();
+        long used;
+
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            /* a damaged index is formatted as before */
+            if (stored < 0 || in.size() != HEADER_SIZE + (long) stored * SLOT_SIZE)
+                return;
+
+            MappedByteBuffer old = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            used = old.getLong(8);
+
+            for (int slot = 0; slot < stored; slot++) {
+                int base = HEADER_SIZE + slot * SLOT_SIZE;
+
+                if (old.getLong(base) > 0)
+                    entries.add(new long[] { old.getLong(base), old.getLong(base + 8),
+                            old.getLong(base + 16), old.getLong(base + 24) });
+            }
+        }
+
+        entries.sort(Comparator.comparingLong((long[] entry) -> entry[3]).reversed());
+        Path temp = directory.resolve(INDEX + ".tmp");
+
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+            MappedByteBuffer next = out.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + (long) capacity * SLOT_SIZE);
+
+            next.putInt(0, MAGIC);
+            next.putInt(4, capacity);
+            next.putLong(8, used);
+
+            for (long[] entry : entries.subList(0, Math.min(entries.size(), capacity / 4 * 3))) {
+                int slot = hash(entry[0]);
+
+                while (next.getLong(HEADER_SIZE + slot * SLOT_SIZE) != EMPTY)
+                    slot = (slot + 1) & (capacity - 1);
+
+                for (int i = 0; i < entry.length; i++)
+                    next.putLong(HEADER_SIZE + slot * SLOT_SIZE + i * 8, entry[i]);
+            }
+
+            next.force();
+        }
+
+        Attachment.moveReplacing(temp, file);
+    }
+
+    /**
+     * Reads the index and reconciles it with the directory: entries whose
+     * file is gone are dropped, and content files without an entry and
+     * temporary files (both left behind by a crash) are deleted. Other
+     * files and directories aren't touched.
+     */
+    private void load() throws IOException {
+        List<long[]> entries = new ArrayList<long[]>();
+        clock = index.getLong(8);
+
+        for (int slot = 0; slot < capacity; slot++) {
+            long id = getId(slot);
+
+            if (id == REMOVED)
+                removed++;
+            else if (id > 0) {
+                live++;
+                usedBytes += getLong(slot, 8);
+                entries.add(new long[] { getLong(slot, 24), id });
+            }
+        }
+
+        entries.sort(Comparator.comparingLong((long[] entry) -> entry[0]));
+
+        for (long[] entry : entries)
+            recency.put(entry[1], Boolean.TRUE);
+
+        for (long[] entry : entries) {
+            int slot = find(entry[1]);
+
+            if (!isFile(getFile(entry[1]), getLong(slot, 8)))
+                remove(slot);
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+
+                if (!Files.isRegularFile(file))
+                    continue;
+
+                if (name.equals(INDEX + ".tmp") || name.matches("[0-9]+\\..*\\.part")
+                        || (name.matches("[0-9]{1,18}") && find(Long.parseLong(name)) < 0))
+                    Files.deleteIfExists(file);
+            }
+        }
+
+        if (removed > 0)
+            rehash();
+    }
+
+    private Path getFile(long id) {
+        return directory.resolve(Long.toString(id));
+    }
+
+    private long getId(int slot) {
+        return getLong(slot, 0);
+    }
+
+    private long getLong(int slot, int offset) {
+        return index.getLong(HEADER_SIZE + slot * SLOT_SIZE + offset);
+    }
+
+    private void putLong(int slot, int offset, long value) {
+        index.putLong(HEADER_SIZE + slot * SLOT_SIZE + offset, value);
+    }
+
+    private int hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (capacity - 1);
+    }
+
+    private static boolean isFile(Path file, long size) {
+        try {
+            return Files.isRegularFile(file) && Files.size(file) == size;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    private static long getCreated(Attachment attachment) {
+        return attachment.getCreatedDate() != null ? attachment.getCreatedDate().getTime() : 0;
+    }
+
+    /**
+     * Attachment ids are numeric. Anything else isn't cached.
+     */
+    private static long getCacheId(Attachment attachment) {
+        try {
+            return attachment.getId() != null ? Long.parseLong(attachment.getId()) : -1;
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+}
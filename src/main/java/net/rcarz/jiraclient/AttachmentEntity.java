@@ -0,0 +1,241 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import org.apache.http.entity.AbstractHttpEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+/**
+ * A multipart/form-data body of attachments that is written straight to
+ * the connection.
+ * <p>
+ * Files are handed to {@link FileChannel#transferTo} and byte arrays are
+ * written as they are, so no content is buffered. When every part has a
+ * known length the body has a Content-Length; otherwise it's sent chunked.
+ * Bodies without streams are repeatable, so the request can be retried.
+ */
+final class AttachmentEntity extends AbstractHttpEntity {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final byte[] CRLF = { '\r', '\n' };
+
+    private final Issue.NewAttachment[] attachments;
+    private final long[] lengths;
+    private final Attachment.ProgressListener listener;
+    private final String boundary;
+    private final long contentLength;
+    private final boolean streaming;
+
+    /**
+     * @param attachments Attachments to send
+     * @param listener Receives the upload progress or null
+     */
+    AttachmentEntity(Issue.NewAttachment[] attachments, Attachment.ProgressListener listener) {
+        this.attachments = attachments.clone();
+        this.lengths = new long[attachments.length];
+        this.listener = listener;
+        this.boundary = "jira-client-" + UUID.randomUUID().toString().replace("-", "");
+
+        long length = getTrailer().length;
+        boolean streams = false;
+
+        /* a file's size is taken once, the body has to match what was declared */
+        for (int i = 0; i < this.attachments.length; i++) {
+            Issue.NewAttachment attachment = this.attachments[i];
+            long size = attachment.getLength();
+            lengths[i] = size;
+            streams |= attachment.getContent() instanceof InputStream;
+
+            if (size < 0 || length < 0)
+                length = -1;
+            else
+                length += getHeader(attachment).length + size + CRLF.length;
+        }
+
+        this.contentLength = length;
+        this.streaming = streams;
+
+        setContentType("multipart/form-data; boundary=" + boundary);
+        setChunked(length < 0);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return !streaming;
+    }
+
+    @Override
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        if (streaming)
+            throw new UnsupportedOperationException("Streamed attachments can only be written once");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeTo(out);
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        long[] transferred = { 0 };
+        long total = getContentSize();
+
+        for (int i = 0; i < attachments.length; i++) {
+            Issue.NewAttachment attachment = attachments[i];
+            out.write(getHeader(attachment));
+
+            Object content = attachment.getContent();
+
+            if (content instanceof byte[])
+                write(out, (byte[]) content, transferred, total);
+            else if (content instanceof InputStream)
+                copy(attachment, out, lengths[i], transferred, total);
+            else
+                transfer(attachment, out, lengths[i], transferred, total);
+
+            out.write(CRLF);
+        }
+
+        out.write(getTrailer());
+        out.flush();
+    }
+
+    /**
+     * Sum of the attachment sizes, which is what progress is reported
+     * against.
+     */
+    private long getContentSize() {
+        long total = 0;
+
+        for (long size : lengths) {
+            if (size < 0)
+                return -1;
+
+            total += size;
+        }
+
+        return total;
+    }
+
+    private void write(OutputStream out, byte[] content, long[] transferred, long total)
+            throws IOException {
+
+        for (int off = 0; off < content.length; off += CHUNK_SIZE) {
+            int n = Math.min(CHUNK_SIZE, content.length - off);
+            out.write(content, off, n);
+            progress(transferred, n, total);
+        }
+    }
+
+    /**
+     * Copies a stream, checking it against its declared length (-1 if
+     * unknown) before anything past it reaches the connection.
+     */
+    private void copy(Issue.NewAttachment attachment, OutputStream out, long length, long[] transferred,
+            long total) throws IOException {
+
+        InputStream in = (InputStream) attachment.getContent();
+        byte[] buffer = new byte[CHUNK_SIZE];
+        long count = 0;
+        int n;
+
+        while ((n = in.read(buffer)) > 0) {
+            count += n;
+
+            if (length >= 0 && count > length)
+                throw new IOException("Attachment " + attachment.getFilename() + " is longer than its declared "
+                        + length + " bytes");
+
+            out.write(buffer, 0, n);
+            progress(transferred, n, total);
+        }
+
+        if (length >= 0 && count != length)
+            throw new IOException("Attachment " + attachment.getFilename() + " has " + count
+                    + " bytes instead of its declared " + length);
+    }
+
+    private void transfer(Issue.NewAttachment attachment, OutputStream out, long length, long[] transferred,
+            long total) throws IOException {
+
+        WritableByteChannel target = Channels.newChannel(out);
+
+        try (FileChannel file = FileChannel.open(attachment.getPath(), StandardOpenOption.READ)) {
+            long size = length >= 0 ? length : file.size();
+            long position = 0;
+
+            if (file.size() != size)
+                throw new IOException(attachment.getPath() + " changed size from " + size + " to "
+                        + file.size() + " bytes");
+
+            while (position < size) {
+                long n = file.transferTo(position, Math.min(CHUNK_SIZE, size - position), target);
+
+                if (n <= 0)
+                    throw new IOException("Failed to read " + attachment.getPath());
+
+                position += n;
+                progress(transferred, n, total);
+            }
+        }
+    }
+
+    private void progress(long[] transferred, long n, long total) {
+        transferred[0] += n;
+
+        if (listener != null)
+            listener.progress(transferred[0], total);
+    }
+
+    private byte[] getHeader(Issue.NewAttachment attachment) {
+        /* quotes and line breaks would end the header early */
+        String filename = attachment.getFilename().replace("\"", "%22")
+                .replace("\r", "").replace("\n", "");
+
+        return ("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + filename + "\"\r\n"
+                + "Content-Type: application/octet-stream\r\n"
+                + "\r\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] getTrailer() {
+        return ("--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+}
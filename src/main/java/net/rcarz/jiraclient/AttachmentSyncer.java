@@ -0,0 +1,361 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Mirrors the attachments of the issues matching a JQL query into a local
+ * directory.
+ * <p>
+ * The search only requests the attachment field. A manifest in the
+ * directory remembers the id, size and creation date of every file that
+ * was downloaded, so later runs only download attachments that are new or
+ * have changed. Attachments that disappeared from JIRA are left alone.
+ * <p>
+ * Files are stored as <code>ISSUE-KEY/id-filename</code>. Downloads run on
+ * a bounded pool with a limit on concurrent downloads per host.
+ */
+public final class AttachmentSyncer {
+
+    /**
+     * Name of the manifest file in the mirror directory.
+     */
+    public static final String MANIFEST = ".attachments";
+
+    /**
+     * Outcome of a sync run.
+     */
+    public static final class Result {
+        private int downloaded = 0;
+        private int skipped = 0;
+        private final Map<String, Exception> failures = new LinkedHashMap<String, Exception>();
+
+        /**
+         * @return the number of attachments that were downloaded
+         */
+        public int getDownloaded() {
+            return downloaded;
+        }
+
+        /**
+         * @return the number of attachments that were already up to date
+         */
+        public int getSkipped() {
+            return skipped;
+        }
+
+        /**
+         * @return the failed downloads, keyed by attachment id
+         */
+        public Map<String, Exception> getFailures() {
+            return Collections.unmodifiableMap(failures);
+        }
+    }
+
+    /**
+     * A manifest line: what was downloaded for an attachment.
+     */
+    private static final class Entry {
+        final String id;
+        final long size;
+        final long created;
+        final String path;
+
+        Entry(String id, long size, long created, String path) {
+            this.id = id;
+            this.size = size;
+            this.created = created;
+            this.path = path;
+        }
+    }
+
+    private static final int PAGE_SIZE = 100;
+
+    private final RestClient restclient;
+    private final Path directory;
+    private int threads = 4;
+    private int maxPerHost = 2;
+    private ExecutorService executor = null;
+
+    /**
+     * Creates a syncer with four download threads and at most two
+     * concurrent downloads per host.
+     *
+     * @param restclient REST client instance
+     * @param directory Mirror directory
+     */
+    public AttachmentSyncer(RestClient restclient, Path directory) {
+        this.restclient = restclient;
+        this.directory = directory;
+    }
+
+    /**
+     * Sets the number of download threads. Ignored when an executor is set.
+     *
+     * @param threads Number of threads
+     *
+     * @return this syncer
+     */
+    public AttachmentSyncer threads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Sets the number of concurrent downloads per host.
+     *
+     * @param maxPerHost Concurrent downloads per host
+     *
+     * @return this syncer
+     */
+    public AttachmentSyncer maxPerHost(int maxPerHost) {
+        this.maxPerHost = maxPerHost;
+        return this;
+    }
+
+    /**
+     * Sets the pool the downloads run on. The pool isn't shut down by the
+     * syncer.
+     *
+     * @param executor Download pool or null for a pool per run
+     *
+     * @return this syncer
+     */
+    public AttachmentSyncer executor(ExecutorService executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Downloads the new and changed attachments of the issues matching the
+     * query. Failed downloads don't stop the run; they are reported in the
+     * result and retried by the next run.
+     *
+     * @param jql JQL statement
+     *
+     * @return the outcome of the run
+     *
+     * @throws JiraException when the search or the manifest fails
+     */
+    public Result sync(String jql) throws JiraException {
+        Map<String, Entry> manifest = readManifest();
+        ConcurrentMap<String, Semaphore> hosts = new ConcurrentHashMap<String, Semaphore>();
+        Map<Attachment, Future<Entry>> downloads = new LinkedHashMap<Attachment, Future<Entry>>();
+        Result result = new Result();
+
+        ExecutorService pool = executor;
+        boolean ownPool = pool == null;
+
+        if (ownPool)
+            pool = Executors.newFixedThreadPool(threads);
+
+        try {
+            try {
+                try (Issue.StreamingSearchResult search = Issue.searchStreaming(restclient, null, jql,
+                        Field.ATTACHMENT, null, PAGE_SIZE, null, null)) {
+
+                    for (Issue issue : search) {
+                        List<Attachment> attachments = issue.getAttachments();
+
+                        if (attachments == null)
+                            continue;
+
+                        for (Attachment attachment : attachments) {
+                            String path = getPath(issue, attachment);
+
+                            if (isCurrent(manifest.get(attachment.getId()), attachment, path)) {
+                                result.skipped++;
+                                continue;
+                            }
+
+                            downloads.put(attachment, pool.submit(() -> download(attachment, path, hosts)));
+                        }
+                    }
+                }
+
+                for (Map.Entry<Attachment, Future<Entry>> download : downloads.entrySet()) {
+                    try {
+                        Entry entry = download.getValue().get();
+                        manifest.put(entry.id, entry);
+                        result.downloaded++;
+                    } catch (ExecutionException ex) {
+                        Throwable cause = ex.getCause();
+                        result.failures.put(download.getKey().getId(),
+                                cause instanceof Exception ? (Exception) cause : ex);
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new JiraException("Failed to sync attachments", ex);
+            } catch (RuntimeException ex) {
+                /* the search iterator wraps its failures, anything else is a bug */
+                if (!(ex.getCause() instanceof JiraException))
+                    throw ex;
+
+                throw new JiraException("Failed to sync attachments", ex.getCause());
+            } finally {
+                for (Future<Entry> download : downloads.values())
+                    download.cancel(true);
+
+                if (ownPool)
+                    pool.shutdownNow();
+            }
+        } catch (Throwable ex) {
+            /* keep what was downloaded, but don't let the manifest hide the failure */
+            try {
+                writeManifest(manifest);
+            } catch (JiraException suppressed) {
+                ex.addSuppressed(suppressed);
+            }
+
+            throw ex;
+        }
+
+        writeManifest(manifest);
+
+        return result;
+    }
+
+    private Entry download(Attachment attachment, String path, ConcurrentMap<String, Semaphore> hosts)
+            throws JiraException, InterruptedException, IOException {
+
+        Semaphore permits = hosts.computeIfAbsent(getHost(attachment),
+                host -> new Semaphore(Math.max(maxPerHost, 1)));
+        Path target = directory.resolve(path);
+
+        permits.acquire();
+
+        try {
+            Files.createDirectories(target.getParent());
+            attachment.download(target);
+        } finally {
+            permits.release();
+        }
+
+        return new Entry(attachment.getId(), attachment.getSize(), getCreated(attachment), path);
+    }
+
+    private boolean isCurrent(Entry entry, Attachment attachment, String path) {
+        if (entry == null || entry.size != attachment.getSize()
+                || entry.created != getCreated(attachment) || !entry.path.equals(path))
+            return false;
+
+        Path file = directory.resolve(path);
+
+        try {
+            return Files.isRegularFile(file) && Files.size(file) == entry.size;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    private static long getCreated(Attachment attachment) {
+        return attachment.getCreatedDate() != null ? attachment.getCreatedDate().getTime() : 0;
+    }
+
+    private static String getHost(Attachment attachment) {
+        try {
+            String host = URI.create(attachment.getContentUrl()).getHost();
+            return host != null ? host : "";
+        } catch (RuntimeException ex) {
+            return "";
+        }
+    }
+
+    /**
+     * Keeps file names from escaping the issue directory or tripping up
+     * the manifest.
+     */
+    private static String getPath(Issue issue, Attachment attachment) {
+        String name = attachment.getFileName() != null ? attachment.getFileName() : "attachment";
+        name = name.replaceAll("[\\\\/:*?\"<>|\\t\\r\\n]", "_");
+
+        if (name.equals(".") || name.equals(".."))
+            name = "_";
+
+        return issue.getKey() + "/" + attachment.getId() + "-" + name;
+    }
+
+    private Map<String, Entry> readManifest() throws JiraException {
+        Map<String, Entry> manifest = new LinkedHashMap<String, Entry>();
+        Path file = directory.resolve(MANIFEST);
+
+        if (!Files.exists(file))
+            return manifest;
+
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String[] parts = line.split("\t", 4);
+
+                if (parts.length < 4)
+                    continue;
+
+                try {
+                    manifest.put(parts[0], new Entry(parts[0], Long.parseLong(parts[1]),
+                            Long.parseLong(parts[2]), parts[3]));
+                } catch (NumberFormatException ex) {
+                    /* a damaged line only costs a download */
+                }
+            }
+        } catch (IOException ex) {
+            throw new JiraException("Failed to read attachment manifest " + file, ex);
+        }
+
+        return manifest;
+    }
+
+    private void writeManifest(Map<String, Entry> manifest) throws JiraException {
+        List<String> lines = new ArrayList<String>(manifest.size());
+
+        for (Entry entry : manifest.values())
+            lines.add(entry.id + "\t" + entry.size + "\t" + entry.created + "\t" + entry.path);
+
+        Path temp = null;
+
+        try {
+            Files.createDirectories(directory);
+            temp = Files.createTempFile(directory, MANIFEST, ".tmp");
+            Files.write(temp, lines, StandardCharsets.UTF_8);
+            Attachment.moveReplacing(temp, directory.resolve(MANIFEST));
+            temp = null;
+        } catch (IOException ex) {
+            throw new JiraException("Failed to write attachment manifest", ex);
+        } finally {
+            Attachment.deleteQuietly(temp);
+        }
+    }
+}
@@ -0,0 +1,306 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import net.rcarz.jiraclient.util.JsonUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Retrieves the change histories of all issues matching a JQL query.
+ * <p>
+ * The search is expanded with the changelog, so for most issues the
+ * history comes with the search page and no further request is needed.
+ * Only issues whose history is longer than the inline window are read
+ * again, page by page, from the changelog endpoint. Those requests run on
+ * a bounded pool, with a limited number of issues in flight.
+ * <p>
+ * Every history is handed to a {@link Sink} as soon as it is complete, so
+ * the histories of a large result set never have to be held at once.
+ */
+public final class ChangeLogFetcher {
+
+    /**
+     * Receives the complete history of an issue. Calls are made one at a
+     * time, but from the caller's thread as well as from the pool.
+     */
+    public interface Sink {
+
+        /**
+         * @param key Issue key
+         * @param history All history entries of the issue, oldest first
+         *
+         * @throws Exception to report the issue as failed
+         */
+        void accept(String key, List<IssueHistory> history) throws Exception;
+    }
+
+    /**
+     * Outcome of a run.
+     */
+    public static final class Result {
+        private final AtomicInteger issues = new AtomicInteger();
+        private final AtomicInteger paged = new AtomicInteger();
+        private final Map<String, Exception> failures = new ConcurrentHashMap<String, Exception>();
+
+        /**
+         * @return the number of issues whose history was delivered
+         */
+        public int getIssues() {
+            return issues.get();
+        }
+
+        /**
+         * @return the number of issues that needed their own requests
+         */
+        public int getPaged() {
+            return paged.get();
+        }
+
+        /**
+         * @return the failed issues, keyed by issue key
+         */
+        public Map<String, Exception> getFailures() {
+            return Collections.unmodifiableMap(failures);
+        }
+    }
+
+    private final RestClient restclient;
+    private int threads = 4;
+    private int pageSize = 50;
+    private ExecutorService executor = null;
+    private volatile boolean legacy = false;
+
+    /**
+     * Creates a fetcher with four threads and search pages of 50 issues.
+     *
+     * @param restclient REST client instance
+     */
+    public ChangeLogFetcher(RestClient restclient) {
+        this.restclient = restclient;
+    }
+
+    /**
+     * Sets the number of threads that page long histories. Ignored when
+     * an executor is set, but still bounds the issues in flight.
+     *
+     * @param threads Number of threads
+     *
+     * @return this fetcher
+     */
+    public ChangeLogFetcher threads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Sets the number of issues per search page. Each issue may carry up
+     * to 100 history entries, so pages are kept smaller than usual.
+     *
+     * @param pageSize Issues per page
+     *
+     * @return this fetcher
+     */
+    public ChangeLogFetcher pageSize(int pageSize) {
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    /**
+     * Sets the pool long histories are paged on. The pool isn't shut down
+     * by the fetcher.
+     *
+     * @param executor Worker pool or null for a pool per run
+     *
+     * @return this fetcher
+     */
+    public ChangeLogFetcher executor(ExecutorService executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Delivers the history of every issue matching the query to the sink.
+     * Issues that fail, or that the sink rejects, don't stop the run; they
+     * are reported in the result.
+     *
+     * @param jql JQL statement
+     * @param sink Receives the histories
+     *
+     * @return the outcome of the run
+     *
+     * @throws JiraException when the search fails
+     */
+    public Result fetch(String jql, Sink sink) throws JiraException {
+        int inFlight = Math.max(threads, 1) * 2;
+        Semaphore slots = new Semaphore(inFlight);
+        List<Future<?>> tasks = new ArrayList<Future<?>>();
+        Result result = new Result();
+
+        ExecutorService pool = executor;
+        boolean ownPool = pool == null;
+
+        if (ownPool)
+            pool = Executors.newFixedThreadPool(Math.max(threads, 1));
+
+        try {
+            SearchPager pager = new SearchPager(restclient, null, jql, "key", Field.CHANGE_LOG, pageSize);
+
+            while (pager.hasNext()) {
+                Map page = JsonUtil.OBJECT_MAPPER.readValue(pager.fetch(), Map.class);
+                List issues = page.get("issues") instanceof List ? (List) page.get("issues") : null;
+
+                if (issues == null || issues.isEmpty())
+                    break;
+
+                for (Object entry : issues) {
+                    if (!(entry instanceof Map))
+                        continue;
+
+                    final String key = Field.getString(((Map) entry).get("key"));
+
+                    /* without a window, e.g. when the server ignored the expand,
+                       nothing is known about the history yet */
+                    ChangeLogIterator.Page window = ((Map) entry).get(Field.CHANGE_LOG) instanceof Map
+                            ? new ChangeLogIterator.Page(restclient, (Map) entry)
+                            : null;
+
+                    if (window != null && window.values.size() >= window.total) {
+                        deliver(sink, key, window.values, result);
+                        continue;
+                    }
+
+                    result.paged.incrementAndGet();
+                    slots.acquire();
+                    tasks.removeIf(Future::isDone);
+                    tasks.add(pool.submit(() -> {
+                        try {
+                            deliver(sink, key, readHistory(key), result);
+                        } catch (Exception ex) {
+                            result.failures.put(key, ex);
+                        } finally {
+                            slots.release();
+                        }
+
+                        return null;
+                    }));
+                }
+
+                pager.advance(Field.getInteger(page.get("startAt")), issues.size(),
+                        Field.getInteger(page.get("total")));
+            }
+
+            for (Future<?> task : tasks)
+                task.get();
+        } catch (JiraException ex) {
+            throw ex;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new JiraException("Failed to fetch changelogs", ex);
+        } catch (ExecutionException ex) {
+            throw new JiraException("Failed to fetch changelogs", ex.getCause());
+        } catch (Exception ex) {
+            throw new JiraException("Failed to fetch changelogs", ex);
+        } finally {
+            for (Future<?> task : tasks)
+                task.cancel(true);
+
+            if (ownPool)
+                pool.shutdownNow();
+        }
+
+        return result;
+    }
+
+    private void deliver(Sink sink, String key, List<IssueHistory> history, Result result) {
+        try {
+            synchronized (sink) {
+                sink.accept(key, history);
+            }
+
+            result.issues.incrementAndGet();
+        } catch (Exception ex) {
+            result.failures.put(key, ex);
+        }
+    }
+
+    /**
+     * Reads the whole history of an issue. The window that came with the
+     * search isn't reused, since it isn't necessarily the oldest entries.
+     * A history that ends short of its total, e.g. because an expanded
+     * issue can't be paged, fails the issue rather than being delivered
+     * incomplete.
+     */
+    private List<IssueHistory> readHistory(String key) throws Exception {
+        List<IssueHistory> history = new ArrayList<IssueHistory>();
+        boolean expand = legacy;
+        int startAt = 0;
+        int total = 1;
+
+        while (startAt < total) {
+            ChangeLogIterator.Page page;
+
+            try {
+                page = ChangeLogIterator.fetch(restclient, key, expand, startAt, ChangeLogIterator.PAGE_SIZE);
+            } catch (RestException ex) {
+                if (expand || ex.getHttpStatusCode() != 404)
+                    throw ex;
+
+                expand = true;
+                continue;
+            }
+
+            if (page == null)
+                throw new JiraException("JSON payload is malformed");
+
+            /* a deleted issue is a 404 too, so only a working fallback counts */
+            if (expand)
+                legacy = true;
+
+            /* an expanded issue ignores startAt, so it can't be paged further */
+            if (page.startAt != startAt)
+                break;
+
+            total = page.total;
+
+            if (page.values.isEmpty())
+                break;
+
+            history.addAll(page.values);
+            startAt += page.values.size();
+        }
+
+        if (history.size() < total)
+            throw new JiraException("Only " + history.size() + " of " + total + " history entries of "
+                    + key + " could be read");
+
+        return history;
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps only the changes of given fields in issue history records.
+ * <p>
+ * Field names are matched exactly against a set, so <code>status</code>
+ * doesn't match <code>statuscategory</code>. A record whose changes all
+ * match is passed on as it is; only records with some matching changes
+ * are copied. Records without matching changes are dropped.
+ * <p>
+ * Filters are immutable and can be shared between threads.
+ */
+public final class ChangeLogFilter {
+
+    private final Set<String> fields;
+
+    /**
+     * Creates a filter from a comma separated list of field names.
+     *
+     * @param fields Field names, e.g. "status,assignee"
+     */
+    public ChangeLogFilter(String fields) {
+        this(fields != null ? Arrays.asList(fields.split(",")) : Collections.<String>emptyList());
+    }
+
+    /**
+     * Creates a filter.
+     *
+     * @param fields Field names
+     */
+    public ChangeLogFilter(Collection<String> fields) {
+        Set<String> set = new HashSet<String>();
+
+        for (String field : fields) {
+            if (field != null && !field.trim().isEmpty())
+                set.add(field.trim());
+        }
+
+        this.fields = Collections.unmodifiableSet(set);
+    }
+
+    /**
+     * Gets the field names this filter keeps.
+     *
+     * @return the field names
+     */
+    public Set<String> getFields() {
+        return fields;
+    }
+
+    /**
+     * Checks whether a change is kept.
+     *
+     * @param item Change to check
+     *
+     * @return true when the changed field is one of the filter's
+     */
+    public boolean matches(IssueHistoryItem item) {
+        return item.getField() != null && fields.contains(item.getField());
+    }
+
+    /**
+     * Filters the changes of a history record.
+     *
+     * @param record Record to filter
+     *
+     * @return the record itself when all changes match, a copy with the
+     * matching changes, or null when none match
+     */
+    public IssueHistory apply(IssueHistory record) {
+        List<IssueHistoryItem> changes = record.getChanges();
+        int matching = 0;
+
+        for (IssueHistoryItem item : changes) {
+            if (matches(item))
+                matching++;
+        }
+
+        if (matching == 0)
+            return null;
+        if (matching == changes.size())
+            return record;
+
+        ArrayList<IssueHistoryItem> kept = new ArrayList<IssueHistoryItem>(matching);
+
+        for (IssueHistoryItem item : changes) {
+            if (matches(item))
+                kept.add(item);
+        }
+
+        return new IssueHistory(record, kept);
+    }
+
+    /**
+     * Filters a list of history records.
+     *
+     * @param history Records to filter
+     *
+     * @return the records with matching changes, in their original order
+     */
+    public ArrayList<IssueHistory> filter(List<IssueHistory> history) {
+        ArrayList<IssueHistory> result = new ArrayList<IssueHistory>();
+
+        for (IssueHistory record : history) {
+            IssueHistory filtered = apply(record);
+
+            if (filtered != null)
+                result.add(filtered);
+        }
+
+        return result;
+    }
+
+    /**
+     * Filters a stream of history records lazily. Records are filtered
+     * as they are consumed, and in parallel when the stream is parallel.
+     *
+     * @param history Records to filter
+     *
+     * @return a stream of the records with matching changes
+     */
+    public Stream<IssueHistory> filter(Stream<IssueHistory> history) {
+        return history.map(this::apply).filter(Objects::nonNull);
+    }
+
+    /**
+     * Filters the histories of many issues in one parallel pass.
+     *
+     * @param histories Records by issue key
+     *
+     * @return the records with matching changes by issue key, in the
+     * iteration order of the given map. Issues without any matching
+     * change are left out.
+     */
+    public Map<String, List<IssueHistory>> filterAll(Map<String, ? extends List<IssueHistory>> histories) {
+        return histories.entrySet().parallelStream()
+                .map(e -> new SimpleImmutableEntry<String, List<IssueHistory>>(e.getKey(), filter(e.getValue())))
+                .filter(e -> !e.getValue().isEmpty())
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a,
+                        LinkedHashMap::new));
+    }
+}
@@ -0,0 +1,333 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import net.rcarz.jiraclient.util.JsonUtil;
+
+import java.io.Closeable;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Iterates over the change history of an issue using the
+ * <code>issue/{key}/changelog</code> paging endpoint.
+ * <p>
+ * The first page is fetched up front to learn the total and the page size
+ * the server allows. The following pages are then requested concurrently,
+ * at most <code>parallelism</code> ahead of the reader, and handed out in
+ * order. Only the pages in flight are held in memory. When a page that
+ * isn't the last comes back short, the pages in flight would skip the
+ * entries after it, so they are dropped and paging goes on from where the
+ * short page ended, with its size.
+ * <p>
+ * Servers without the endpoint answer 404; the history is then read from
+ * <code>issue/{key}?expand=changelog</code> one page at a time.
+ * <p>
+ * Without a search executor on the REST client the pages are fetched on
+ * a pool of the iterator's own, or on the reader's thread when the
+ * parallelism is one.
+ */
+final class ChangeLogIterator implements Iterator<IssueHistory>, Closeable {
+
+    /**
+     * Page size requested from the server, which may return fewer.
+     */
+    static final int PAGE_SIZE = 100;
+
+    private final RestClient restclient;
+    private final String key;
+    private final int parallelism;
+    private final ArrayDeque<Future<Page>> pending = new ArrayDeque<Future<Page>>();
+    private ArrayDeque<IssueHistory> current;
+    private ExecutorService executor = null;
+    private boolean ownExecutor = false;
+    private boolean legacy = false;
+    private final boolean emptyResponse;
+    private int pageSize;
+    private int nextStart;
+    private int total;
+
+    /**
+     * Fetches the first page.
+     *
+     * @param restclient REST client instance
+     * @param key Issue key or id
+     * @param parallelism Number of pages fetched at the same time
+     *
+     * @throws JiraException when the first page can't be retrieved
+     */
+    ChangeLogIterator(RestClient restclient, String key, int parallelism) throws JiraException {
+        this.restclient = restclient;
+        this.key = key;
+        this.parallelism = Math.max(parallelism, 1);
+
+        Page first;
+
+        try {
+            try {
+                first = fetch(0, PAGE_SIZE);
+            } catch (RestException ex) {
+                if (ex.getHttpStatusCode() != 404)
+                    throw ex;
+
+                legacy = true;
+                first = fetch(0, PAGE_SIZE);
+            }
+        } catch (Exception ex) {
+            throw new JiraException("Failed to retrieve changelog of " + key, ex);
+        }
+
+        this.emptyResponse = first == null;
+
+        if (first == null) {
+            this.current = new ArrayDeque<IssueHistory>();
+            return;
+        }
+
+        this.pageSize = first.maxResults > 0 ? first.maxResults : Math.max(first.values.size(), 1);
+        this.nextStart = first.startAt + first.values.size();
+        this.total = first.values.isEmpty() ? 0 : first.total;
+
+        if (!first.values.isEmpty() && first.values.size() < pageSize && nextStart < total)
+            this.pageSize = first.values.size();
+        this.current = new ArrayDeque<IssueHistory>(first.values);
+
+        fill();
+    }
+
+    /**
+     * Gets the total reported by the first page.
+     *
+     * @return the number of history entries
+     */
+    int getTotal() {
+        return total;
+    }
+
+    /**
+     * Tells whether the server answered the first page without content.
+     *
+     * @return true when there was no response body
+     */
+    boolean isEmptyResponse() {
+        return emptyResponse;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (current.isEmpty()) {
+            if (pending.isEmpty())
+                fill();
+            if (pending.isEmpty()) {
+                close();
+                return false;
+            }
+
+            try {
+                Page page = pending.poll().get();
+
+                if (page == null) {
+                    close();
+                    return false;
+                }
+
+                /* entries added while paging are picked up at the end */
+                if (page.total > total)
+                    total = page.total;
+                if (page.values.isEmpty())
+                    total = Math.min(total, page.startAt);
+
+                int end = page.startAt + page.values.size();
+
+                if (!page.values.isEmpty() && page.values.size() < pageSize && end < total) {
+                    cancelPending();
+                    pageSize = page.values.size();
+                    nextStart = end;
+                }
+
+                current = new ArrayDeque<IssueHistory>(page.values);
+            } catch (ExecutionException ex) {
+                close();
+                throw new RuntimeException(new JiraException(
+                        "Failed to retrieve changelog of " + key, ex.getCause()));
+            } catch (InterruptedException ex) {
+                close();
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(new JiraException(
+                        "Interrupted retrieving changelog of " + key, ex));
+            }
+
+            fill();
+        }
+
+        return true;
+    }
+
+    @Override
+    public IssueHistory next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        return current.poll();
+    }
+
+    /**
+     * Cancels the pages still in flight and releases the worker pool.
+     */
+    @Override
+    public void close() {
+        cancelPending();
+        nextStart = total;
+
+        if (ownExecutor)
+            executor.shutdownNow();
+    }
+
+    private void cancelPending() {
+        for (Future<Page> page : pending)
+            page.cancel(true);
+
+        pending.clear();
+    }
+
+    private void fill() {
+        int window = legacy ? 1 : parallelism;
+
+        while (pending.size() < window && nextStart < total) {
+            final int startAt = nextStart;
+
+            /* a pool for one page at a time would only cost a thread per history */
+            if (executor == null && parallelism == 1 && restclient.getSearchExecutor() == null) {
+                FutureTask<Page> page = new FutureTask<Page>(() -> fetchFrom(startAt));
+                page.run();
+                pending.add(page);
+                nextStart += pageSize;
+                continue;
+            }
+
+            if (executor == null) {
+                executor = restclient.getSearchExecutor();
+                ownExecutor = executor == null;
+
+                if (ownExecutor)
+                    executor = Executors.newFixedThreadPool(parallelism, r -> {
+                        Thread thread = new Thread(r, "jira-changelog-" + key);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            }
+
+            pending.add(executor.submit(() -> fetchFrom(startAt)));
+            nextStart += pageSize;
+        }
+    }
+
+    /**
+     * Fetches a following page. An expanded issue ignores startAt and
+     * would hand out its first entries again, so a page that doesn't start
+     * where it was asked to ends the history.
+     *
+     * @return the page or null when the history can't be paged further
+     */
+    private Page fetchFrom(int startAt) throws Exception {
+        Page page = fetch(startAt, pageSize);
+        return page != null && page.startAt == startAt ? page : null;
+    }
+
+    private Page fetch(int startAt, int maxResults) throws Exception {
+        return fetch(restclient, key, legacy, startAt, maxResults);
+    }
+
+    /**
+     * Fetches a page of history on the calling thread.
+     *
+     * @param restclient REST client instance
+     * @param key Issue key or id
+     * @param legacy Whether to read from the expanded issue instead of the
+     * changelog endpoint
+     * @param startAt Index of the first entry
+     * @param maxResults Page size
+     *
+     * @return the decoded page or null when the response had no content
+     */
+    static Page fetch(RestClient restclient, String key, boolean legacy, int startAt, int maxResults)
+            throws Exception {
+
+        Map<String, String> params = new HashMap<String, String>();
+        params.put("startAt", String.valueOf(startAt));
+        params.put("maxResults", String.valueOf(maxResults));
+
+        String path = Resource.getBaseUri() + "issue/" + key;
+
+        if (legacy)
+            params.put("expand", Field.CHANGE_LOG);
+        else
+            path += "/changelog";
+
+        URI uri = restclient.buildURI(path, params);
+        String json = restclient.get(uri);
+
+        if (json == null)
+            return null;
+
+        return new Page(restclient, JsonUtil.OBJECT_MAPPER.readValue(json, Map.class));
+    }
+
+    /**
+     * A decoded page of history entries. The changelog endpoint returns
+     * them as <code>values</code>, an issue expanded with its changelog as
+     * <code>changelog.histories</code>.
+     */
+    static final class Page {
+
+        final int startAt;
+        final int maxResults;
+        final int total;
+        final List<IssueHistory> values;
+
+        Page(RestClient restclient, Map json) {
+            Map page = json.get(Field.CHANGE_LOG) instanceof Map ? (Map) json.get(Field.CHANGE_LOG) : json;
+            Object entries = page.containsKey("values") ? page.get("values") : page.get("histories");
+
+            startAt = Field.getInteger(page.get("startAt"));
+            maxResults = Field.getInteger(page.get("maxResults"));
+            total = Field.getInteger(page.get("total"));
+            values = new ArrayList<IssueHistory>();
+
+            if (entries instanceof List) {
+                for (Object entry : (List) entries) {
+                    if (entry instanceof Map)
+                        values.add(new IssueHistory(restclient, (Map) entry));
+                }
+            }
+        }
+    }
+}
@@ -19,9 +19,12 @@
 
 package net.rcarz.jiraclient;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
 import net.rcarz.jiraclient.util.JsonUtil;
 import net.sf.json.JSONObject;
 
+import java.io.IOException;
 import java.util.Map;
 
 /**
@@ -161,6 +164,20 @@ public class Component extends Resource {
         isAssigneeTypeValid = Field.getBoolean(map.get("isAssigneeTypeValid"));
     }
 
+    @Override
+    boolean readField(String name, JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (name.equals("name"))
+            this.name = JsonBinding.readString(p);
+        else if (name.equals("description"))
+            description = JsonBinding.readString(p);
+        else if (name.equals("isAssigneeTypeValid"))
+            isAssigneeTypeValid = JsonBinding.readBoolean(p);
+        else
+            return super.readField(name, p, ctxt);
+
+        return true;
+    }
+
     /**
      * Retrieves the given component record.
      *
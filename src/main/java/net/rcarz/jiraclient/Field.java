@@ -19,13 +19,19 @@
 
 package net.rcarz.jiraclient;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import net.sf.json.JSONNull;
 import net.sf.json.JSONObject;
 import org.apache.commons.collections.MapUtils;
 
+import java.io.IOException;
 import java.sql.Timestamp;
 import java.text.ParsePosition;
-import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 /**
@@ -65,6 +71,46 @@ public final class Field {
         }
     }
 
+    /**
+     * Creates a resource instance from its JSON representation.
+     *
+     * @param <T> Resource data type
+     */
+    public interface ResourceFactory<T extends Resource> {
+
+        /**
+         * Creates a new resource.
+         *
+         * @param restclient REST client instance
+         * @param json JSON payload (never null or empty)
+         * @param parentId id/key of the parent resource or null
+         *
+         * @return a Resource instance or null to skip the value
+         */
+        T create(RestClient restclient, Map json, String parentId);
+    }
+
+    /**
+     * Checks a field value and binds it to the field, so that every value
+     * of a request is checked before its body is written.
+     */
+    interface Encoder {
+
+        /**
+         * Checks a value and binds it to the field.
+         *
+         * @param name Field name
+         * @param value New field value
+         *
+         * @return a writer of the field name and value
+         *
+         * @throws JiraException when the value is bad
+         * @throws UnsupportedOperationException when the field type isn't
+         * supported
+         */
+        JsonEntity.Writer bind(String name, Object value) throws JiraException;
+    }
+
     /**
      * Allowed value types.
      */
@@ -149,8 +195,90 @@ public final class Field {
     public static final String DATETIME_FORMAT_ZTIMEZONE = "yyyy-MM-dd'T'HH:mm:ss.SSSZ";
     public static final String DATETIME_FORMAT_XTIMEZONE = "yyyy-MM-dd'T'HH:mm:ss.SSSX";
 
+    /* formatters are immutable and thread-safe, so they are built once and shared */
+    private static final DateTimeFormatter DATE_FORMATTER =
+            DateTimeFormatter.ofPattern(DATE_FORMAT);
+    private static final DateTimeFormatter DATETIME_FORMATTER_ZTIMEZONE =
+            DateTimeFormatter.ofPattern(DATETIME_FORMAT_ZTIMEZONE);
+    private static final DateTimeFormatter DATETIME_FORMATTER_XTIMEZONE =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS[XXX][XX][X]");
+
+    /* copy-on-write, lookups are lock-free and registrations are rare */
+    private static volatile Map<Class<?>, ResourceFactory<?>> resourceFactories =
+            defaultResourceFactories();
+
     private Field() { }
 
+    private static Map<Class<?>, ResourceFactory<?>> defaultResourceFactories() {
+        Map<Class<?>, ResourceFactory<?>> m = new IdentityHashMap<Class<?>, ResourceFactory<?>>();
+
+        m.put(Attachment.class, (rc, json, parentId) -> new Attachment(rc, json));
+        m.put(ChangeLog.class, (rc, json, parentId) -> new ChangeLog(rc, json));
+        m.put(ChangeLogEntry.class, (rc, json, parentId) -> new ChangeLogEntry(rc, json));
+        m.put(ChangeLogItem.class, (rc, json, parentId) -> new ChangeLogItem(rc, json));
+        m.put(Comment.class, (rc, json, parentId) -> new Comment(rc, json, parentId));
+        m.put(Component.class, (rc, json, parentId) -> new Component(rc, json));
+        m.put(CustomFieldOption.class, (rc, json, parentId) -> new CustomFieldOption(rc, json));
+        m.put(Issue.class, (rc, json, parentId) -> new Issue(rc, json));
+        m.put(IssueLink.class, (rc, json, parentId) -> new IssueLink(rc, json));
+        m.put(IssueType.class, (rc, json, parentId) -> new IssueType(rc, json));
+        m.put(LinkType.class, (rc, json, parentId) -> new LinkType(rc, json));
+        m.put(Priority.class, (rc, json, parentId) -> new Priority(rc, json));
+        m.put(Project.class, (rc, json, parentId) -> new Project(rc, json));
+        m.put(ProjectCategory.class, (rc, json, parentId) -> new ProjectCategory(rc, json));
+        m.put(RemoteLink.class, (rc, json, parentId) -> new RemoteLink(rc, json));
+        m.put(Resolution.class, (rc, json, parentId) -> new Resolution(rc, json));
+        m.put(Status.class, (rc, json, parentId) -> new Status(rc, json));
+        m.put(Transition.class, (rc, json, parentId) -> new Transition(rc, json));
+        m.put(User.class, (rc, json, parentId) -> new User(rc, json));
+        m.put(Version.class, (rc, json, parentId) -> new Version(rc, json));
+        m.put(Votes.class, (rc, json, parentId) -> new Votes(rc, json));
+        m.put(Watches.class, (rc, json, parentId) -> new Watches(rc, json));
+        m.put(WorkLog.class, (rc, json, parentId) -> new WorkLog(rc, json));
+        m.put(StatusCategory.class, (rc, json, parentId) -> new StatusCategory(rc, json));
+
+        return m;
+    }
+
+    /**
+     * Registers the factory used by {@link #getResource} to build resources
+     * of the given type. Registering a type that is already known replaces
+     * the existing factory, e.g. to plug in a lighter-weight subclass.
+     *
+     * @param type Resource data type
+     * @param factory Factory creating instances of type
+     */
+    public static synchronized <T extends Resource> void registerResourceFactory(
+            Class<T> type, ResourceFactory<? extends T> factory) {
+
+        if (type == null || factory == null)
+            throw new NullPointerException("type and factory may not be null");
+
+        Map<Class<?>, ResourceFactory<?>> m =
+                new IdentityHashMap<Class<?>, ResourceFactory<?>>(resourceFactories);
+        m.put(type, factory);
+        resourceFactories = m;
+    }
+
+    /**
+     * Removes a resource factory and restores the built-in one, if any.
+     *
+     * @param type Resource data type
+     */
+    public static synchronized void unregisterResourceFactory(Class<? extends Resource> type) {
+        Map<Class<?>, ResourceFactory<?>> m =
+                new IdentityHashMap<Class<?>, ResourceFactory<?>>(resourceFactories);
+        ResourceFactory<?> builtin = defaultResourceFactories().get(type);
+
+        if (builtin != null)
+            m.put(type, builtin);
+        else
+            m.remove(type);
+
+        resourceFactories = m;
+    }
+
+
     /**
      * Gets a boolean value from the given object.
      *
@@ -236,10 +364,8 @@ public final class Field {
     public static Date getDate(Object d) {
         Date result = null;
 
-        if (d instanceof String) {
-            SimpleDateFormat df = new SimpleDateFormat(DATE_FORMAT);
-            result = df.parse((String)d, new ParsePosition(0));
-        }
+        if (d instanceof String)
+            result = parseDate((String)d);
 
         return result;
     }
@@ -252,7 +378,7 @@ public final class Field {
      * @return a Date instance or null if d isn't a string
      */
     public static Date getDateTime(Object d) {
-        return getDateTime(d, DATETIME_FORMAT_ZTIMEZONE);
+        return getDateTime(d, DATETIME_FORMATTER_ZTIMEZONE);
     }
 
     /**
@@ -264,28 +390,61 @@ public final class Field {
      * @return a Date instance or null if d isn't a string
      */
     public static Date getDateTimeSprint(Object d) {
-        return getDateTime(d, DATETIME_FORMAT_XTIMEZONE);
+        return getDateTime(d, DATETIME_FORMATTER_XTIMEZONE);
     }
 
     /**
      * Gets a date with a time from the given object.
      *
      * @param d a string representation of a date
-     * @param pattern the pattern that to be used do parse de string
+     * @param formatter the formatter to be used to parse the string
      *
      * @return a Date instance or null if d isn't a string
      */
-    private static Date getDateTime(Object d, String pattern) {
+    private static Date getDateTime(Object d, DateTimeFormatter formatter) {
         Date result = null;
 
-        if (d instanceof String) {
-            SimpleDateFormat df = new SimpleDateFormat(pattern);
-            result = df.parse((String)d, new ParsePosition(0));
-        }
+        if (d instanceof String)
+            result = parseDateTime((String)d, formatter);
 
         return result;
     }
 
+    /**
+     * Parses a date (without time) at the start of the given string. Any
+     * trailing text is ignored and the date is taken at midnight in the
+     * default time zone.
+     *
+     * @param s a string starting with a date
+     *
+     * @return a Date instance or null if s can't be parsed
+     */
+    private static Date parseDate(String s) {
+        try {
+            LocalDate ld = LocalDate.from(DATE_FORMATTER.parse(s, new ParsePosition(0)));
+            return Date.from(ld.atStartOfDay(ZoneId.systemDefault()).toInstant());
+        } catch (DateTimeException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Parses a date with a time and zone offset at the start of the given
+     * string. Any trailing text is ignored.
+     *
+     * @param s a string starting with a date and time
+     * @param formatter the formatter to be used to parse the string
+     *
+     * @return a Date instance or null if s can't be parsed
+     */
+    private static Date parseDateTime(String s, DateTimeFormatter formatter) {
+        try {
+            return Date.from(Instant.from(formatter.parse(s, new ParsePosition(0))));
+        } catch (DateTimeException ex) {
+            return null;
+        }
+    }
+
     /**
      * Gets an floating-point number from the given object.
      *
@@ -385,6 +544,9 @@ public final class Field {
      * @param parentId id/key of the parent resource
      *
      * @return a Resource instance or null if r isn't a JSONObject instance
+     * or no factory is registered for type
+     *
+     * @see #registerResourceFactory(Class, ResourceFactory)
      */
     public static <T extends Resource> T getResource(
             Class<T> type, Object r, RestClient restclient, String parentId) {
@@ -392,54 +554,13 @@ public final class Field {
         T result = null;
 
         if (r instanceof Map && ((MapUtils.isNotEmpty((Map) r)))) {
-            if (type==Attachment.class)
-                result = (T) new Attachment(restclient, (Map) r);
-            else if (type==ChangeLog.class)
-                result = (T) new ChangeLog(restclient, (Map) r);
-            else if (type==ChangeLogEntry.class)
-                result = (T) new ChangeLogEntry(restclient, (Map) r);
-            else if (type==ChangeLogItem.class)
-                result = (T) new ChangeLogItem(restclient, (Map) r);
-            else if (type==Comment.class)
-                result = (T) new Comment(restclient, (Map) r, parentId);
-            else if (type==Component.class)
-                result = (T) new Component(restclient, (Map) r);
-            else if (type==CustomFieldOption.class)
-                result = (T) new CustomFieldOption(restclient, (Map) r);
-            else if (type==Issue.class)
-                result = (T) new Issue(restclient, (Map) r);
-            else if (type==IssueLink.class)
-                result = (T) new IssueLink(restclient, (Map) r);
-            else if (type==IssueType.class)
-                result = (T) new IssueType(restclient, (Map) r);
-            else if (type==LinkType.class)
-                result = (T) new LinkType(restclient, (Map) r);
-            else if (type==Priority.class)
-                result = (T) new Priority(restclient, (Map) r);
-            else if (type==Project.class)
-                result = (T) new Project(restclient, (Map) r);
-            else if (type==ProjectCategory.class)
-                result = (T) new ProjectCategory(restclient, (Map) r);
-            else if (type==RemoteLink.class)
-                result = (T) new RemoteLink(restclient, (Map) r);
-            else if (type==Resolution.class)
-                result = (T) new Resolution(restclient, (Map) r);
-            else if (type==Status.class)
-                result = (T) new Status(restclient, (Map) r);
-            else if (type==Transition.class)
-                result = (T) new Transition(restclient, (Map) r);
-            else if (type==User.class)
-                result = (T) new User(restclient, (Map) r);
-            else if (type==Version.class)
-                result = (T) new Version(restclient, (Map) r);
-            else if (type==Votes.class)
-                result = (T) new Votes(restclient, (Map) r);
-            else if (type==Watches.class)
-                result = (T) new Watches(restclient, (Map) r);
-            else if (type==WorkLog.class)
-                result = (T) new WorkLog(restclient, (Map) r);
-            else if (type==StatusCategory.class)
-                result = (T) new StatusCategory(restclient, (Map) r);
+            ResourceFactory<?> factory = resourceFactories.get(type);
+            ResourcePool pool = restclient != null ? restclient.getResourcePool() : null;
+
+            if (factory != null && pool != null && pool.accepts(type))
+                result = pool.intern(type, (Map) r, () -> (T) factory.create(restclient, (Map) r, parentId));
+            else if (factory != null)
+                result = (T) factory.create(restclient, (Map) r, parentId);
         }
 
         return result;
@@ -629,11 +750,10 @@ public final class Field {
             return (Date)value;
 
         String dateStr = value.toString();
-        SimpleDateFormat df = new SimpleDateFormat(DATE_FORMAT);
-        if (dateStr.length() > DATE_FORMAT.length()) {
-            df = new SimpleDateFormat(DATETIME_FORMAT_ZTIMEZONE);
-        }
-        return df.parse(dateStr, new ParsePosition(0));
+        if (dateStr.length() > DATE_FORMAT.length())
+            return parseDateTime(dateStr, DATETIME_FORMATTER_ZTIMEZONE);
+
+        return parseDate(dateStr);
     }
 
     /**
@@ -730,16 +850,16 @@ public final class Field {
             if (d == null)
                 throw new JiraException("Field '" + name + "' expects a date value or format is invalid");
 
-            SimpleDateFormat df = new SimpleDateFormat(DATE_FORMAT);
-            return df.format(d);
+            return DATE_FORMATTER.format(
+                    Instant.ofEpochMilli(d.getTime()).atZone(ZoneId.systemDefault()));
         } else if (m.type.equals("datetime")) {
             if (value == null)
                 return JSONNull.getInstance();
             else if (!(value instanceof Timestamp))
                 throw new JiraException("Field '" + name + "' expects a Timestamp value");
 
-            SimpleDateFormat df = new SimpleDateFormat(DATETIME_FORMAT_ZTIMEZONE);
-            return df.format(value);
+            return DATETIME_FORMATTER_ZTIMEZONE.format(
+                    Instant.ofEpochMilli(((Timestamp)value).getTime()).atZone(ZoneId.systemDefault()));
         } else if (m.type.equals("issuetype") || m.type.equals("priority") ||
                 m.type.equals("user") || m.type.equals("resolution")) {
             JSONObject json = new JSONObject();
@@ -795,6 +915,310 @@ public final class Field {
         throw new UnsupportedOperationException(m.type + " is not a supported field type");
     }
 
+    /**
+     * Writes the given value as a named JSON field. This is the streaming
+     * counterpart of {@link #toJson(String, Object, Map)}.
+     *
+     * @param gen JSON generator positioned inside an object
+     * @param name Field name
+     * @param value New field value
+     * @param editmeta Edit metadata JSON object
+     *
+     * @throws JiraException when a value is bad or field has invalid metadata
+     * @throws UnsupportedOperationException when a field type isn't supported
+     * @throws IOException when writing fails
+     */
+    public static void writeJson(JsonGenerator gen, String name, Object value, Map editmeta)
+            throws JiraException, IOException {
+
+        getEncoder(name, getFieldMetadata(name, editmeta)).bind(name, value).write(gen);
+    }
+
+    /**
+     * Chooses the encoder for a field based on its metadata. The choice is
+     * made once, so callers can keep the encoder for repeated writes.
+     *
+     * @param name Field name
+     * @param m Field metadata
+     *
+     * @return an encoder for values of the field
+     *
+     * @throws JiraException when the field has invalid metadata
+     */
+    static Encoder getEncoder(String name, Meta m) throws JiraException {
+        if (m.type == null)
+            throw new JiraException("Field '" + name + "' is missing metadata type");
+
+        switch (m.type) {
+            case "array":
+                return arrayEncoder(m.items, m.custom);
+            case "date":
+                return Field::bindDate;
+            case "datetime":
+                return Field::bindDateTime;
+            case "issuetype":
+            case "priority":
+            case "user":
+            case "resolution":
+                return (n, value) -> gen -> {
+                    gen.writeFieldName(n);
+                    writeReference(gen, value, ValueType.NAME);
+                };
+            case "project":
+            case "issuelink":
+                return (n, value) -> gen -> {
+                    gen.writeFieldName(n);
+                    writeReference(gen, value, ValueType.KEY);
+                };
+            case "string":
+            case "securitylevel":
+                return (n, value) -> gen -> writeStringValue(gen, n, value);
+            case "timetracking":
+                return Field::bindTimeTracking;
+            case "number":
+                return Field::bindNumber;
+            default:
+                return (n, value) -> {
+                    throw new UnsupportedOperationException(m.type + " is not a supported field type");
+                };
+        }
+    }
+
+    private static Encoder arrayEncoder(String type, String custom) {
+        if (type == null) {
+            return (n, value) -> {
+                throw new JiraException("Array field metadata is missing item type");
+            };
+        }
+
+        boolean named = type.equals("component") || type.equals("group") ||
+                type.equals("user") || type.equals("version");
+        boolean valued = type.equals("option") ||
+                (type.equals("string") && custom != null
+                        && (custom.equals("com.atlassian.jira.plugin.system.customfieldtypes:multicheckboxes") ||
+                        custom.equals("com.atlassian.jira.plugin.system.customfieldtypes:multiselect")));
+        boolean string = type.equals("string");
+
+        return (n, value) -> {
+            if (value != null && !(value instanceof Iterable))
+                throw new JiraException("Field '" + n + "' expects an Iterable value");
+
+            Iterable iter = value != null ? (Iterable)value : Collections.emptyList();
+
+            return gen -> {
+                gen.writeFieldName(n);
+                writeArray(gen, iter, named, valued, string);
+            };
+        };
+    }
+
+    private static JsonEntity.Writer bindDate(String name, Object value) throws JiraException {
+        Date d = toDate(value);
+        if (value != null && d == null)
+            throw new JiraException("Field '" + name + "' expects a date value or format is invalid");
+
+        return gen -> {
+            gen.writeFieldName(name);
+            if (d == null)
+                gen.writeNull();
+            else
+                gen.writeString(DATE_FORMATTER.format(
+                        Instant.ofEpochMilli(d.getTime()).atZone(ZoneId.systemDefault())));
+        };
+    }
+
+    private static JsonEntity.Writer bindDateTime(String name, Object value) throws JiraException {
+        if (value != null && !(value instanceof Timestamp))
+            throw new JiraException("Field '" + name + "' expects a Timestamp value");
+
+        return gen -> {
+            gen.writeFieldName(name);
+            if (value == null)
+                gen.writeNull();
+            else
+                gen.writeString(DATETIME_FORMATTER_ZTIMEZONE.format(
+                        Instant.ofEpochMilli(((Timestamp)value).getTime()).atZone(ZoneId.systemDefault())));
+        };
+    }
+
+    private static void writeStringValue(JsonGenerator gen, String name, Object value)
+            throws IOException {
+
+        gen.writeFieldName(name);
+
+        if (value == null)
+            gen.writeString("");
+        else if (value instanceof List)
+            writeJsonMap(gen, (List)value);
+        else if (value instanceof ValueTuple) {
+            gen.writeStartObject();
+            writeTuple(gen, (ValueTuple)value);
+            gen.writeEndObject();
+        } else
+            gen.writeString(value.toString());
+    }
+
+    private static JsonEntity.Writer bindTimeTracking(String name, Object value) {
+        if (value != null && !(value instanceof TimeTracking))
+            throw new UnsupportedOperationException("timetracking is not a supported field type");
+
+        return gen -> {
+            gen.writeFieldName(name);
+
+            if (value == null)
+                gen.writeNull();
+            else
+                ((TimeTracking)value).writeJson(gen);
+        };
+    }
+
+    private static JsonEntity.Writer bindNumber(String name, Object value) throws JiraException {
+        if (!(value instanceof java.lang.Integer) && !(value instanceof java.lang.Double) && !(value
+                instanceof java.lang.Float) && !(value instanceof java.lang.Long))
+            throw new JiraException("Field '" + name + "' expects a Numeric value");
+
+        return gen -> {
+            gen.writeFieldName(name);
+            if (value instanceof java.lang.Integer)
+                gen.writeNumber((Integer)value);
+            else if (value instanceof java.lang.Long)
+                gen.writeNumber((Long)value);
+            else if (value instanceof java.lang.Float)
+                gen.writeNumber((Float)value);
+            else
+                gen.writeNumber((Double)value);
+        };
+    }
+
+    /**
+     * Writes an iterable type as a JSON array, the streaming counterpart of
+     * {@link #toArray(Iterable, String, String)}.
+     */
+    private static void writeArray(JsonGenerator gen, Iterable iter, boolean named, boolean valued,
+            boolean string) throws IOException {
+
+        gen.writeStartArray();
+
+        for (Object val : iter) {
+            Operation oper = null;
+            Object realValue = val;
+
+            if (val instanceof Operation) {
+                oper = (Operation)val;
+                realValue = oper.value;
+
+                gen.writeStartObject();
+                gen.writeFieldName(oper.name);
+            }
+
+            if (named) {
+                gen.writeStartObject();
+
+                if (realValue instanceof ValueTuple)
+                    writeTuple(gen, (ValueTuple)realValue);
+                else
+                    gen.writeStringField(ValueType.NAME.toString(), realValue.toString());
+
+                gen.writeEndObject();
+            } else if (valued) {
+                gen.writeStartObject();
+                gen.writeStringField(ValueType.VALUE.toString(), realValue.toString());
+                gen.writeEndObject();
+            } else if (string)
+                gen.writeString(realValue.toString());
+            else
+                gen.writeNull();
+
+            if (oper != null)
+                gen.writeEndObject();
+        }
+
+        gen.writeEndArray();
+    }
+
+    /**
+     * Writes a reference to another resource, e.g. {"name": value}.
+     */
+    private static void writeReference(JsonGenerator gen, Object value, ValueType defaultType)
+            throws IOException {
+
+        if (value == null) {
+            gen.writeNull();
+            return;
+        }
+
+        gen.writeStartObject();
+
+        if (value instanceof ValueTuple)
+            writeTuple(gen, (ValueTuple)value);
+        else
+            gen.writeStringField(defaultType.toString(), value.toString());
+
+        gen.writeEndObject();
+    }
+
+    /**
+     * Tells whether a value stands for JSON null, which value tuples hold
+     * as JSONNull.
+     */
+    private static boolean isNull(Object value) {
+        return value == null || value instanceof JSONNull;
+    }
+
+    /**
+     * Writes a value tuple as a field of the current object.
+     */
+    private static void writeTuple(JsonGenerator gen, ValueTuple tuple) throws IOException {
+        if (isNull(tuple.value))
+            gen.writeNullField(tuple.type);
+        else
+            gen.writeStringField(tuple.type, tuple.value.toString());
+    }
+
+    /**
+     * Writes the given list as a JSON object, the streaming counterpart of
+     * {@link #toJsonMap(List)}.
+     */
+    private static void writeJsonMap(JsonGenerator gen, List list) throws IOException {
+        Map<String, Object> json = new LinkedHashMap<String, Object>();
+
+        /* later items win, just like repeated puts */
+        for (Object item : list) {
+            if (item instanceof ValueTuple) {
+                ValueTuple vt = (ValueTuple)item;
+                json.put(vt.type, vt.value);
+            } else
+                json.put(ValueType.VALUE.toString(), item);
+        }
+
+        gen.writeStartObject();
+
+        for (Map.Entry<String, Object> ent : json.entrySet())
+            writeTuple(gen, new ValueTuple(ent.getKey(), ent.getValue()));
+
+        gen.writeEndObject();
+    }
+
+    /**
+     * Writes a raw field value as passed by the caller, without consulting
+     * field metadata. Value tuples become {"type": value} objects.
+     *
+     * @param gen JSON generator
+     * @param value Field value
+     *
+     * @throws IOException when writing fails
+     */
+    public static void writeValue(JsonGenerator gen, Object value) throws IOException {
+        if (isNull(value))
+            gen.writeNull();
+        else if (value instanceof ValueTuple) {
+            gen.writeStartObject();
+            writeTuple(gen, (ValueTuple)value);
+            gen.writeEndObject();
+        } else
+            gen.writeObject(value);
+    }
+
     /**
      * Converts the given map to a JSON object.
      *
@@ -0,0 +1,161 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Field metadata (editmeta or createmeta) compiled into one encoder per
+ * field. Plans are immutable and may be shared between threads and reused
+ * for any number of create or update actions.
+ */
+public final class FieldPlan {
+
+    private final Map<String, Field.Encoder> encoders;
+
+    private FieldPlan(Map<String, Field.Encoder> encoders) {
+        this.encoders = encoders;
+    }
+
+    /**
+     * Compiles field metadata into a plan.
+     * <p>
+     * Fields with bad metadata don't fail the compilation. They fail with
+     * the same error as {@link Field#toJson} when a value is written.
+     *
+     * @param meta Edit or create metadata JSON object, keyed by field name
+     *
+     * @return a field plan
+     */
+    public static FieldPlan compile(Map meta) {
+        Map<String, Field.Encoder> encoders = new HashMap<String, Field.Encoder>();
+
+        if (meta != null) {
+            for (Object key : meta.keySet()) {
+                String name = key.toString();
+                encoders.put(name, compile(name, meta));
+            }
+        }
+
+        return new FieldPlan(encoders);
+    }
+
+    private static Field.Encoder compile(String name, Map meta) {
+        try {
+            return Field.getEncoder(name, Field.getFieldMetadata(name, meta));
+        } catch (final JiraException ex) {
+            return (n, value) -> {
+                throw new JiraException(ex.getMessage());
+            };
+        }
+    }
+
+    /**
+     * Checks whether the plan covers a field.
+     *
+     * @param name Field name
+     *
+     * @return true if the field can be written
+     */
+    public boolean contains(String name) {
+        return encoders.containsKey(name);
+    }
+
+    /**
+     * Gets the names of the fields the plan covers.
+     *
+     * @return an unmodifiable set of field names
+     */
+    public Set<String> getFieldNames() {
+        return Collections.unmodifiableSet(encoders.keySet());
+    }
+
+    /**
+     * Checks the given value and binds it to a field.
+     *
+     * @param name Field name
+     * @param value New field value
+     *
+     * @return a writer of the named JSON field
+     *
+     * @throws JiraException when a value is bad or field has invalid metadata
+     * @throws UnsupportedOperationException when a field type isn't supported
+     */
+    public JsonEntity.Writer bind(String name, Object value) throws JiraException {
+        Field.Encoder encoder = encoders.get(name);
+        if (encoder == null)
+            throw new JiraException("Field '" + name + "' does not exist or read-only");
+
+        return encoder.bind(name, value);
+    }
+
+    /**
+     * Checks all given values and binds them to their fields. Nothing is
+     * written until every value has been checked, so a bad value fails
+     * before a request is sent.
+     *
+     * @param fields Field values keyed by field name
+     *
+     * @return a writer of a JSON object holding the fields
+     *
+     * @throws JiraException when a value is bad or field has invalid metadata
+     * @throws UnsupportedOperationException when a field type isn't supported
+     */
+    public JsonEntity.Writer bind(Map<String, ?> fields) throws JiraException {
+        final List<JsonEntity.Writer> writers = new ArrayList<JsonEntity.Writer>(fields.size());
+
+        for (Map.Entry<String, ?> ent : fields.entrySet())
+            writers.add(bind(ent.getKey(), ent.getValue()));
+
+        return gen -> {
+            gen.writeStartObject();
+
+            for (JsonEntity.Writer writer : writers)
+                writer.write(gen);
+
+            gen.writeEndObject();
+        };
+    }
+
+    /**
+     * Writes the given value as a named JSON field.
+     *
+     * @param gen JSON generator positioned inside an object
+     * @param name Field name
+     * @param value New field value
+     *
+     * @throws JiraException when a value is bad or field has invalid metadata
+     * @throws UnsupportedOperationException when a field type isn't supported
+     * @throws IOException when writing fails
+     */
+    public void write(JsonGenerator gen, String name, Object value)
+            throws JiraException, IOException {
+
+        bind(name, value).write(gen);
+    }
+}
@@ -20,15 +20,25 @@
 package net.rcarz.jiraclient;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
 import net.rcarz.jiraclient.JiraClient.JqlValidateParameter;
 import net.rcarz.jiraclient.util.JsonUtil;
 import net.sf.json.JSONObject;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Represents a JIRA issue.
@@ -42,11 +52,11 @@ public class Issue extends Resource {
 
         Map<String, Object> fields = new HashMap<String, Object>();
         RestClient restclient = null;
-        Map createmeta = null;
+        FieldPlan plan = null;
 
-        private FluentCreate(RestClient restclient, Map createmeta) {
+        private FluentCreate(RestClient restclient, FieldPlan plan) {
             this.restclient = restclient;
-            this.createmeta = createmeta;
+            this.plan = plan;
         }
 
         /**
@@ -93,24 +103,20 @@ public class Issue extends Resource {
          * @throws JiraException when the create fails
          */
         private Issue executeCreate(String includedFields) throws JiraException {
-            JSONObject fieldmap = new JSONObject();
-
             if (fields.size() == 0) {
                 throw new JiraException("No fields were given for create");
             }
 
-            for (Map.Entry<String, Object> ent : fields.entrySet()) {
-                Object newval = Field.toJson(ent.getKey(), ent.getValue(), createmeta);
-                fieldmap.put(ent.getKey(), newval);
-            }
-
-            JSONObject req = new JSONObject();
-            req.put("fields", fieldmap);
-
+            JsonEntity.Writer fieldWriter = plan.bind(fields);
             Map result = null;
 
             try {
-                String resultJson = restclient.post(getRestUri(null), req);
+                String resultJson = restclient.postStreaming(getRestUri(null), gen -> {
+                    gen.writeStartObject();
+                    gen.writeFieldName("fields");
+                    fieldWriter.write(gen);
+                    gen.writeEndObject();
+                });
                 if (resultJson!=null) {
                     result = JsonUtil.OBJECT_MAPPER.readValue(resultJson, Map.class);
                 }
@@ -153,15 +159,15 @@ public class Issue extends Resource {
 
         final private RestClient restclient;
         final private String key;
-        final private JSONObject request;
-        final private JSONObject object;
+        final private Map<String, Object> request;
+        final private Map<String, Object> object;
 
 
         private FluentRemoteLink(final RestClient restclient, String key) {
             this.restclient = restclient;
             this.key = key;
-            request = new JSONObject();
-            object = new JSONObject();
+            request = new LinkedHashMap<String, Object>();
+            object = new LinkedHashMap<String, Object>();
         }
 
 
@@ -208,7 +214,7 @@ public class Issue extends Resource {
          * @return this instance
          */
         public FluentRemoteLink icon(final String url, final String title) {
-            final JSONObject icon = new JSONObject();
+            final Map<String, Object> icon = new LinkedHashMap<String, Object>();
             icon.put("url16x16", url);
             icon.put("title", title);
             object.put("icon", icon);
@@ -225,9 +231,9 @@ public class Issue extends Resource {
          * @return this instance
          */
         public FluentRemoteLink status(final boolean resolved, final String iconUrl, final String title, final String statusUrl) {
-            final JSONObject status = new JSONObject();
+            final Map<String, Object> status = new LinkedHashMap<String, Object>();
             status.put("resolved", Boolean.toString(resolved));
-            final JSONObject icon = new JSONObject();
+            final Map<String, Object> icon = new LinkedHashMap<String, Object>();
             icon.put("title", title);
             if (iconUrl != null) {
                 icon.put("url16x16", iconUrl);
@@ -273,7 +279,7 @@ public class Issue extends Resource {
          * @return this instance
          */
         public FluentRemoteLink application(final String type, final String name) {
-            final JSONObject application = new JSONObject();
+            final Map<String, Object> application = new LinkedHashMap<String, Object>();
             if (type != null) {
                 application.put("type", type);
             }
@@ -291,7 +297,7 @@ public class Issue extends Resource {
         public void create() throws JiraException {
             try {
                 request.put("object", object);
-                restclient.post(getRestUri(key) + "/remotelink", request);
+                restclient.postStreaming(getRestUri(key) + "/remotelink", gen -> gen.writeObject(request));
             } catch (Exception ex) {
                 throw new JiraException("Failed add remote link to issue " + key, ex);
             }
@@ -336,10 +342,10 @@ public class Issue extends Resource {
 
         Map<String, Object> fields = new HashMap<String, Object>();
         Map<String, List> fieldOpers = new HashMap<String, List>();
-        Map editmeta = null;
+        FieldPlan plan = null;
 
-        private FluentUpdate(Map editmeta) {
-            this.editmeta = editmeta;
+        private FluentUpdate(FieldPlan plan) {
+            this.plan = plan;
         }
 
         /**
@@ -348,32 +354,28 @@ public class Issue extends Resource {
          * @throws JiraException when the update fails
          */
         public void execute() throws JiraException {
-            JSONObject fieldmap = new JSONObject();
-            JSONObject updatemap = new JSONObject();
-
             if (fields.size() == 0 && fieldOpers.size() == 0)
                 throw new JiraException("No fields were given for update");
 
-            for (Map.Entry<String, Object> ent : fields.entrySet()) {
-                Object newval = Field.toJson(ent.getKey(), ent.getValue(), editmeta);
-                fieldmap.put(ent.getKey(), newval);
-            }
-
-            for (Map.Entry<String, List> ent : fieldOpers.entrySet()) {
-                Object newval = Field.toJson(ent.getKey(), ent.getValue(), editmeta);
-                updatemap.put(ent.getKey(), newval);
-            }
+            JsonEntity.Writer fieldWriter = plan.bind(fields);
+            JsonEntity.Writer operWriter = plan.bind(fieldOpers);
 
-            JSONObject req = new JSONObject();
+            try {
+                restclient.putStreaming(getRestUri(key), gen -> {
+                    gen.writeStartObject();
 
-            if (fieldmap.size() > 0)
-                req.put("fields", fieldmap);
+                    if (fields.size() > 0) {
+                        gen.writeFieldName("fields");
+                        fieldWriter.write(gen);
+                    }
 
-            if (updatemap.size() > 0)
-                req.put("update", updatemap);
+                    if (fieldOpers.size() > 0) {
+                        gen.writeFieldName("update");
+                        operWriter.write(gen);
+                    }
 
-            try {
-                restclient.put(getRestUri(key), req);
+                    gen.writeEndObject();
+                });
             } catch (Exception ex) {
                 throw new JiraException("Failed to update issue " + key, ex);
             }
@@ -460,24 +462,27 @@ public class Issue extends Resource {
             if (trans == null || trans.getFields() == null)
                 throw new JiraException("Transition is missing fields");
 
-            JSONObject fieldmap = new JSONObject();
-
-            for (Map.Entry<String, Object> ent : fields.entrySet()) {
-                fieldmap.put(ent.getKey(), ent.getValue());
-            }
+            try {
+                restclient.postStreaming(getRestUri(key) + "/transitions", gen -> {
+                    gen.writeStartObject();
 
-            JSONObject req = new JSONObject();
+                    if (fields.size() > 0) {
+                        gen.writeObjectFieldStart("fields");
 
-            if (fieldmap.size() > 0)
-                req.put("fields", fieldmap);
+                        for (Map.Entry<String, Object> ent : fields.entrySet()) {
+                            gen.writeFieldName(ent.getKey());
+                            Field.writeValue(gen, ent.getValue());
+                        }
 
-            JSONObject t = new JSONObject();
-            t.put("id", Field.getString(trans.getId()));
+                        gen.writeEndObject();
+                    }
 
-            req.put("transition", t);
+                    gen.writeObjectFieldStart("transition");
+                    gen.writeStringField("id", Field.getString(trans.getId()));
+                    gen.writeEndObject();
 
-            try {
-                restclient.post(getRestUri(key) + "/transitions", req);
+                    gen.writeEndObject();
+                });
             } catch (Exception ex) {
                 throw new JiraException("Failed to transition issue " + key, ex);
             }
@@ -534,10 +539,11 @@ public class Issue extends Resource {
     /**
      * Iterates over all issues in the query by getting the next page of
      * issues when the iterator reaches the last of the current page.
+     * Closing the iterator cancels the prefetch of the next page.
      */
-    private static class IssueIterator implements Iterator<Issue> {
+    private static class IssueIterator implements Iterator<Issue>, Closeable {
 
-        private Iterator<Issue> currentPage;
+        private ArrayDeque<Issue> currentPage;
         private RestClient restclient;
         private Issue nextIssue;
         private Integer maxResults = -1;
@@ -547,15 +553,39 @@ public class Issue extends Resource {
         private String expandFields;
         private Integer startAt;
         private List<Issue> issues;
+        private int pageCount = -1;
+        private boolean retainPage;
         private int total;
         private JqlValidateParameter jqlValidateParameter;
+        private Set<String> projection;
+        private Future<String> prefetch;
+        private int prefetchStartAt = -1;
+        private int prefetchSize = -1;
+        private volatile long prefetchNanos;
+        private PageSizer sizer;
+        private boolean closed = false;
 
         public IssueIterator(RestClient restclient, String resourcePath, String jql,
             String includedFields,
             String expandFields, Integer maxResults, Integer startAt,
             JqlValidateParameter jqlValidateParameter)
                              throws JiraException {
+            this(restclient, resourcePath, jql, includedFields, expandFields, maxResults, startAt,
+                    jqlValidateParameter, true);
+        }
+
+        /**
+         * @param retainPage whether the issues of the current page stay
+         * available in the issues field. Otherwise each issue is released
+         * as soon as it has been handed out.
+         */
+        IssueIterator(RestClient restclient, String resourcePath, String jql,
+            String includedFields,
+            String expandFields, Integer maxResults, Integer startAt,
+            JqlValidateParameter jqlValidateParameter, boolean retainPage)
+                             throws JiraException {
             this.restclient = restclient;
+            this.retainPage = retainPage;
             this.resourcePath = resourcePath;
             this.jql = jql;
             this.includedFields = includedFields;
@@ -563,6 +593,10 @@ public class Issue extends Resource {
             this.maxResults = maxResults;
             this.startAt = startAt;
             this.jqlValidateParameter = jqlValidateParameter;
+            this.projection = SearchPageParser.getProjection(includedFields);
+
+            PageSizer template = restclient != null ? restclient.getPageSizer() : null;
+            this.sizer = template != null ? template.newSizer(maxResults) : null;
         }
         
         @Override
@@ -570,6 +604,9 @@ public class Issue extends Resource {
             if (nextIssue != null) {
                 return true;
             }
+            if (closed) {
+                return false;
+            }
             try {
                 nextIssue = getNextIssue();
             } catch (JiraException e) {
@@ -594,6 +631,22 @@ public class Issue extends Resource {
                                                     this.getClass().getName());
         }
 
+        /**
+         * Stops the iteration. A pending prefetch is cancelled and the
+         * issues not handed out yet are released.
+         */
+        @Override
+        public void close() {
+            closed = true;
+            nextIssue = null;
+            currentPage = null;
+
+            if (prefetch != null) {
+                prefetch.cancel(true);
+                prefetch = null;
+            }
+        }
+
         /**
          * Gets the next issue, returning null if none more available
          * Will ask the next set of issues from the server if the end
@@ -605,25 +658,28 @@ public class Issue extends Resource {
         private Issue getNextIssue() throws JiraException {
             // first call
             if (currentPage == null) {
-                currentPage = getNextIssues().iterator();
-                if (currentPage == null || !currentPage.hasNext()) {
-                    return null;
-                } else {
-                    return currentPage.next();
-                }
+                nextPage();
+                return currentPage.poll();
             }
             
             // check if we need to get the next set of issues
-            if (! currentPage.hasNext()) {
-                currentPage = getNextIssues().iterator();
+            if (currentPage.isEmpty()) {
+                nextPage();
             }
 
             // return the next item if available
-            if (currentPage.hasNext()) {
-                return currentPage.next();
-            } else {
-                return null;
-            }
+            return currentPage.poll();
+        }
+
+        /**
+         * Fetches the next page into a queue that is drained as issues are
+         * handed out, so consumed issues aren't referenced from here.
+         */
+        private void nextPage() throws JiraException {
+            List<Issue> page = getNextIssues();
+            pageCount = page.size();
+            issues = retainPage ? page : null;
+            currentPage = new ArrayDeque<Issue>(page);
         }
 
         /**
@@ -635,21 +691,45 @@ public class Issue extends Resource {
          * @throws JiraException
          */
         private List<Issue> getNextIssues() throws JiraException {
-            if (issues == null && startAt == null) {
+            if (pageCount < 0 && startAt == null) {
                 startAt = Integer.valueOf(0);
-            } else if (issues != null) {
-                startAt = startAt + issues.size();
+            } else if (pageCount >= 0) {
+                startAt = startAt + pageCount;
             }
 
             Map result = null;
+            ExecutorService executor = restclient.getSearchExecutor();
+
+            if (executor != null)
+                return getNextIssues(executor);
+
+            if (sizer != null)
+                maxResults = sizer.getPageSize();
+
+            int requested = maxResults != null ? maxResults : -1;
+            long started = System.nanoTime();
+            long bytes = 0;
 
             try {
                 URI searchUri = createSearchURI(restclient, resourcePath, jql, includedFields,
                         expandFields, maxResults, startAt, jqlValidateParameter);
                 String resultJson = restclient.get(searchUri);
-                if (resultJson!=null) {
+                bytes = resultJson != null ? resultJson.length() : 0;
+                JsonBinding.SearchPage page = null;
+                if (resultJson!=null && restclient.isTypedBinding()) {
+                    page = JsonBinding.readSearchPage(restclient, resultJson, projection);
+                } else if (resultJson!=null && projection != null) {
+                    page = SearchPageParser.parse(restclient, resultJson, projection);
+                } else if (resultJson!=null) {
                     result = JsonUtil.OBJECT_MAPPER.readValue(resultJson, Map.class);
                 }
+                if (page != null) {
+                    this.startAt = page.startAt;
+                    this.maxResults = page.maxResults;
+                    this.total = page.total;
+                    recordPage(requested, page.issues.size(), started, bytes);
+                    return page.issues;
+                }
             } catch (Exception ex) {
                 throw new JiraException("Failed to search issues", ex);
             }
@@ -661,8 +741,85 @@ public class Issue extends Resource {
             this.startAt = Field.getInteger(map.get("startAt"));
             this.maxResults = Field.getInteger(map.get("maxResults"));
             this.total = Field.getInteger(map.get("total"));
-            this.issues = Field.getResourceArray(Issue.class, map.get("issues"), this.restclient);
-            return this.issues;
+            List<Issue> issues = Field.getResourceArray(Issue.class, map.get("issues"), this.restclient);
+            recordPage(requested, issues.size(), started, bytes);
+            return issues;
+        }
+
+        private void recordPage(int requested, int count, long started, long bytes) {
+            if (sizer != null)
+                sizer.record(requested, maxResults, count, System.nanoTime() - started, bytes);
+        }
+
+        /**
+         * Gets the next set of issues through the worker pool. The page
+         * is scanned on this thread, then the following page is requested
+         * in the background while the issues are decoded in parallel.
+         */
+        private List<Issue> getNextIssues(ExecutorService executor) throws JiraException {
+            try {
+                String resultJson;
+                int requested;
+                long nanos;
+
+                if (prefetch != null && prefetchStartAt == startAt) {
+                    resultJson = prefetch.get();
+                    requested = prefetchSize;
+                    nanos = prefetchNanos;
+                } else {
+                    if (prefetch != null)
+                        prefetch.cancel(true);
+
+                    if (sizer != null)
+                        maxResults = sizer.getPageSize();
+
+                    requested = maxResults != null ? maxResults : -1;
+                    long started = System.nanoTime();
+                    resultJson = restclient.get(createSearchURI(restclient, resourcePath, jql,
+                            includedFields, expandFields, maxResults, startAt, jqlValidateParameter));
+                    nanos = System.nanoTime() - started;
+                }
+
+                prefetch = null;
+
+                if (resultJson == null)
+                    throw new JiraException("JSON payload is malformed");
+
+                SearchPageParser.RawPage page = SearchPageParser.scan(resultJson);
+                this.startAt = page.startAt;
+                this.maxResults = page.maxResults;
+                this.total = page.total;
+
+                /* decoding overlaps with the next fetch, so only the fetch is timed */
+                if (sizer != null) {
+                    sizer.record(requested, page.maxResults, page.count, nanos, resultJson.length());
+                    maxResults = sizer.getPageSize();
+                }
+
+                int nextStartAt = page.startAt + page.count;
+
+                if (page.count > 0 && nextStartAt < page.total) {
+                    final URI nextUri = createSearchURI(restclient, resourcePath, jql, includedFields,
+                            expandFields, maxResults, nextStartAt, jqlValidateParameter);
+
+                    prefetchStartAt = nextStartAt;
+                    prefetchSize = maxResults != null ? maxResults : -1;
+                    prefetch = executor.submit(() -> {
+                        long started = System.nanoTime();
+                        String json = restclient.get(nextUri);
+                        prefetchNanos = System.nanoTime() - started;
+                        return json;
+                    });
+                }
+
+                return SearchPageParser.decode(restclient, page, projection, executor);
+            } catch (JiraException ex) {
+                throw ex;
+            } catch (ExecutionException ex) {
+                throw new JiraException("Failed to search issues", ex.getCause());
+            } catch (Exception ex) {
+                throw new JiraException("Failed to search issues", ex);
+            }
         }
     }
     
@@ -680,7 +837,7 @@ public class Issue extends Resource {
      * result value. The price for this, is that the call to next has none determistic performence,
      * as it sometimes need to fetch a new batch of issues from Jira.
      */
-    public static class SearchResult {
+    public static class SearchResult implements Closeable {
         public int start = 0;
         public int max = 0;
         public int total = 0;
@@ -718,12 +875,104 @@ public class Issue extends Resource {
         public Iterator<Issue> iterator() {
             return issueIterator;
         }
+
+        /**
+         * Stops the iteration and cancels the prefetch of the next page,
+         * when a search executor is set.
+         */
+        @Override
+        public void close() {
+            issueIterator.close();
+        }
+    }
+
+    /**
+     * Issue search results that are consumed as a stream.
+     *
+     * Unlike {@link SearchResult}, no page is kept around for the lifetime
+     * of the result. Each issue is released by the result as soon as it
+     * has been returned from the iterator, so memory use is bounded by one
+     * page (plus the raw text of the prefetched page when a search
+     * executor is set) regardless of the size of the result.
+     *
+     * The iterator can only be walked once. A result that isn't walked to
+     * the end should be closed, so that the prefetch of the next page is
+     * cancelled.
+     */
+    public static class StreamingSearchResult implements Iterable<Issue>, Closeable {
+        private IssueIterator issueIterator;
+
+        public StreamingSearchResult(RestClient restclient, String resourcePath, String jql,
+            String includedFields,
+            String expandFields, Integer maxResults, Integer startAt,
+            JqlValidateParameter validateParameter)
+                            throws JiraException {
+            this.issueIterator = new IssueIterator(
+                restclient,
+                resourcePath,
+                jql,
+                includedFields,
+                expandFields,
+                maxResults,
+                startAt,
+                validateParameter,
+                false
+            );
+            /* fetch the first page so the totals are known up front */
+            this.issueIterator.hasNext();
+        }
+
+        /**
+         * Index of the first issue of the current page.
+         *
+         * @return the start index of the current page
+         */
+        public int getStart() {
+            return issueIterator.startAt;
+        }
+
+        /**
+         * Page size the server applied to the current page.
+         *
+         * @return the max results of the current page
+         */
+        public int getMax() {
+            return issueIterator.maxResults;
+        }
+
+        /**
+         * Number of issues matching the query, as of the current page.
+         *
+         * @return the total
+         */
+        public int getTotal() {
+            return issueIterator.total;
+        }
+
+        /**
+         * All issues found.
+         *
+         * @return All issues found.
+         */
+        @Override
+        public Iterator<Issue> iterator() {
+            return issueIterator;
+        }
+
+        /**
+         * Stops the iteration and cancels the prefetch of the next page.
+         */
+        @Override
+        public void close() {
+            issueIterator.close();
+        }
     }
 
     public static final class NewAttachment {
 
         private final String filename;
         private final Object content;
+        private final long length;
 
         public NewAttachment(File content) {
             this(content.getName(), content);
@@ -732,16 +981,41 @@ public class Issue extends Resource {
         public NewAttachment(String filename, File content) {
             this.filename = requireFilename(filename);
             this.content = requireContent(content);
+            this.length = -1;
+        }
+
+        public NewAttachment(Path content) {
+            this(content.getFileName().toString(), content);
+        }
+
+        public NewAttachment(String filename, Path content) {
+            this.filename = requireFilename(filename);
+            this.content = requireContent(content);
+            this.length = -1;
         }
 
         public NewAttachment(String filename, InputStream content) {
+            this(filename, content, -1);
+        }
+
+        /**
+         * Creates an attachment from a stream of known length, which can be
+         * uploaded without chunked encoding.
+         *
+         * @param filename Attachment file name
+         * @param content Attachment content
+         * @param length Number of bytes in the stream or -1 if unknown
+         */
+        public NewAttachment(String filename, InputStream content, long length) {
             this.filename = requireFilename(filename);
             this.content = requireContent(content);
+            this.length = length;
         }
 
         public NewAttachment(String filename, byte[] content) {
             this.filename = requireFilename(filename);
             this.content = requireContent(content);
+            this.length = content.length;
         }
 
         String getFilename() {
@@ -752,6 +1026,27 @@ public class Issue extends Resource {
             return content;
         }
 
+        Path getPath() {
+            return content instanceof File ? ((File) content).toPath() : (Path) content;
+        }
+
+        /**
+         * Gets the content size.
+         *
+         * @return the number of bytes or -1 if it isn't known
+         */
+        long getLength() {
+            if (content instanceof File || content instanceof Path) {
+                try {
+                    return Files.size(getPath());
+                } catch (IOException ex) {
+                    return -1;
+                }
+            }
+
+            return length;
+        }
+
         private static String requireFilename(String filename) {
             if (filename == null) {
                 throw new NullPointerException("filename may not be null");
@@ -771,9 +1066,57 @@ public class Issue extends Resource {
 
     }
 
+    /* one bit per typed field, set once the field has been built */
+    private static final int F_ASSIGNEE = 1 << 0;
+    private static final int F_ENVIRONMENT = 1 << 1;
+    private static final int F_ATTACHMENTS = 1 << 2;
+    private static final int F_CHANGE_LOG = 1 << 3;
+    private static final int F_COMMENTS = 1 << 4;
+    private static final int F_COMPONENTS = 1 << 5;
+    private static final int F_DESCRIPTION = 1 << 6;
+    private static final int F_DUE_DATE = 1 << 7;
+    private static final int F_FIX_VERSIONS = 1 << 8;
+    private static final int F_ISSUE_LINKS = 1 << 9;
+    private static final int F_ISSUE_TYPE = 1 << 10;
+    private static final int F_LABELS = 1 << 11;
+    private static final int F_PARENT = 1 << 12;
+    private static final int F_PRIORITY = 1 << 13;
+    private static final int F_PROJECT = 1 << 14;
+    private static final int F_REPORTER = 1 << 15;
+    private static final int F_RESOLUTION = 1 << 16;
+    private static final int F_RESOLUTION_DATE = 1 << 17;
+    private static final int F_STATUS = 1 << 18;
+    private static final int F_SUBTASKS = 1 << 19;
+    private static final int F_SUMMARY = 1 << 20;
+    private static final int F_TIME_TRACKING = 1 << 21;
+    private static final int F_VERSIONS = 1 << 22;
+    private static final int F_VOTES = 1 << 23;
+    private static final int F_WATCHES = 1 << 24;
+    private static final int F_WORK_LOGS = 1 << 25;
+    private static final int F_TIME_ESTIMATE = 1 << 26;
+    private static final int F_TIME_SPENT = 1 << 27;
+    private static final int F_CREATED_DATE = 1 << 28;
+    private static final int F_UPDATED_DATE = 1 << 29;
+    private static final int F_ALL = (1 << 30) - 1;
+
+    /* raw fields that have a typed getter, dropped in compact mode */
+    private static final Set<String> TYPED_FIELDS = new HashSet<String>(Arrays.asList(
+            Field.ASSIGNEE, Field.ENVIRONMENT, Field.ATTACHMENT, Field.COMMENT, Field.COMPONENTS,
+            Field.DESCRIPTION, Field.DUE_DATE, Field.FIX_VERSIONS, Field.ISSUE_LINKS,
+            Field.ISSUE_TYPE, Field.LABELS, Field.PARENT, Field.PRIORITY, Field.PROJECT,
+            Field.REPORTER, Field.RESOLUTION, Field.RESOLUTION_DATE, Field.STATUS,
+            Field.SUBTASKS, Field.SUMMARY, Field.TIME_TRACKING, Field.VERSIONS, Field.VOTES,
+            Field.WATCHES, Field.WORKLOG, Field.TIME_ESTIMATE, Field.TIME_SPENT,
+            Field.CREATED_DATE, Field.UPDATED_DATE));
+
+    /* page size asked for by searchIds, the server may cap it */
+    private static final int ID_PAGE_SIZE = 1000;
+
     private String key = null;
 
     private Map fields = null;
+    private Object rawChangeLog = null;
+    private volatile int materialized = F_ALL;
 
     @JsonProperty("fields")
     public void fields(Map fields) {
@@ -845,36 +1188,315 @@ public class Issue extends Resource {
         if (fields == null)
             return;
 
-        assignee = Field.getResource(User.class, fields.get(Field.ASSIGNEE), restclient);
-        environment = fields.get(Field.ENVIRONMENT) == null ? null : fields.get(Field.ENVIRONMENT).toString();
-        attachments = Field.getResourceArray(Attachment.class, fields.get(Field.ATTACHMENT), restclient);
-        changeLog = Field.getResource(ChangeLog.class, map.get(Field.CHANGE_LOG), restclient);
-        comments = Field.getComments(fields.get(Field.COMMENT), restclient, key);
-        components = Field.getResourceArray(Component.class, fields.get(Field.COMPONENTS), restclient);
-        description = Field.getString(fields.get(Field.DESCRIPTION));
-        dueDate = Field.getDate(fields.get(Field.DUE_DATE));
-        fixVersions = Field.getResourceArray(Version.class, fields.get(Field.FIX_VERSIONS), restclient);
-        issueLinks = Field.getResourceArray(IssueLink.class, fields.get(Field.ISSUE_LINKS), restclient);
-        issueType = Field.getResource(IssueType.class, fields.get(Field.ISSUE_TYPE), restclient);
-        labels = Field.getStringArray(fields.get(Field.LABELS));
-        parent = Field.getResource(Issue.class, fields.get(Field.PARENT), restclient);
-        priority = Field.getResource(Priority.class, fields.get(Field.PRIORITY), restclient);
-        project = Field.getResource(Project.class, fields.get(Field.PROJECT), restclient);
-        reporter = Field.getResource(User.class, fields.get(Field.REPORTER), restclient);
-        resolution = Field.getResource(Resolution.class, fields.get(Field.RESOLUTION), restclient);
-        resolutionDate = Field.getDateTime(fields.get(Field.RESOLUTION_DATE));
-        status = Field.getResource(Status.class, fields.get(Field.STATUS), restclient);
-        subtasks = Field.getResourceArray(Issue.class, fields.get(Field.SUBTASKS), restclient);
-        summary = Field.getString(fields.get(Field.SUMMARY));
-        timeTracking = Field.getTimeTracking(fields.get(Field.TIME_TRACKING));
-        versions = Field.getResourceArray(Version.class, fields.get(Field.VERSIONS), restclient);
-        votes = Field.getResource(Votes.class, fields.get(Field.VOTES), restclient);
-        watches = Field.getResource(Watches.class, fields.get(Field.WATCHES), restclient);
-        workLogs = Field.getWorkLogs(fields.get(Field.WORKLOG), restclient);
-        timeEstimate = Field.getInteger(fields.get(Field.TIME_ESTIMATE));
-        timeSpent = Field.getInteger(fields.get(Field.TIME_SPENT));
-        createdDate = Field.getDateTime(fields.get(Field.CREATED_DATE));
-        updatedDate = Field.getDateTime(fields.get(Field.UPDATED_DATE));
+        rawChangeLog = map.get(Field.CHANGE_LOG);
+
+        if (restclient != null && restclient.isCompactFields()) {
+            materializeAll();
+            fields = compactFields(fields);
+        } else if (restclient != null && restclient.isLazyFields())
+            materialized = 0;
+        else
+            materializeAll();
+    }
+
+    /**
+     * Copies the raw fields that are kept in compact mode: the retained
+     * fields configured on the client or else every field without a typed
+     * getter.
+     */
+    private Map compactFields(Map raw) {
+        Map compact = new LinkedHashMap();
+
+        for (Object o : raw.entrySet()) {
+            Map.Entry ent = (Map.Entry)o;
+
+            if (isRetainedField(String.valueOf(ent.getKey())))
+                compact.put(ent.getKey(), ent.getValue());
+        }
+
+        return compact;
+    }
+
+    private boolean isRetainedField(String name) {
+        Set<String> retained = restclient.getRetainedFields();
+        return retained != null ? retained.contains(name) : !TYPED_FIELDS.contains(name);
+    }
+
+    private void materializeAll() {
+        for (int bit = 1; (bit & F_ALL) != 0; bit <<= 1)
+            load(bit);
+
+        materialized = F_ALL;
+    }
+
+    /**
+     * Builds a typed field on first access when the issue was read in lazy
+     * mode. The volatile mask publishes the field to other threads.
+     *
+     * @param bit Field to materialize
+     */
+    private void materialize(int bit) {
+        if ((materialized & bit) != 0)
+            return;
+
+        synchronized (this) {
+            if ((materialized & bit) == 0) {
+                load(bit);
+                materialized |= bit;
+            }
+        }
+    }
+
+    private void load(int bit) {
+        if (fields == null)
+            return;
+
+        switch (bit) {
+            case F_ASSIGNEE:
+                assignee = Field.getResource(User.class, fields.get(Field.ASSIGNEE), restclient);
+                break;
+            case F_ENVIRONMENT:
+                environment = fields.get(Field.ENVIRONMENT) == null ? null : fields.get(Field.ENVIRONMENT).toString();
+                break;
+            case F_ATTACHMENTS:
+                attachments = Field.getResourceArray(Attachment.class, fields.get(Field.ATTACHMENT), restclient);
+                break;
+            case F_CHANGE_LOG:
+                changeLog = Field.getResource(ChangeLog.class, rawChangeLog, restclient);
+                rawChangeLog = null;
+                break;
+            case F_COMMENTS:
+                comments = Field.getComments(fields.get(Field.COMMENT), restclient, key);
+                break;
+            case F_COMPONENTS:
+                components = Field.getResourceArray(Component.class, fields.get(Field.COMPONENTS), restclient);
+                break;
+            case F_DESCRIPTION:
+                description = Field.getString(fields.get(Field.DESCRIPTION));
+                break;
+            case F_DUE_DATE:
+                dueDate = Field.getDate(fields.get(Field.DUE_DATE));
+                break;
+            case F_FIX_VERSIONS:
+                fixVersions = Field.getResourceArray(Version.class, fields.get(Field.FIX_VERSIONS), restclient);
+                break;
+            case F_ISSUE_LINKS:
+                issueLinks = Field.getResourceArray(IssueLink.class, fields.get(Field.ISSUE_LINKS), restclient);
+                break;
+            case F_ISSUE_TYPE:
+                issueType = Field.getResource(IssueType.class, fields.get(Field.ISSUE_TYPE), restclient);
+                break;
+            case F_LABELS:
+                labels = Field.getStringArray(fields.get(Field.LABELS));
+                break;
+            case F_PARENT:
+                parent = Field.getResource(Issue.class, fields.get(Field.PARENT), restclient);
+                break;
+            case F_PRIORITY:
+                priority = Field.getResource(Priority.class, fields.get(Field.PRIORITY), restclient);
+                break;
+            case F_PROJECT:
+                project = Field.getResource(Project.class, fields.get(Field.PROJECT), restclient);
+                break;
+            case F_REPORTER:
+                reporter = Field.getResource(User.class, fields.get(Field.REPORTER), restclient);
+                break;
+            case F_RESOLUTION:
+                resolution = Field.getResource(Resolution.class, fields.get(Field.RESOLUTION), restclient);
+                break;
+            case F_RESOLUTION_DATE:
+                resolutionDate = Field.getDateTime(fields.get(Field.RESOLUTION_DATE));
+                break;
+            case F_STATUS:
+                status = Field.getResource(Status.class, fields.get(Field.STATUS), restclient);
+                break;
+            case F_SUBTASKS:
+                subtasks = Field.getResourceArray(Issue.class, fields.get(Field.SUBTASKS), restclient);
+                break;
+            case F_SUMMARY:
+                summary = Field.getString(fields.get(Field.SUMMARY));
+                break;
+            case F_TIME_TRACKING:
+                timeTracking = Field.getTimeTracking(fields.get(Field.TIME_TRACKING));
+                break;
+            case F_VERSIONS:
+                versions = Field.getResourceArray(Version.class, fields.get(Field.VERSIONS), restclient);
+                break;
+            case F_VOTES:
+                votes = Field.getResource(Votes.class, fields.get(Field.VOTES), restclient);
+                break;
+            case F_WATCHES:
+                watches = Field.getResource(Watches.class, fields.get(Field.WATCHES), restclient);
+                break;
+            case F_WORK_LOGS:
+                workLogs = Field.getWorkLogs(fields.get(Field.WORKLOG), restclient);
+                break;
+            case F_TIME_ESTIMATE:
+                timeEstimate = Field.getInteger(fields.get(Field.TIME_ESTIMATE));
+                break;
+            case F_TIME_SPENT:
+                timeSpent = Field.getInteger(fields.get(Field.TIME_SPENT));
+                break;
+            case F_CREATED_DATE:
+                createdDate = Field.getDateTime(fields.get(Field.CREATED_DATE));
+                break;
+            case F_UPDATED_DATE:
+                updatedDate = Field.getDateTime(fields.get(Field.UPDATED_DATE));
+                break;
+        }
+    }
+
+    @Override
+    boolean readField(String name, JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (name.equals("key"))
+            key = JsonBinding.readString(p);
+        else if (name.equals("fields"))
+            readFields(p, ctxt);
+        else if (name.equals(Field.CHANGE_LOG))
+            changeLog = Field.getResource(ChangeLog.class, JsonBinding.readUntyped(p, ctxt), restclient);
+        else
+            return super.readField(name, p, ctxt);
+
+        return true;
+    }
+
+    /**
+     * Reads the issue fields in the typed JSON binding. System fields are
+     * bound directly; everything else is kept for {@link #getField}.
+     */
+    private void readFields(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.getCurrentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return;
+        }
+
+        Set<String> projection = JsonBinding.takeProjection(ctxt);
+
+        /* start from the same defaults as an issue without these fields */
+        ChangeLog cl = changeLog;
+        fields = new LinkedHashMap();
+        rawChangeLog = null;
+        materializeAll();
+        changeLog = cl;
+
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.getCurrentName();
+            p.nextToken();
+
+            if (projection != null && !projection.contains(name)) {
+                p.skipChildren();
+                continue;
+            }
+
+            if (readSystemField(name, p, ctxt))
+                continue;
+
+            if (restclient != null && restclient.isCompactFields() && !isRetainedField(name))
+                p.skipChildren();
+            else
+                fields.put(name, JsonBinding.readUntyped(p, ctxt));
+        }
+    }
+
+    private boolean readSystemField(String name, JsonParser p, DeserializationContext ctxt)
+            throws IOException {
+
+        switch (name) {
+            case Field.ASSIGNEE:
+                assignee = JsonBinding.readResource(User.class, p, ctxt);
+                break;
+            case Field.ENVIRONMENT:
+                Object env = JsonBinding.readUntyped(p, ctxt);
+                environment = env == null ? null : env.toString();
+                break;
+            case Field.ATTACHMENT:
+                attachments = Field.getResourceArray(
+                        Attachment.class, JsonBinding.readUntyped(p, ctxt), restclient);
+                break;
+            case Field.COMMENT:
+                comments = Field.getComments(JsonBinding.readUntyped(p, ctxt), restclient, key);
+                break;
+            case Field.COMPONENTS:
+                components = JsonBinding.readResourceArray(Component.class, p, ctxt);
+                break;
+            case Field.DESCRIPTION:
+                description = JsonBinding.readString(p);
+                break;
+            case Field.DUE_DATE:
+                dueDate = Field.getDate(JsonBinding.readString(p));
+                break;
+            case Field.FIX_VERSIONS:
+                fixVersions = JsonBinding.readResourceArray(Version.class, p, ctxt);
+                break;
+            case Field.ISSUE_LINKS:
+                issueLinks = Field.getResourceArray(
+                        IssueLink.class, JsonBinding.readUntyped(p, ctxt), restclient);
+                break;
+            case Field.ISSUE_TYPE:
+                issueType = JsonBinding.readResource(IssueType.class, p, ctxt);
+                break;
+            case Field.LABELS:
+                labels = JsonBinding.readStringArray(p);
+                break;
+            case Field.PARENT:
+                parent = JsonBinding.readResource(Issue.class, p, ctxt);
+                break;
+            case Field.PRIORITY:
+                priority = JsonBinding.readResource(Priority.class, p, ctxt);
+                break;
+            case Field.PROJECT:
+                project = JsonBinding.readResource(Project.class, p, ctxt);
+                break;
+            case Field.REPORTER:
+                reporter = JsonBinding.readResource(User.class, p, ctxt);
+                break;
+            case Field.RESOLUTION:
+                resolution = JsonBinding.readResource(Resolution.class, p, ctxt);
+                break;
+            case Field.RESOLUTION_DATE:
+                resolutionDate = Field.getDateTime(JsonBinding.readString(p));
+                break;
+            case Field.STATUS:
+                status = JsonBinding.readResource(Status.class, p, ctxt);
+                break;
+            case Field.SUBTASKS:
+                subtasks = JsonBinding.readResourceArray(Issue.class, p, ctxt);
+                break;
+            case Field.SUMMARY:
+                summary = JsonBinding.readString(p);
+                break;
+            case Field.TIME_TRACKING:
+                timeTracking = Field.getTimeTracking(JsonBinding.readUntyped(p, ctxt));
+                break;
+            case Field.VERSIONS:
+                versions = JsonBinding.readResourceArray(Version.class, p, ctxt);
+                break;
+            case Field.VOTES:
+                votes = JsonBinding.readResource(Votes.class, p, ctxt);
+                break;
+            case Field.WATCHES:
+                watches = JsonBinding.readResource(Watches.class, p, ctxt);
+                break;
+            case Field.WORKLOG:
+                workLogs = Field.getWorkLogs(JsonBinding.readUntyped(p, ctxt), restclient);
+                break;
+            case Field.TIME_ESTIMATE:
+                timeEstimate = JsonBinding.readInteger(p);
+                break;
+            case Field.TIME_SPENT:
+                timeSpent = JsonBinding.readInteger(p);
+                break;
+            case Field.CREATED_DATE:
+                createdDate = Field.getDateTime(JsonBinding.readString(p));
+                break;
+            case Field.UPDATED_DATE:
+                updatedDate = Field.getDateTime(JsonBinding.readString(p));
+                break;
+            default:
+                return false;
+        }
+
+        return true;
     }
 
     private static String getRestUri(String key) {
@@ -921,6 +1543,49 @@ public class Issue extends Resource {
         return projects.get(0).getIssueTypes().get(0).getFields();
     }
 
+    /**
+     * Gets the compiled create metadata for a project and issue type,
+     * from the client's plan cache when enabled.
+     */
+    private static FieldPlan getCreatePlan(
+        RestClient restclient, String project, String issueType) throws JiraException {
+
+        if (!restclient.isCacheFieldPlans())
+            return FieldPlan.compile(getCreateMetadata(restclient, project, issueType));
+
+        String cacheKey = "create/" + project + "/" + issueType;
+        FieldPlan plan = restclient.getFieldPlans().get(cacheKey);
+
+        if (plan == null) {
+            plan = FieldPlan.compile(getCreateMetadata(restclient, project, issueType));
+            restclient.getFieldPlans().putIfAbsent(cacheKey, plan);
+        }
+
+        return plan;
+    }
+
+    /**
+     * Gets the compiled edit metadata of this issue. When the client caches
+     * plans, issues of the same project and issue type share one plan.
+     */
+    private FieldPlan getEditPlan() throws JiraException {
+        Project p = getProject();
+        IssueType it = getIssueType();
+
+        if (!restclient.isCacheFieldPlans() || p == null || it == null)
+            return FieldPlan.compile(getEditMetadata());
+
+        String cacheKey = "edit/" + p.getKey() + "/" + it.getId();
+        FieldPlan plan = restclient.getFieldPlans().get(cacheKey);
+
+        if (plan == null) {
+            plan = FieldPlan.compile(getEditMetadata());
+            restclient.getFieldPlans().putIfAbsent(cacheKey, plan);
+        }
+
+        return plan;
+    }
+
     private Map getEditMetadata() throws JiraException {
         Map result = null;
 
@@ -1040,6 +1705,72 @@ public class Issue extends Resource {
         }
     }
 
+    /**
+     * Adds attachments to this issue, split into requests of at most the
+     * given size. Attachments are streamed; those whose length isn't known
+     * are sent in a request of their own with chunked encoding, and an
+     * attachment larger than the limit gets a request of its own as well.
+     * <p>
+     * When a request fails, the attachments of the earlier requests have
+     * already been added.
+     *
+     * @param maxRequestBytes Content size limit per request
+     * @param listener Receives the progress over all requests or null
+     * @param attachments the attachments to add
+     *
+     * @throws JiraException when the attachments creation fails
+     */
+    public void addAttachments(long maxRequestBytes, Attachment.ProgressListener listener,
+            NewAttachment... attachments) throws JiraException {
+
+        if (attachments == null) {
+            throw new NullPointerException("attachments may not be null");
+        }
+
+        long[] lengths = new long[attachments.length];
+        long total = 0;
+
+        for (int i = 0; i < attachments.length; i++) {
+            lengths[i] = attachments[i].getLength();
+            total = lengths[i] < 0 || total < 0 ? -1 : total + lengths[i];
+        }
+
+        int start = 0;
+        long done = 0;
+
+        while (start < attachments.length) {
+            int end = start + 1;
+            long batch = lengths[start];
+
+            while (batch >= 0 && end < attachments.length && lengths[end] >= 0
+                    && batch + lengths[end] <= maxRequestBytes) {
+                batch += lengths[end];
+                end++;
+            }
+
+            final long offset = done;
+            final long expected = total;
+            final long[] sent = { done };
+            Attachment.ProgressListener progress = (transferred, size) -> {
+                sent[0] = offset + transferred;
+
+                if (listener != null)
+                    listener.progress(sent[0], expected);
+            };
+
+            try {
+                restclient.post(getRestUri(key) + "/attachments", progress,
+                        Arrays.copyOfRange(attachments, start, end));
+            } catch (Exception ex) {
+                throw new JiraException("Failed add attachment to issue " + key
+                        + " after " + start + " of " + attachments.length + " attachments", ex);
+            }
+
+            done = sent[0];
+            start = end;
+        }
+    }
+
     /**
      * Removes an attachments.
      *
@@ -1203,7 +1934,7 @@ public class Issue extends Resource {
 
         FluentCreate fc = new FluentCreate(
             restclient,
-            getCreateMetadata(restclient, project, issueType));
+            getCreatePlan(restclient, project, issueType));
 
         return fc
             .field(Field.PROJECT, project)
@@ -1222,22 +1953,52 @@ public class Issue extends Resource {
                 .field(Field.PARENT, getKey());
     }
 
-    private static Map realGet(RestClient restclient, String key, Map<String, String> queryParams)
+    private static String realGet(RestClient restclient, String key, Map<String, String> queryParams)
             throws JiraException {
 
-        Map result = null;
-
         try {
             URI uri = restclient.buildURI(getBaseUri() + "issue/" + key, queryParams);
-            String resultJson = restclient.get(uri);
-            if (resultJson!=null) {
-                result = JsonUtil.OBJECT_MAPPER.readValue(resultJson, Map.class);
-            }
+            return restclient.get(uri);
         } catch (Exception ex) {
             throw new JiraException("Failed to retrieve issue " + key, ex);
         }
+    }
 
-        return result;
+    private static Issue realGetIssue(RestClient restclient, String key, Map<String, String> queryParams)
+            throws JiraException {
+
+        String resultJson = realGet(restclient, key, queryParams);
+
+        try {
+            if (restclient.isTypedBinding()) {
+                Issue issue = resultJson != null ? JsonBinding.readIssue(restclient, resultJson) : null;
+                return issue != null ? issue : new Issue(restclient, null);
+            }
+
+            Map result = resultJson != null ? JsonUtil.OBJECT_MAPPER.readValue(resultJson, Map.class) : null;
+            return new Issue(restclient, result);
+        } catch (IOException ex) {
+            throw new JiraException("Failed to retrieve issue " + key, ex);
+        }
+    }
+
+    private void realRefresh(Map<String, String> queryParams) throws JiraException {
+        String resultJson = realGet(restclient, key, queryParams);
+
+        try {
+            if (restclient.isTypedBinding()) {
+                fields = null;
+                changeLog = null;
+                if (resultJson != null)
+                    JsonBinding.readIssue(restclient, resultJson, this);
+                return;
+            }
+
+            Map result = resultJson != null ? JsonUtil.OBJECT_MAPPER.readValue(resultJson, Map.class) : null;
+            deserialise(result);
+        } catch (IOException ex) {
+            throw new JiraException("Failed to retrieve issue " + key, ex);
+        }
     }
 
     /**
@@ -1253,7 +2014,7 @@ public class Issue extends Resource {
     public static Issue get(RestClient restclient, String key)
             throws JiraException {
 
-        return new Issue(restclient, realGet(restclient, key, new HashMap<String, String>()));
+        return realGetIssue(restclient, key, new HashMap<String, String>());
     }
 
     /**
@@ -1282,7 +2043,7 @@ public class Issue extends Resource {
 
         Map<String, String> queryParams = new HashMap<String, String>();
         queryParams.put("fields", includedFields);
-        return new Issue(restclient, realGet(restclient, key, queryParams));
+        return realGetIssue(restclient, key, queryParams);
     }
 
     /**
@@ -1316,7 +2077,7 @@ public class Issue extends Resource {
         if (expand != null) {
             queryParams.put("expand", expand);
         }
-        return new Issue(restclient, realGet(restclient, key, queryParams));
+        return realGetIssue(restclient, key, queryParams);
     }
 
     /**
@@ -1371,6 +2132,128 @@ public class Issue extends Resource {
         );
     }
 
+    /**
+     * Search for issues with the given query and stream the results. Pages
+     * are fetched as the iterator advances and issues are not retained
+     * after they have been handed out.
+     *
+     * @param restclient REST client instance
+     *
+     * @param resourcePath Path to issues resource
+     *
+     * @param jql JQL statement
+     *
+     * @param includedFields Specifies which issue fields will be included in
+     * the result
+     *
+     * @param expandFields fields to expand when obtaining the issue
+     *
+     * @param maxResults if non-<code>null</code>, defines the page size
+     *
+     * @param startAt if non-<code>null</code>, defines the first issue to
+     * return
+     *
+     * @param validateParameter query validation type
+     *
+     * @return a streaming search result
+     *
+     * @throws JiraException when the search fails
+     */
+    public static StreamingSearchResult searchStreaming(RestClient restclient, String resourcePath,
+            String jql, String includedFields, String expandFields, Integer maxResults,
+            Integer startAt, JqlValidateParameter validateParameter) throws JiraException {
+
+        return new StreamingSearchResult(
+            restclient,
+            resourcePath,
+            jql,
+            includedFields,
+            expandFields,
+            maxResults,
+            startAt,
+            validateParameter
+        );
+    }
+
+    /**
+     * Search for the ids and keys of the issues matching the given query.
+     * No fields are requested and the responses are read token by token,
+     * so no Issue instances are created.
+     *
+     * @param restclient REST client instance
+     * @param jql JQL statement
+     *
+     * @return the ids and keys of the matching issues
+     *
+     * @throws JiraException when the search fails
+     */
+    public static IssueIdSet searchIds(RestClient restclient, String jql) throws JiraException {
+        IssueIdSet.Builder builder = new IssueIdSet.Builder(ID_PAGE_SIZE);
+        SearchPager pager = new SearchPager(restclient, null, jql, "", null, ID_PAGE_SIZE);
+
+        while (pager.hasNext()) {
+            try {
+                int[] page = readIdPage(pager.fetch(), builder);
+                pager.advance(pager.getStartAt(), page[0], page[1]);
+            } catch (JiraException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new JiraException("Failed to search issues", ex);
+            }
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Reads the ids and keys of one search page.
+     *
+     * @return the number of issues on the page and the total
+     */
+    private static int[] readIdPage(String json, IssueIdSet.Builder builder) throws IOException {
+        int count = 0;
+        int total = 0;
+
+        try (JsonParser p = JsonUtil.OBJECT_MAPPER.getFactory().createParser(json)) {
+            if (p.nextToken() != JsonToken.START_OBJECT)
+                throw new IOException("Search result is not an object");
+
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.getCurrentName();
+                JsonToken t = p.nextToken();
+
+                if (name.equals("total") && t == JsonToken.VALUE_NUMBER_INT)
+                    total = p.getIntValue();
+                else if (name.equals("issues") && t == JsonToken.START_ARRAY) {
+                    while (p.nextToken() == JsonToken.START_OBJECT) {
+                        long id = -1;
+                        String key = null;
+
+                        while (p.nextToken() == JsonToken.FIELD_NAME) {
+                            String field = p.getCurrentName();
+                            p.nextToken();
+
+                            if (field.equals("id"))
+                                id = Long.parseLong(p.getText());
+                            else if (field.equals("key"))
+                                key = p.getText();
+                            else
+                                p.skipChildren();
+                        }
+
+                        if (id >= 0)
+                            builder.add(id, key);
+
+                        count++;
+                    }
+                } else
+                    p.skipChildren();
+            }
+        }
+
+        return new int[] { count, total };
+    }
+
     /**
      * Creates the URI to execute a jql search.
      * 
@@ -1385,7 +2268,7 @@ public class Issue extends Resource {
      * @return the URI to execute a jql search.
      * @throws URISyntaxException
      */
-    private static URI createSearchURI(RestClient restclient, String resourcePath, String jql,
+    static URI createSearchURI(RestClient restclient, String resourcePath, String jql,
             String includedFields, String expandFields, Integer maxResults,
             Integer startAt, JqlValidateParameter jqlValidateParameter) throws URISyntaxException {
         Map<String, String> queryParams = new HashMap<String, String>();
@@ -1419,8 +2302,7 @@ public class Issue extends Resource {
      * @throws JiraException when the retrieval fails
      */
     public void refresh() throws JiraException {
-        Map result = realGet(restclient, key, new HashMap<String, String>());
-        deserialise(result);
+        realRefresh(new HashMap<String, String>());
     }
 
     /**
@@ -1443,12 +2325,15 @@ public class Issue extends Resource {
 
         Map<String, String> queryParams = new HashMap<String, String>();
         queryParams.put("fields", includedFields);
-        Map result = realGet(restclient, key, queryParams);
-        deserialise(result);
+        realRefresh(queryParams);
     }
 
     /**
-     * Gets an arbitrary field by its name.
+     * Gets an arbitrary field by its name. When the issue was read with the
+     * typed binding (see {@link RestClient#setTypedBinding(boolean)}) only
+     * fields without a typed getter, e.g. custom fields, are available. In
+     * compact mode (see {@link RestClient#setCompactFields(boolean)}) only
+     * the retained fields are available.
      *
      * @param name Name of the field to retrieve
      *
@@ -1478,7 +2363,7 @@ public class Issue extends Resource {
      * @throws JiraException when the client fails to retrieve issue metadata
      */
     public FluentUpdate update() throws JiraException {
-        return new FluentUpdate(getEditMetadata());
+        return new FluentUpdate(getEditPlan());
     }
 
     /**
@@ -1557,6 +2442,7 @@ public class Issue extends Resource {
     }
 
     public ChangeLog getChangeLog() {
+        materialize(F_CHANGE_LOG);
         return changeLog;
     }
 
@@ -1565,62 +2451,77 @@ public class Issue extends Resource {
     }
 
     public User getAssignee() {
+        materialize(F_ASSIGNEE);
         return assignee;
     }
 
     public String getEnvironment() {
+        materialize(F_ENVIRONMENT);
         return environment;
     }
 
     public List<Attachment> getAttachments() {
+        materialize(F_ATTACHMENTS);
         return attachments;
     }
 
     public List<Comment> getComments() {
+        materialize(F_COMMENTS);
         return comments;
     }
 
     public List<Component> getComponents() {
+        materialize(F_COMPONENTS);
         return components;
     }
 
     public String getDescription() {
+        materialize(F_DESCRIPTION);
         return description;
     }
 
     public Date getDueDate() {
+        materialize(F_DUE_DATE);
         return dueDate;
     }
 
     public List<Version> getFixVersions() {
+        materialize(F_FIX_VERSIONS);
         return fixVersions;
     }
 
     public List<IssueLink> getIssueLinks() {
+        materialize(F_ISSUE_LINKS);
         return issueLinks;
     }
 
     public IssueType getIssueType() {
+        materialize(F_ISSUE_TYPE);
         return issueType;
     }
 
     public List<String> getLabels() {
+        materialize(F_LABELS);
         return labels;
     }
 
     public Issue getParent() {
+        materialize(F_PARENT);
         return parent;
     }
 
     public Priority getPriority() {
+        materialize(F_PRIORITY);
         return priority;
     }
 
     public Project getProject() {
+        materialize(F_PROJECT);
         return project;
     }
 
     public User getReporter() {
+        materialize(F_REPORTER);
         return reporter;
     }
 
@@ -1641,42 +2542,52 @@ public class Issue extends Resource {
     }
 
     public Resolution getResolution() {
+        materialize(F_RESOLUTION);
         return resolution;
     }
 
     public Date getResolutionDate() {
+        materialize(F_RESOLUTION_DATE);
         return resolutionDate;
     }
 
     public Status getStatus() {
+        materialize(F_STATUS);
         return status;
     }
 
     public List<Issue> getSubtasks() {
+        materialize(F_SUBTASKS);
         return subtasks;
     }
 
     public String getSummary() {
+        materialize(F_SUMMARY);
         return summary;
     }
 
     public TimeTracking getTimeTracking() {
+        materialize(F_TIME_TRACKING);
         return timeTracking;
     }
 
     public List<Version> getVersions() {
+        materialize(F_VERSIONS);
         return versions;
     }
 
     public Votes getVotes() {
+        materialize(F_VOTES);
         return votes;
     }
 
     public Watches getWatches() {
+        materialize(F_WATCHES);
         return watches;
     }
 
     public List<WorkLog> getWorkLogs() {
+        materialize(F_WORK_LOGS);
         return workLogs;
     }
 
@@ -1693,23 +2604,28 @@ public class Issue extends Resource {
                     + key, ex);
         }
 
+        materialize(F_WORK_LOGS);
         workLogs = Field.getWorkLogs(obj, restclient);
         return Field.getWorkLogs(obj, restclient);
     }
 
     public Integer getTimeSpent() {
+        materialize(F_TIME_SPENT);
         return timeSpent;
     }
 
     public Integer getTimeEstimate() {
+        materialize(F_TIME_ESTIMATE);
         return timeEstimate;
     }
 
     public Date getCreatedDate() {
+        materialize(F_CREATED_DATE);
         return createdDate;
     }
 
     public Date getUpdatedDate() {
+        materialize(F_UPDATED_DATE);
         return updatedDate;
     }
 
@@ -0,0 +1,437 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import net.rcarz.jiraclient.util.JsonUtil;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Exports the results of a JQL search as NDJSON or CSV, straight from the
+ * search pages to a channel. No Issue objects are built: issues are copied
+ * token by token, or verbatim when all of their JSON is wanted. The next
+ * page is fetched while the current one is being written.
+ * <p>
+ * Exporters are configured once and may be reused for any number of
+ * exports. They are not meant to be configured while an export runs.
+ */
+public final class IssueExporter {
+
+    /**
+     * Output formats.
+     */
+    public enum Format {
+        /** One issue JSON object per line. */
+        NDJSON,
+        /** A header line followed by one line per issue, one column per field. */
+        CSV
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String[] DISPLAY_FIELDS = { "name", "value", "key", "displayName" };
+
+    private final RestClient restclient;
+    private Format format = Format.NDJSON;
+    private List<String> columns = Collections.emptyList();
+    private Set<String> columnSet = Collections.emptySet();
+    private int pageSize = 100;
+
+    /**
+     * Creates an exporter writing NDJSON with all navigable fields.
+     *
+     * @param restclient REST client instance
+     */
+    public IssueExporter(RestClient restclient) {
+        this.restclient = restclient;
+    }
+
+    /**
+     * Sets the output format.
+     *
+     * @param format NDJSON or CSV
+     *
+     * @return this exporter
+     */
+    public IssueExporter format(Format format) {
+        this.format = format;
+        return this;
+    }
+
+    /**
+     * Sets the exported columns. Only these fields are requested from the
+     * server. "id" and "key" refer to the issue itself, every other name to
+     * an issue field. For NDJSON no columns means the issues are passed
+     * through as the server sent them; for CSV columns are required.
+     *
+     * @param columns Column names in output order
+     *
+     * @return this exporter
+     */
+    public IssueExporter columns(String... columns) {
+        this.columns = Collections.unmodifiableList(new ArrayList<String>(Arrays.asList(columns)));
+        this.columnSet = new HashSet<String>(this.columns);
+        return this;
+    }
+
+    /**
+     * Sets the page size. When the REST client has a {@link PageSizer} it
+     * only sizes the first page.
+     *
+     * @param pageSize Issues per search request
+     *
+     * @return this exporter
+     */
+    public IssueExporter pageSize(int pageSize) {
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    /**
+     * Exports the results of a search to a file, replacing its contents.
+     *
+     * @param jql JQL statement
+     * @param path Output file
+     *
+     * @return the number of exported issues
+     *
+     * @throws JiraException when the search or writing fails
+     */
+    public long export(String jql, Path path) throws JiraException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            return export(jql, channel);
+        } catch (IOException ex) {
+            throw new JiraException("Failed to export issues to " + path, ex);
+        }
+    }
+
+    /**
+     * Exports the results of a search to a channel. The channel is left
+     * open.
+     *
+     * @param jql JQL statement
+     * @param channel Output channel
+     *
+     * @return the number of exported issues
+     *
+     * @throws JiraException when the search or writing fails
+     */
+    public long export(String jql, WritableByteChannel channel) throws JiraException {
+        if (format == Format.CSV && columns.isEmpty())
+            throw new JiraException("CSV export requires columns");
+
+        ExecutorService executor = restclient.getSearchExecutor();
+        boolean ownExecutor = executor == null;
+
+        if (ownExecutor)
+            executor = Executors.newSingleThreadExecutor();
+
+        Writer out = Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE);
+        PageSizer template = restclient.getPageSizer();
+        PageSizer sizer = template != null ? template.newSizer(pageSize) : null;
+        String fields = columns.isEmpty() ? null : String.join(",", columns);
+        SearchPager pager = new SearchPager(restclient, null, jql, fields, null,
+                sizer != null ? sizer.getPageSize() : pageSize);
+        Future<String> next = null;
+        long exported = 0;
+
+        try {
+            if (format == Format.CSV)
+                writeCsvHeader(out);
+
+            int size = sizer != null ? sizer.getPageSize() : pageSize;
+            long started = System.nanoTime();
+            next = fetch(executor, pager);
+
+            while (true) {
+                String json = next.get();
+                next = null;
+
+                SearchPageParser.RawPage page = SearchPageParser.scan(json);
+
+                if (sizer != null) {
+                    sizer.record(size, page.maxResults, page.count, System.nanoTime() - started, json.length());
+                    size = sizer.getPageSize();
+                    pager.setPageSize(size);
+                }
+
+                if (pager.advance(page.startAt, page.count, page.total)) {
+                    started = System.nanoTime();
+                    next = fetch(executor, pager);
+                }
+
+                writePage(out, page);
+                exported += page.count;
+
+                if (next == null)
+                    break;
+            }
+
+            out.flush();
+            return exported;
+        } catch (JiraException ex) {
+            throw ex;
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof JiraException)
+                throw (JiraException) ex.getCause();
+
+            throw new JiraException("Failed to export issues", ex.getCause());
+        } catch (Exception ex) {
+            throw new JiraException("Failed to export issues", ex);
+        } finally {
+            if (next != null)
+                next.cancel(true);
+
+            if (ownExecutor)
+                executor.shutdownNow();
+        }
+    }
+
+    private static Future<String> fetch(ExecutorService executor, SearchPager pager) throws Exception {
+        final URI uri = pager.nextUri();
+        return executor.submit(() -> pager.get(uri));
+    }
+
+    private void writePage(Writer out, SearchPageParser.RawPage page) throws IOException {
+        for (int i = 0; i < page.count; i++) {
+            int start = page.offsets[i * 2];
+            int end = page.offsets[i * 2 + 1];
+
+            if (format == Format.CSV)
+                writeCsvLine(out, page.text, start, end);
+            else if (columns.isEmpty() && !hasLineBreak(page.text, start, end))
+                out.write(page.text, start, end - start);
+            else if (columns.isEmpty())
+                writeCompactJson(out, page.text, start, end);
+            else
+                writeProjectedJson(out, page.text, start, end);
+
+            out.write('\n');
+        }
+    }
+
+    /**
+     * JSON strings can't hold raw line breaks, so any in an issue are the
+     * whitespace of a pretty-printed response.
+     */
+    private static boolean hasLineBreak(char[] text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text[i] == '\n' || text[i] == '\r')
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Copies an issue without the whitespace between its tokens.
+     */
+    private static void writeCompactJson(Writer out, char[] text, int start, int end) throws IOException {
+        try (JsonParser p = JsonUtil.OBJECT_MAPPER.getFactory().createParser(text, start, end - start);
+             JsonGenerator gen = JsonUtil.OBJECT_MAPPER.getFactory().createGenerator(out)) {
+
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            p.nextToken();
+            gen.copyCurrentStructure(p);
+        }
+    }
+
+    /**
+     * Copies id, self, key and the projected fields of an issue. The server
+     * only sends the requested fields anyway, this drops whatever else it
+     * puts on the issue (expand, rendered fields and the like).
+     */
+    private void writeProjectedJson(Writer out, char[] text, int start, int end) throws IOException {
+        try (JsonParser p = JsonUtil.OBJECT_MAPPER.getFactory().createParser(text, start, end - start);
+             JsonGenerator gen = JsonUtil.OBJECT_MAPPER.getFactory().createGenerator(out)) {
+
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                gen.copyCurrentStructure(p);
+                return;
+            }
+
+            gen.writeStartObject();
+
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.getCurrentName();
+                p.nextToken();
+
+                if (name.equals("id") || name.equals("self") || name.equals("key")) {
+                    gen.writeFieldName(name);
+                    gen.copyCurrentStructure(p);
+                } else if (name.equals("fields") && p.getCurrentToken() == JsonToken.START_OBJECT) {
+                    gen.writeObjectFieldStart(name);
+
+                    while (p.nextToken() == JsonToken.FIELD_NAME) {
+                        String field = p.getCurrentName();
+                        p.nextToken();
+
+                        if (columnSet.contains(field)) {
+                            gen.writeFieldName(field);
+                            gen.copyCurrentStructure(p);
+                        } else
+                            p.skipChildren();
+                    }
+
+                    gen.writeEndObject();
+                } else
+                    p.skipChildren();
+            }
+
+            gen.writeEndObject();
+        }
+    }
+
+    private void writeCsvHeader(Writer out) throws IOException {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0)
+                out.write(',');
+
+            writeCsvValue(out, columns.get(i));
+        }
+
+        out.write('\n');
+    }
+
+    private void writeCsvLine(Writer out, char[] text, int start, int end) throws IOException {
+        Map<String, String> values = new HashMap<String, String>();
+
+        try (JsonParser p = JsonUtil.OBJECT_MAPPER.getFactory().createParser(text, start, end - start)) {
+            if (p.nextToken() == JsonToken.START_OBJECT) {
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = p.getCurrentName();
+                    p.nextToken();
+
+                    if (name.equals("fields") && p.getCurrentToken() == JsonToken.START_OBJECT) {
+                        while (p.nextToken() == JsonToken.FIELD_NAME) {
+                            String field = p.getCurrentName();
+                            p.nextToken();
+
+                            if (columnSet.contains(field))
+                                values.put(field, readCsvValue(p));
+                            else
+                                p.skipChildren();
+                        }
+                    } else if (columnSet.contains(name) && !values.containsKey(name))
+                        values.put(name, readCsvValue(p));
+                    else
+                        p.skipChildren();
+                }
+            }
+        }
+
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0)
+                out.write(',');
+
+            String value = values.get(columns.get(i));
+            if (value != null)
+                writeCsvValue(out, value);
+        }
+    }
+
+    /**
+     * Reads a field value as a cell. Scalars are written as is, objects by
+     * their name, value, key or display name, arrays as a semicolon
+     * separated list. Anything else is written as compact JSON.
+     */
+    private static String readCsvValue(JsonParser p) throws IOException {
+        JsonToken t = p.getCurrentToken();
+
+        if (t == JsonToken.VALUE_NULL)
+            return null;
+        else if (t.isScalarValue())
+            return p.getText();
+        else if (t == JsonToken.START_ARRAY) {
+            StringBuilder sb = new StringBuilder();
+
+            while (p.nextToken() != JsonToken.END_ARRAY) {
+                String item = readCsvValue(p);
+
+                if (item == null)
+                    continue;
+                if (sb.length() > 0)
+                    sb.append(';');
+
+                sb.append(item);
+            }
+
+            return sb.toString();
+        }
+
+        Map object = JsonUtil.OBJECT_MAPPER.readValue(p, Map.class);
+
+        for (String name : DISPLAY_FIELDS) {
+            Object value = object.get(name);
+
+            if (value instanceof String || value instanceof Number)
+                return value.toString();
+        }
+
+        StringWriter sw = new StringWriter();
+        JsonUtil.OBJECT_MAPPER.writeValue(sw, object);
+        return sw.toString();
+    }
+
+    private static void writeCsvValue(Writer out, String value) throws IOException {
+        boolean quote = false;
+
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+}
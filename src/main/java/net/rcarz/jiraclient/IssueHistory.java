@@ -1,7 +1,5 @@
 package net.rcarz.jiraclient;
 
-import net.sf.json.JSONObject;
-
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -44,9 +42,9 @@ public class IssueHistory extends Resource {
         Map map = json;
         self = Field.getString(map.get("self"));
         id = Field.getString(map.get("id"));
-        user = new User(restclient,(JSONObject)map.get("author"));
+        user = map.get("author") instanceof Map ? new User(restclient, (Map) map.get("author")) : null;
         created = Field.getDateTime(map.get("created"));
-        List items = (List) map.get("items");
+        List items = map.get("items") instanceof List ? (List) map.get("items") : new ArrayList();
         changes = new ArrayList<>(items.size());
         for (int i = 0; i < items.size(); i++) {
             Object p = items.get(i);
@@ -0,0 +1,276 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.util.Arrays;
+
+/**
+ * An immutable set of issue ids and their keys, backed by a sorted
+ * primitive array. Membership tests are binary searches and set
+ * differences are linear merges, so millions of ids stay cheap.
+ * <p>
+ * Ids are in ascending order. The key at an index belongs to the id at the
+ * same index.
+ */
+public final class IssueIdSet {
+
+    private static final long[] NO_IDS = new long[0];
+    private static final String[] NO_KEYS = new String[0];
+
+    /**
+     * An empty set.
+     */
+    public static final IssueIdSet EMPTY = new IssueIdSet(NO_IDS, NO_KEYS, 0);
+
+    private final long[] ids;
+    private final String[] keys;
+    private final int size;
+
+    private IssueIdSet(long[] ids, String[] keys, int size) {
+        this.ids = ids;
+        this.keys = keys;
+        this.size = size;
+    }
+
+    /**
+     * Gets the number of issues in the set.
+     *
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether the set contains an issue.
+     *
+     * @param id Issue id
+     *
+     * @return true if the issue is in the set
+     */
+    public boolean contains(long id) {
+        return indexOf(id) >= 0;
+    }
+
+    /**
+     * Finds the index of an issue.
+     *
+     * @param id Issue id
+     *
+     * @return the index or a negative value if the issue isn't in the set
+     */
+    public int indexOf(long id) {
+        return Arrays.binarySearch(ids, 0, size, id);
+    }
+
+    /**
+     * Gets the id at an index.
+     *
+     * @param index Index between 0 and size() - 1
+     *
+     * @return the issue id
+     */
+    public long getId(int index) {
+        checkIndex(index);
+        return ids[index];
+    }
+
+    /**
+     * Gets the key at an index.
+     *
+     * @param index Index between 0 and size() - 1
+     *
+     * @return the issue key
+     */
+    public String getKey(int index) {
+        checkIndex(index);
+        return keys[index];
+    }
+
+    /**
+     * Gets the key of an issue.
+     *
+     * @param id Issue id
+     *
+     * @return the issue key or null if the issue isn't in the set
+     */
+    public String getKey(long id) {
+        int i = indexOf(id);
+        return i >= 0 ? keys[i] : null;
+    }
+
+    /**
+     * Gets a copy of the ids.
+     *
+     * @return the ids in ascending order
+     */
+    public long[] getIds() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    /**
+     * Gets a copy of the keys, in the order of {@link #getIds()}.
+     *
+     * @return the keys
+     */
+    public String[] getKeys() {
+        return Arrays.copyOf(keys, size);
+    }
+
+    /**
+     * Gets the issues that are in this set but not in the other.
+     *
+     * @param other Set to subtract
+     *
+     * @return a new set
+     */
+    public IssueIdSet difference(IssueIdSet other) {
+        Builder b = new Builder(size);
+        int j = 0;
+
+        for (int i = 0; i < size; i++) {
+            while (j < other.size && other.ids[j] < ids[i])
+                j++;
+
+            if (j >= other.size || other.ids[j] != ids[i])
+                b.add(ids[i], keys[i]);
+        }
+
+        return b.build();
+    }
+
+    /**
+     * Gets the issues that are in both sets.
+     *
+     * @param other Set to intersect with
+     *
+     * @return a new set
+     */
+    public IssueIdSet intersection(IssueIdSet other) {
+        Builder b = new Builder(Math.min(size, other.size));
+        int j = 0;
+
+        for (int i = 0; i < size; i++) {
+            while (j < other.size && other.ids[j] < ids[i])
+                j++;
+
+            if (j < other.size && other.ids[j] == ids[i])
+                b.add(ids[i], keys[i]);
+        }
+
+        return b.build();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+
+    /**
+     * Collects ids in any order and builds a sorted, duplicate-free set.
+     */
+    static final class Builder {
+
+        private long[] ids;
+        private String[] keys;
+        private int size = 0;
+
+        Builder(int capacity) {
+            ids = new long[Math.max(capacity, 16)];
+            keys = new String[ids.length];
+        }
+
+        Builder add(long id, String key) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+
+            ids[size] = id;
+            keys[size] = key;
+            size++;
+            return this;
+        }
+
+        int size() {
+            return size;
+        }
+
+        IssueIdSet build() {
+            if (size == 0)
+                return EMPTY;
+
+            sort(0, size - 1);
+
+            /* paging over a changing result may return an issue twice */
+            int n = 1;
+            for (int i = 1; i < size; i++) {
+                if (ids[i] != ids[n - 1]) {
+                    ids[n] = ids[i];
+                    keys[n] = keys[i];
+                    n++;
+                }
+            }
+
+            return new IssueIdSet(ids, keys, n);
+        }
+
+        private void sort(int lo, int hi) {
+            while (hi - lo > 16) {
+                long pivot = ids[(lo + hi) >>> 1];
+                int i = lo;
+                int j = hi;
+
+                while (i <= j) {
+                    while (ids[i] < pivot)
+                        i++;
+                    while (ids[j] > pivot)
+                        j--;
+                    if (i <= j)
+                        swap(i++, j--);
+                }
+
+                /* recurse into the smaller half to bound the stack depth */
+                if (j - lo < hi - i) {
+                    sort(lo, j);
+                    lo = i;
+                } else {
+                    sort(i, hi);
+                    hi = j;
+                }
+            }
+
+            for (int i = lo + 1; i <= hi; i++) {
+                for (int j = i; j > lo && ids[j - 1] > ids[j]; j--)
+                    swap(j - 1, j);
+            }
+        }
+
+        private void swap(int a, int b) {
+            long id = ids[a];
+            ids[a] = ids[b];
+            ids[b] = id;
+
+            String key = keys[a];
+            keys[a] = keys[b];
+            keys[b] = key;
+        }
+    }
+}
@@ -0,0 +1,825 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import net.rcarz.jiraclient.util.JsonUtil;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * A local store of issues that reads them without network I/O.
+ * <p>
+ * The raw issue JSON is appended to segment files. Each record holds its
+ * length, a CRC32, the issue key and the JSON; removing an issue appends a
+ * record without JSON. Segments are never modified, only appended to and,
+ * once {@link #compact()} has copied their live records to new segments,
+ * deleted.
+ * <p>
+ * Keys are located through an open addressing hash table in a
+ * memory-mapped index file, which maps the hash of a key to the segment
+ * and offset of its latest record. The index is marked clean when the
+ * store is closed. After a crash it is rebuilt by scanning the segments,
+ * and a record torn by the crash at the end of the last segment is cut
+ * off. A damaged record in any other segment fails the open, since the
+ * records after it can't be found.
+ * <p>
+ * Writes reach the disk when the store is flushed or closed, or when a
+ * segment is full. The store is thread-safe: lookups run in parallel,
+ * writes one at a time. A directory must not be opened by two stores at
+ * the same time.
+ */
+public final class IssueStore implements Closeable {
+
+    /**
+     * Name of the index file in the store directory.
+     */
+    public static final String INDEX = "index";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int MAGIC = 0x4a495353;
+    private static final int HEADER_SIZE = 32;
+    private static final int SLOT_SIZE = 24;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int PAGE_SIZE = 100;
+
+    /* a record: length of the rest, CRC32 of the rest, key length, key, JSON */
+    private static final int RECORD_HEADER = 8;
+
+    /* slot hashes: 0 is an empty slot, -1 a slot whose key was removed */
+    private static final long EMPTY = 0;
+    private static final long REMOVED = -1;
+
+    private final RestClient restclient;
+    private final Path directory;
+    private final long segmentSize;
+    private final TreeMap<Integer, FileChannel> segments = new TreeMap<Integer, FileChannel>();
+
+    /* positional reads of the channels and of the index are safe in
+       parallel; whatever changes the index, the segments or the counts
+       holds the write lock */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private int capacity;
+    private int live = 0;
+    private int removed = 0;
+    private long deadBytes = 0;
+    private int active = 0;
+    private long activeSize = 0;
+    private boolean closed = false;
+
+    /**
+     * Opens or creates a store with segments of 64 MiB.
+     *
+     * @param restclient REST client the issues are bound to, or null
+     * @param directory Store directory
+     *
+     * @throws IOException when the store can't be opened or recovered
+     */
+    public IssueStore(RestClient restclient, Path directory) throws IOException {
+        this(restclient, directory, 64L * 1024 * 1024);
+    }
+
+    /**
+     * Opens or creates a store.
+     *
+     * @param restclient REST client the issues are bound to, or null
+     * @param directory Store directory
+     * @param segmentSize Size after which a new segment is started
+     *
+     * @throws IOException when the store can't be opened or recovered
+     */
+    public IssueStore(RestClient restclient, Path directory, long segmentSize) throws IOException {
+        this.restclient = restclient;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+
+        try {
+            Files.createDirectories(directory);
+            openSegments();
+
+            if (!openIndex())
+                rebuild();
+
+            /* until close, a crash has to rebuild the index */
+            index.putInt(8, 0);
+            index.force();
+
+            if (segments.isEmpty())
+                roll();
+
+            active = segments.lastKey();
+            activeSize = segments.get(active).size();
+        } catch (IOException | RuntimeException ex) {
+            closeChannels();
+            throw ex;
+        }
+    }
+
+    /**
+     * Gets the number of stored issues.
+     *
+     * @return the number of issues
+     */
+    public int size() {
+        lock.readLock().lock();
+
+        try {
+            return live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the bytes taken by superseded and removal records, which
+     * {@link #compact()} gives back.
+     *
+     * @return the reclaimable bytes
+     */
+    public long getReclaimableBytes() {
+        lock.readLock().lock();
+
+        try {
+            return deadBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets an issue.
+     *
+     * @param key Issue key
+     *
+     * @return the issue or null when it isn't stored
+     *
+     * @throws JiraException when the record can't be read or decoded
+     */
+    public Issue get(String key) throws JiraException {
+        String json = getJson(key);
+
+        if (json == null)
+            return null;
+
+        try {
+            if (restclient != null && restclient.isTypedBinding())
+                return JsonBinding.readIssue(restclient, json);
+
+            return new Issue(restclient, JsonUtil.OBJECT_MAPPER.readValue(json, Map.class));
+        } catch (IOException ex) {
+            throw new JiraException("Failed to decode issue " + key, ex);
+        }
+    }
+
+    /**
+     * Gets the stored JSON of an issue.
+     *
+     * @param key Issue key
+     *
+     * @return the JSON or null when the issue isn't stored
+     *
+     * @throws JiraException when the record can't be read
+     */
+    public String getJson(String key) throws JiraException {
+        lock.readLock().lock();
+
+        try {
+            checkOpen();
+            int slot = find(key, hash(key));
+
+            if (slot < 0)
+                return null;
+
+            ByteBuffer record = readRecord(getSegment(slot), getOffset(slot), getLength(slot));
+            int start = RECORD_HEADER + 4 + record.getInt(RECORD_HEADER);
+
+            return new String(record.array(), start, record.capacity() - start, StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            throw new JiraException("Failed to read issue " + key, ex);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stores the JSON of an issue, replacing what was stored for its key.
+     *
+     * @param json Issue JSON with a key attribute
+     *
+     * @throws JiraException when the JSON has no key or can't be written
+     */
+    public void put(String json) throws JiraException {
+        String key;
+
+        try {
+            key = readKey(json.toCharArray(), 0, json.length());
+        } catch (IOException ex) {
+            throw new JiraException("Failed to read issue key", ex);
+        }
+
+        if (key == null)
+            throw new JiraException("Issue JSON has no key");
+
+        put(key, json);
+    }
+
+    /**
+     * Stores the JSON of an issue, replacing what was stored for the key.
+     *
+     * @param key Issue key
+     * @param json Issue JSON
+     *
+     * @throws JiraException when the record can't be written
+     */
+    public void put(String key, String json) throws JiraException {
+        if (json == null || json.isEmpty())
+            throw new JiraException("Empty JSON for issue " + key);
+
+        lock.writeLock().lock();
+
+        try {
+            checkOpen();
+            write(key, json.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException ex) {
+            throw new JiraException("Failed to store issue " + key, ex);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes an issue.
+     *
+     * @param key Issue key
+     *
+     * @return true when the issue was stored
+     *
+     * @throws JiraException when the removal can't be written
+     */
+    public boolean remove(String key) throws JiraException {
+        lock.writeLock().lock();
+
+        try {
+            checkOpen();
+
+            if (find(key, hash(key)) < 0)
+                return false;
+
+            write(key, new byte[0]);
+            return true;
+        } catch (IOException ex) {
+            throw new JiraException("Failed to remove issue " + key, ex);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stores the issues matching a query as the server returns them.
+     *
+     * @param jql JQL statement
+     * @param includedFields Fields to store or null for the navigable
+     * fields
+     *
+     * @return the number of stored issues
+     *
+     * @throws JiraException when the search or a write fails
+     */
+    public int load(String jql, String includedFields) throws JiraException {
+        SearchPager pager = new SearchPager(restclient, null, jql, includedFields, null, PAGE_SIZE);
+        int stored = 0;
+
+        try {
+            while (pager.hasNext()) {
+                SearchPageParser.RawPage page = SearchPageParser.scan(pager.fetch());
+
+                for (int i = 0; i < page.count; i++) {
+                    int start = page.offsets[i * 2];
+                    int end = page.offsets[i * 2 + 1];
+                    String key = readKey(page.text, start, end);
+
+                    if (key != null) {
+                        put(key, new String(page.text, start, end - start));
+                        stored++;
+                    }
+                }
+
+                pager.advance(page.startAt, page.count, page.total);
+            }
+        } catch (JiraException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new JiraException("Failed to load issues", ex);
+        }
+
+        return stored;
+    }
+
+    /**
+     * Copies the live records to new segments and deletes the old ones.
+     * Until the old segments are gone, a crash only leaves extra copies
+     * that recovery reads in order.
+     *
+     * @throws JiraException when a record can't be copied
+     */
+    public void compact() throws JiraException {
+        lock.writeLock().lock();
+
+        try {
+            checkOpen();
+            roll();
+            int first = active;
+
+            for (int slot = 0; slot < capacity; slot++) {
+                long h = getHash(slot);
+
+                if (h == EMPTY || h == REMOVED || getSegment(slot) >= first)
+                    continue;
+
+                ByteBuffer record = readRecord(getSegment(slot), getOffset(slot), getLength(slot));
+                long position = append(record);
+                setSlot(slot, active, getLength(slot), position);
+            }
+
+            segments.get(active).force(true);
+            index.force();
+
+            /* oldest first, so a removal record is never deleted before the
+               records it removes */
+            for (Integer segment : new ArrayList<Integer>(segments.headMap(first).keySet())) {
+                segments.remove(segment).close();
+                Files.deleteIfExists(getSegmentFile(segment));
+            }
+
+            deadBytes = 0;
+        } catch (IOException ex) {
+            throw new JiraException("Failed to compact issue store", ex);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forces the written records and the index to disk.
+     *
+     * @throws IOException when the segment can't be forced
+     */
+    public void flush() throws IOException {
+        lock.writeLock().lock();
+
+        try {
+            if (!closed)
+                force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Flushes the store, marks the index clean and releases the files.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+
+        try {
+            if (closed)
+                return;
+
+            force();
+            index.putInt(8, 1);
+            index.force();
+        } finally {
+            if (!closed) {
+                closed = true;
+                closeChannels();
+            }
+
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void force() throws IOException {
+        segments.get(active).force(true);
+        writeCounts();
+        index.force();
+    }
+
+    private void checkOpen() throws JiraException {
+        if (closed)
+            throw new JiraException("Issue store is closed");
+    }
+
+    private void write(String key, byte[] value) throws IOException {
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        int length = 4 + k.length + value.length;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + length);
+
+        record.putInt(length).putInt(0).putInt(k.length).put(k).put(value);
+
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), RECORD_HEADER, length);
+        record.putInt(4, (int) crc.getValue());
+        record.flip();
+
+        long position = append(record);
+        apply(key, active, position, record.capacity(), value.length == 0);
+    }
+
+    /**
+     * Points the index at a record, or drops the key for a removal record.
+     */
+    private void apply(String key, int segment, long position, int length, boolean removal)
+            throws IOException {
+
+        long h = hash(key);
+        int slot = find(key, h);
+
+        if (slot >= 0)
+            deadBytes += getLength(slot);
+
+        if (removal) {
+            deadBytes += length;
+
+            if (slot >= 0) {
+                index.putLong(getBase(slot), REMOVED);
+                live--;
+                removed++;
+            }
+
+            return;
+        }
+
+        if (slot < 0)
+            slot = insert(h);
+
+        setSlot(slot, segment, length, position);
+    }
+
+    private long append(ByteBuffer record) throws IOException {
+        if (activeSize > 0 && activeSize + record.remaining() > segmentSize)
+            roll();
+
+        FileChannel channel = segments.get(active);
+        long position = activeSize;
+
+        while (record.hasRemaining())
+            activeSize += channel.write(record, activeSize);
+
+        return position;
+    }
+
+    /**
+     * Seals the active segment and starts a new one.
+     */
+    private void roll() throws IOException {
+        if (!segments.isEmpty())
+            segments.get(active).force(true);
+
+        active = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        segments.put(active, FileChannel.open(getSegmentFile(active), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE));
+        activeSize = 0;
+    }
+
+    private ByteBuffer readRecord(int segment, long offset, int length) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(length);
+        readFully(segments.get(segment), record, offset);
+
+        if (!isIntact(record))
+            throw new IOException("Corrupt record in segment " + segment + " at " + offset);
+
+        record.flip();
+        return record;
+    }
+
+    private String readKeyAt(int slot) throws IOException {
+        FileChannel channel = segments.get(getSegment(slot));
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER + 4);
+        readFully(channel, header, getOffset(slot));
+
+        ByteBuffer key = ByteBuffer.allocate(header.getInt(RECORD_HEADER));
+        readFully(channel, key, getOffset(slot) + RECORD_HEADER + 4);
+        return new String(key.array(), StandardCharsets.UTF_8);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + buffer.position());
+
+            if (n < 0)
+                throw new EOFException("Record at " + position + " is cut short");
+        }
+    }
+
+    private static boolean isIntact(ByteBuffer record) {
+        int length = record.getInt(0);
+
+        if (length < 4 || record.capacity() != RECORD_HEADER + length)
+            return false;
+
+        int keyLength = record.getInt(RECORD_HEADER);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), RECORD_HEADER, length);
+
+        return (int) crc.getValue() == record.getInt(4) && keyLength >= 0 && keyLength <= length - 4;
+    }
+
+    private void openSegments() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+
+                if (name.equals(INDEX + ".tmp"))
+                    Files.deleteIfExists(file);
+                else if (name.matches("[0-9]{8}" + SEGMENT_SUFFIX))
+                    segments.put(Integer.parseInt(name.substring(0, 8)),
+                            FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE));
+            }
+        }
+    }
+
+    /**
+     * Maps the index file.
+     *
+     * @return true when the index was closed cleanly and can be used as it
+     * is, false when it was reset and has to be rebuilt
+     */
+    private boolean openIndex() throws IOException {
+        indexChannel = FileChannel.open(directory.resolve(INDEX), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        if (indexChannel.size() >= HEADER_SIZE) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(indexChannel, header, 0);
+            int size = header.getInt(4);
+
+            if (header.getInt(0) == MAGIC && header.getInt(8) == 1 && size > 0 && Integer.bitCount(size) == 1
+                    && indexChannel.size() == HEADER_SIZE + (long) size * SLOT_SIZE) {
+
+                capacity = size;
+                index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexChannel.size());
+                live = index.getInt(12);
+                removed = index.getInt(16);
+                deadBytes = index.getLong(24);
+                return true;
+            }
+        }
+
+        capacity = INITIAL_CAPACITY;
+        indexChannel.truncate(0);
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                HEADER_SIZE + (long) capacity * SLOT_SIZE);
+        index.putInt(0, MAGIC);
+        index.putInt(4, capacity);
+        return false;
+    }
+
+    /**
+     * Replays every segment into the empty index, oldest first.
+     */
+    private void rebuild() throws IOException {
+        for (Map.Entry<Integer, FileChannel> segment : segments.entrySet())
+            scan(segment.getKey(), segment.getValue(), segment.getKey().equals(segments.lastKey()));
+    }
+
+    /**
+     * Replays the records of a segment. Only the last segment can end in a
+     * record torn by a crash, the others were forced before the next one
+     * was started.
+     */
+    private void scan(int segment, FileChannel channel, boolean last) throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+
+        while (position + RECORD_HEADER + 4 <= size) {
+            header.clear();
+            readFully(channel, header, position);
+            int length = header.getInt(0);
+
+            if (length < 4 || position + RECORD_HEADER + length > size)
+                break;
+
+            ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + length);
+            readFully(channel, record, position);
+
+            if (!isIntact(record))
+                break;
+
+            int keyLength = record.getInt(RECORD_HEADER);
+            String key = new String(record.array(), RECORD_HEADER + 4, keyLength, StandardCharsets.UTF_8);
+            apply(key, segment, position, record.capacity(), length == 4 + keyLength);
+            position += record.capacity();
+        }
+
+        if (position == size)
+            return;
+
+        if (!last)
+            throw new IOException("Corrupt record in segment " + segment + " at " + position);
+
+        /* whatever follows the last intact record was torn by a crash */
+        channel.truncate(position);
+    }
+
+    private int find(String key, long h) throws IOException {
+        for (int i = 0, slot = (int) h & (capacity - 1); i < capacity; i++, slot = (slot + 1) & (capacity - 1)) {
+            long current = getHash(slot);
+
+            if (current == EMPTY)
+                return -1;
+            if (current == h && readKeyAt(slot).equals(key))
+                return slot;
+        }
+
+        return -1;
+    }
+
+    private int insert(long h) throws IOException {
+        if (live + removed + 1 > capacity / 4 * 3)
+            resize(live + 1 > capacity / 2 ? capacity * 2 : capacity);
+
+        int slot = (int) h & (capacity - 1);
+
+        while (getHash(slot) != EMPTY && getHash(slot) != REMOVED)
+            slot = (slot + 1) & (capacity - 1);
+
+        if (getHash(slot) == REMOVED)
+            removed--;
+
+        index.putLong(getBase(slot), h);
+        live++;
+        return slot;
+    }
+
+    /**
+     * Moves the live slots to a new index file, which also drops the slots
+     * of removed keys.
+     */
+    private void resize(int newCapacity) throws IOException {
+        Path temp = directory.resolve(INDEX + ".tmp");
+        FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer next = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                HEADER_SIZE + (long) newCapacity * SLOT_SIZE);
+
+        next.putInt(0, MAGIC);
+        next.putInt(4, newCapacity);
+
+        for (int slot = 0; slot < capacity; slot++) {
+            long h = getHash(slot);
+
+            if (h == EMPTY || h == REMOVED)
+                continue;
+
+            int target = (int) h & (newCapacity - 1);
+
+            while (next.getLong(getBase(target)) != EMPTY)
+                target = (target + 1) & (newCapacity - 1);
+
+            for (int i = 0; i < SLOT_SIZE; i += 8)
+                next.putLong(getBase(target) + i, index.getLong(getBase(slot) + i));
+        }
+
+        next.force();
+        Attachment.moveReplacing(temp, directory.resolve(INDEX));
+        indexChannel.close();
+
+        indexChannel = channel;
+        index = next;
+        capacity = newCapacity;
+        removed = 0;
+    }
+
+    private void writeCounts() {
+        index.putInt(12, live);
+        index.putInt(16, removed);
+        index.putLong(24, deadBytes);
+    }
+
+    private void closeChannels() {
+        for (FileChannel channel : segments.values()) {
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                /* nothing left to lose */
+            }
+        }
+
+        segments.clear();
+
+        try {
+            if (indexChannel != null)
+                indexChannel.close();
+        } catch (IOException ex) {
+            /* nothing left to lose */
+        }
+    }
+
+    private Path getSegmentFile(int segment) {
+        return directory.resolve(String.format("%08d", segment) + SEGMENT_SUFFIX);
+    }
+
+    private static int getBase(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private long getHash(int slot) {
+        return index.getLong(getBase(slot));
+    }
+
+    private int getSegment(int slot) {
+        return index.getInt(getBase(slot) + 8);
+    }
+
+    private int getLength(int slot) {
+        return index.getInt(getBase(slot) + 12);
+    }
+
+    private long getOffset(int slot) {
+        return index.getLong(getBase(slot) + 16);
+    }
+
+    private void setSlot(int slot, int segment, int length, long offset) {
+        index.putInt(getBase(slot) + 8, segment);
+        index.putInt(getBase(slot) + 12, length);
+        index.putLong(getBase(slot) + 16, offset);
+    }
+
+    /**
+     * 64-bit FNV-1a, kept clear of the empty and removed markers.
+     */
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+
+        h ^= h >>> 29;
+        return h == EMPTY || h == REMOVED ? 1 : h;
+    }
+
+    /**
+     * Reads the top-level key attribute of an issue.
+     */
+    private static String readKey(char[] text, int start, int end) throws IOException {
+        try (JsonParser p = JsonUtil.OBJECT_MAPPER.getFactory().createParser(text, start, end - start)) {
+            if (p.nextToken() != JsonToken.START_OBJECT)
+                return null;
+
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.getCurrentName();
+                p.nextToken();
+
+                if (name.equals("key") && p.getCurrentToken() == JsonToken.VALUE_STRING)
+                    return p.getText();
+
+                p.skipChildren();
+            }
+        }
+
+        return null;
+    }
+}
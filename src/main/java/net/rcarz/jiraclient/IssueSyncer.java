@@ -0,0 +1,406 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import net.rcarz.jiraclient.util.JsonUtil;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Mirrors the issues matching a JQL query incrementally, reporting each
+ * new or changed issue to a {@link Listener}.
+ * <p>
+ * A state file per query remembers the watermark, the latest update time
+ * that was seen. Later runs only search for issues updated since the
+ * watermark, less a skew that covers clock differences and the minute
+ * resolution of JQL, ordered by update time. Issues within the skew that
+ * were already reported with the same update time are skipped, so a run
+ * costs about as much as the churn since the previous one.
+ * <p>
+ * Each page is searched afresh from the latest update time seen so far,
+ * rather than by position in one search: an issue updated during the run
+ * moves behind the issues not read yet, which would shift them past the
+ * next page. The same skipping of issues already reported drops the
+ * overlap between pages.
+ * <p>
+ * The state is saved after every page of issues and when a run ends, so a
+ * run that fails resumes close to where it stopped. Issues are reported at
+ * least once.
+ */
+public final class IssueSyncer {
+
+    /**
+     * Kind of change reported for an issue.
+     */
+    public enum Event {
+        /**
+         * The issue was created after the watermark of the previous run.
+         */
+        CREATED,
+
+        /**
+         * The issue was created before the watermark of the previous run.
+         */
+        UPDATED
+    }
+
+    /**
+     * Receives the new and changed issues in the order of their update
+     * time.
+     */
+    public interface Listener {
+
+        /**
+         * @param event Kind of change
+         * @param issue Issue with the fields of the search
+         *
+         * @throws Exception to stop the run; the issue is reported again
+         * by the next run
+         */
+        void onIssue(Event event, Issue issue) throws Exception;
+    }
+
+    /**
+     * Outcome of a sync run.
+     */
+    public static final class Result {
+        private int created = 0;
+        private int updated = 0;
+        private int skipped = 0;
+        private Date watermark = null;
+
+        /**
+         * @return the number of issues reported as created
+         */
+        public int getCreated() {
+            return created;
+        }
+
+        /**
+         * @return the number of issues reported as updated
+         */
+        public int getUpdated() {
+            return updated;
+        }
+
+        /**
+         * @return the number of issues skipped as already reported
+         */
+        public int getSkipped() {
+            return skipped;
+        }
+
+        /**
+         * @return the latest update time seen, or null when no issue
+         * matched yet
+         */
+        public Date getWatermark() {
+            return watermark;
+        }
+    }
+
+    /**
+     * What a previous run has seen: the watermark and the update times of
+     * the issues within the skew of it.
+     */
+    private static final class State {
+        long watermark = -1;
+        final Map<String, Long> seen = new HashMap<String, Long>();
+    }
+
+    private static final int PAGE_SIZE = 100;
+    private static final Pattern ORDER_BY = Pattern.compile("(?i)ORDER\\s+BY\\s");
+
+    private final RestClient restclient;
+    private final Path directory;
+    private long skew = 5 * 60 * 1000;
+    private String includedFields = null;
+    private String expandFields = null;
+
+    /**
+     * Creates a syncer with a skew of five minutes.
+     *
+     * @param restclient REST client instance
+     * @param directory Directory for the state files
+     */
+    public IssueSyncer(RestClient restclient, Path directory) {
+        this.restclient = restclient;
+        this.directory = directory;
+    }
+
+    /**
+     * Sets how far before the watermark each run starts searching.
+     *
+     * @param skew Skew in milliseconds
+     *
+     * @return this syncer
+     */
+    public IssueSyncer skew(long skew) {
+        this.skew = skew;
+        return this;
+    }
+
+    /**
+     * Sets the fields to retrieve. The created and updated fields are
+     * always added.
+     *
+     * @param includedFields Comma separated field names or null for the
+     * navigable fields
+     *
+     * @return this syncer
+     */
+    public IssueSyncer fields(String includedFields) {
+        this.includedFields = includedFields;
+        return this;
+    }
+
+    /**
+     * Sets the fields to expand.
+     *
+     * @param expandFields Comma separated expansions or null
+     *
+     * @return this syncer
+     */
+    public IssueSyncer expand(String expandFields) {
+        this.expandFields = expandFields;
+        return this;
+    }
+
+    /**
+     * Reports the issues matching the query that changed since the
+     * previous run. The first run reports every issue as created.
+     *
+     * @param jql JQL statement. An ORDER BY clause is replaced.
+     * @param listener Receives the changes
+     *
+     * @return the outcome of the run
+     *
+     * @throws JiraException when the search, the listener or the state
+     * file fails
+     */
+    public Result sync(String jql, Listener listener) throws JiraException {
+        Path file = getStateFile(jql);
+        State state = readState(file);
+        long previous = state.watermark;
+        long since = previous;
+        Result result = new Result();
+
+        try {
+            SearchPager pager = new SearchPager(restclient, null,
+                    getQuery(jql, since, skew, System.currentTimeMillis()), getFields(), expandFields, PAGE_SIZE);
+
+            while (pager.hasNext()) {
+                Map page = JsonUtil.OBJECT_MAPPER.readValue(pager.fetch(), Map.class);
+                List<Issue> issues = Field.getResourceArray(Issue.class, page.get("issues"), restclient);
+
+                for (Issue issue : issues) {
+                    long updated = getTime(issue.getUpdatedDate());
+                    Long seen = state.seen.get(issue.getId());
+
+                    if (seen != null && seen == updated) {
+                        result.skipped++;
+                        continue;
+                    }
+
+                    if (previous < 0 || getTime(issue.getCreatedDate()) > previous) {
+                        listener.onIssue(Event.CREATED, issue);
+                        result.created++;
+                    } else {
+                        listener.onIssue(Event.UPDATED, issue);
+                        result.updated++;
+                    }
+
+                    state.seen.put(issue.getId(), updated);
+                    state.watermark = Math.max(state.watermark, updated);
+                }
+
+                writeState(file, jql, state);
+
+                if (!pager.advance(Field.getInteger(page.get("startAt")), issues.size(),
+                        Field.getInteger(page.get("total"))))
+                    break;
+
+                /* JQL dates have minutes, so when a page didn't get a minute
+                   further the next one is read by position instead */
+                if (state.watermark - since >= 60000) {
+                    since = state.watermark;
+                    pager.restart(getQuery(jql, since, skew, System.currentTimeMillis()));
+                }
+            }
+        } catch (Exception ex) {
+            JiraException failure = ex instanceof JiraException
+                    ? (JiraException) ex
+                    : new JiraException("Failed to sync issues", ex);
+
+            /* resume close to where the run stopped, but keep the cause */
+            try {
+                writeState(file, jql, state);
+            } catch (JiraException suppressed) {
+                failure.addSuppressed(suppressed);
+            }
+
+            throw failure;
+        }
+
+        result.watermark = state.watermark >= 0 ? new Date(state.watermark) : null;
+        return result;
+    }
+
+    /**
+     * Builds the search for a run: the issues of the query updated since
+     * the watermark less the skew, oldest update first. The lower bound is
+     * a relative date in whole minutes, which doesn't depend on the time
+     * zone of the JIRA user.
+     */
+    static String getQuery(String jql, long watermark, long skew, long now) {
+        String query = jql != null ? stripOrderBy(jql).trim() : "";
+
+        if (watermark >= 0) {
+            long minutes = Math.max((now - watermark + skew + 59999) / 60000, 1);
+            String since = "updated >= -" + minutes + "m";
+
+            query = query.isEmpty() ? since : "(" + query + ") AND " + since;
+        }
+
+        return (query + " ORDER BY updated ASC").trim();
+    }
+
+    /**
+     * Cuts off the ORDER BY clause, which is the first ORDER BY that starts
+     * a word outside of a quoted string.
+     */
+    private static String stripOrderBy(String jql) {
+        char quote = 0;
+
+        for (int i = 0; i < jql.length(); i++) {
+            char c = jql.charAt(i);
+
+            if (quote != 0) {
+                if (c == '\\')
+                    i++;
+                else if (c == quote)
+                    quote = 0;
+            } else if (c == '"' || c == '\'')
+                quote = c;
+            else if ((i == 0 || Character.isWhitespace(jql.charAt(i - 1)))
+                    && ORDER_BY.matcher(jql).region(i, jql.length()).lookingAt())
+                return jql.substring(0, i);
+        }
+
+        return jql;
+    }
+
+    private String getFields() {
+        if (includedFields == null || includedFields.contains("*all") || includedFields.contains("*navigable"))
+            return includedFields;
+
+        return includedFields + "," + Field.CREATED_DATE + "," + Field.UPDATED_DATE;
+    }
+
+    private Path getStateFile(String jql) throws JiraException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            StringBuilder name = new StringBuilder("sync-");
+
+            for (byte b : digest.digest(String.valueOf(jql).getBytes(StandardCharsets.UTF_8)))
+                name.append(String.format("%02x", b & 0xff));
+
+            return directory.resolve(name.toString());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new JiraException("Failed to name sync state", ex);
+        }
+    }
+
+    private State readState(Path file) throws JiraException {
+        State state = new State();
+
+        if (!Files.exists(file))
+            return state;
+
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String[] parts = line.split("\t");
+
+                try {
+                    if (parts[0].equals("watermark") && parts.length == 2)
+                        state.watermark = Long.parseLong(parts[1]);
+                    else if (parts[0].equals("seen") && parts.length == 3)
+                        state.seen.put(parts[1], Long.parseLong(parts[2]));
+                } catch (NumberFormatException ex) {
+                    /* a damaged line only costs a repeated event */
+                }
+            }
+        } catch (IOException ex) {
+            throw new JiraException("Failed to read sync state " + file, ex);
+        }
+
+        return state;
+    }
+
+    /**
+     * Saves the state, keeping only the issues that the next search can
+     * return again because they are within the skew of the watermark.
+     */
+    private void writeState(Path file, String jql, State state) throws JiraException {
+        long floor = state.watermark - skew;
+
+        for (Iterator<Long> seen = state.seen.values().iterator(); seen.hasNext(); ) {
+            if (seen.next() < floor)
+                seen.remove();
+        }
+
+        List<String> lines = new ArrayList<String>(state.seen.size() + 2);
+        lines.add("jql\t" + String.valueOf(jql).replaceAll("\\s+", " "));
+        lines.add("watermark\t" + state.watermark);
+
+        for (Map.Entry<String, Long> seen : state.seen.entrySet())
+            lines.add("seen\t" + seen.getKey() + "\t" + seen.getValue());
+
+        Path temp = null;
+
+        try {
+            Files.createDirectories(directory);
+            temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            Files.write(temp, lines, StandardCharsets.UTF_8);
+            Attachment.moveReplacing(temp, file);
+            temp = null;
+        } catch (IOException ex) {
+            throw new JiraException("Failed to write sync state " + file, ex);
+        } finally {
+            Attachment.deleteQuietly(temp);
+        }
+    }
+
+    private static long getTime(Date date) {
+        return date != null ? date.getTime() : 0;
+    }
+}
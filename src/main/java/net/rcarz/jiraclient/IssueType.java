@@ -19,8 +19,11 @@
 
 package net.rcarz.jiraclient;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
 import net.rcarz.jiraclient.util.JsonUtil;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -69,6 +72,32 @@ public class IssueType extends Resource {
             statuses = (List) map.get("statuses");
     }
 
+    @Override
+    boolean readField(String name, JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (name.equals("description"))
+            description = JsonBinding.readString(p);
+        else if (name.equals("iconUrl"))
+            iconUrl = JsonBinding.readString(p);
+        else if (name.equals("name"))
+            this.name = JsonBinding.readString(p);
+        else if (name.equals("subtask"))
+            subtask = JsonBinding.readBoolean(p);
+        else if (name.equals("fields")) {
+            Object value = JsonBinding.readUntyped(p, ctxt);
+            if (value instanceof Map)
+                fields = (Map) value;
+        }
+        else if (name.equals("statuses")) {
+            Object value = JsonBinding.readUntyped(p, ctxt);
+            if (value instanceof List)
+                statuses = (List) value;
+        }
+        else
+            return super.readField(name, p, ctxt);
+
+        return true;
+    }
+
     /**
      * Retrieves the given issue type record.
      *
@@ -24,13 +24,14 @@ import org.apache.http.client.HttpClient;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.impl.conn.PoolingClientConnectionManager;
 
-import java.io.IOException;
 import java.net.URI;
-import java.net.URISyntaxException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A simple JIRA REST client.
@@ -188,6 +189,40 @@ public class JiraClient {
         return Issue.count(restclient, jql);
     }
 
+    /**
+     * Search for the ids and keys of the issues matching the given query,
+     * without retrieving any fields.
+     *
+     * @param jql JQL statement
+     *
+     * @return the ids and keys of all matching issues
+     *
+     * @throws JiraException when the search fails
+     */
+    public IssueIdSet searchIds(String jql) throws JiraException {
+        return Issue.searchIds(restclient, jql);
+    }
+
+    /**
+     * Search for issues with the given query and stream the results without
+     * keeping consumed issues in memory.
+     *
+     * @param jql JQL statement
+     * @param includedFields Specifies which issue fields will be included in
+     * the result
+     * @param maxResults if non-<code>null</code>, defines the page size
+     *
+     * @return a streaming search result
+     *
+     * @throws JiraException when the search fails
+     */
+    public Issue.StreamingSearchResult searchIssuesStreaming(String jql, String includedFields,
+            Integer maxResults) throws JiraException {
+
+        return Issue.searchStreaming(restclient, null, jql, includedFields, null,
+                maxResults, null, null);
+    }
+
     /**
      * Search for issues with the given query.
      *
@@ -826,74 +861,127 @@ public class JiraClient {
         return Component.get(restclient, id);
     }
 
+    /**
+     * Keeps only the changes of the given fields in a history.
+     *
+     * @param histoy History records
+     * @param fields Comma separated field names
+     *
+     * @return the records with matching changes
+     *
+     * @see ChangeLogFilter
+     */
     public ArrayList<IssueHistory> filterChangeLog(List<IssueHistory> histoy, String fields) {
-        ArrayList<IssueHistory> result = new ArrayList<IssueHistory>(histoy.size());
-        fields = "," + fields + ",";
-
-        for (IssueHistory record : histoy) {
-            ArrayList<IssueHistoryItem> list = new ArrayList<IssueHistoryItem>(record.getChanges().size());
-            for (IssueHistoryItem item : record.getChanges()) {
-                if (fields.contains(item.getField())) {
-                    list.add(item);
-                }
-            }
+        return new ChangeLogFilter(fields).filter(histoy);
+    }
 
-            if (list.size() > 0) {
-                result.add(new IssueHistory(record, list));
-            }
-        }
-        return result;
+    /**
+     * Keeps only the changes of the given fields in a history as it is
+     * streamed, e.g. from {@link #getIssueChangeLogStream(String)}.
+     *
+     * @param history History records
+     * @param fields Comma separated field names
+     *
+     * @return a lazy stream of the records with matching changes
+     */
+    public Stream<IssueHistory> filterChangeLog(Stream<IssueHistory> history, String fields) {
+        return new ChangeLogFilter(fields).filter(history);
     }
 
-    public ArrayList<IssueHistory> getIssueChangeLog(Issue issue) throws JiraException {
-        try {
-            ArrayList<IssueHistory> changes = null;
-            String resultJson = getNextPortion(issue, 0);
-            if (resultJson==null) {
-                return changes;
-            }
-            while (true) {
+    /**
+     * Keeps only the changes of the given fields in the histories of many
+     * issues, filtering the issues in parallel.
+     *
+     * @param histories History records by issue key
+     * @param fields Comma separated field names
+     *
+     * @return the records with matching changes by issue key
+     */
+    public Map<String, List<IssueHistory>> filterChangeLogs(
+            Map<String, ? extends List<IssueHistory>> histories, String fields) {
 
-                Map result = JsonUtil.OBJECT_MAPPER.readValue(resultJson, Map.class);
-                Object opers = result.get("changelog");
-                Integer totalObj = (Integer) ((Map) opers).get("total");
-                Map object = ((Map) opers);
-                List histories = (List) object.get("histories");
+        return new ChangeLogFilter(fields).filterAll(histories);
+    }
 
-                if (changes==null) {
-                    changes = new ArrayList<>(totalObj);
-                }
+    /**
+     * Retrieves the change history of an issue. The pages are fetched
+     * concurrently on the search executor of the REST client, if it has
+     * one, and one after the other on the calling thread otherwise.
+     *
+     * @param issue Issue to get the history of
+     *
+     * @return all history entries, oldest first, or null when the server
+     * sent no content
+     *
+     * @throws JiraException failed to obtain the history
+     */
+    public ArrayList<IssueHistory> getIssueChangeLog(Issue issue) throws JiraException {
+        int parallelism = restclient.getSearchExecutor() != null ? 4 : 1;
 
-                for (int i = 0; i < histories.size(); i++) {
-                    Object p = histories.get(i);
-                    if (p instanceof Map) {
-                        changes.add(new IssueHistory(restclient, ((Map) p)));
-                    }
-                }
+        try (ChangeLogIterator changes = new ChangeLogIterator(restclient, issue.id, parallelism)) {
+            if (changes.isEmptyResponse())
+                return null;
 
-                if (changes.size() >= totalObj) {
-                    break;
-                } else {
-                    resultJson = getNextPortion(issue, changes.size());
-                }
-            }
+            ArrayList<IssueHistory> history = new ArrayList<IssueHistory>(changes.getTotal());
 
-            return changes;
+            while (changes.hasNext())
+                history.add(changes.next());
+
+            return history;
+        } catch (JiraException ex) {
+            throw ex;
         } catch (Exception ex) {
+            /* the iterator wraps the failures of later pages */
+            if (ex.getCause() instanceof JiraException)
+                throw (JiraException) ex.getCause();
+
             throw new JiraException(ex.getMessage(), ex);
         }
     }
 
-    private String getNextPortion(Issue issue, Integer startAt)
-            throws URISyntaxException, RestException, IOException {
+    /**
+     * Streams the change history of an issue, fetching up to four pages at
+     * the same time.
+     *
+     * @param key Issue key or id
+     *
+     * @return the history entries, oldest first
+     *
+     * @throws JiraException failed to obtain the first page
+     *
+     * @see #getIssueChangeLogStream(String, int)
+     */
+    public Stream<IssueHistory> getIssueChangeLogStream(String key) throws JiraException {
+        return getIssueChangeLogStream(key, 4);
+    }
 
-        Map<String, String> params = new HashMap<String, String>();
-        if (startAt!=null) {
-            params.put("startAt", String.valueOf(startAt));
-        }
+    /**
+     * Streams the change history of an issue from the
+     * <code>issue/{key}/changelog</code> endpoint. Once the first page is
+     * known the following pages are fetched concurrently, a limited number
+     * ahead of the reader, so long histories are never held in memory as a
+     * whole.
+     * <p>
+     * Pages are fetched on the search executor of the REST client, or on
+     * a pool of their own. Close the stream when it isn't read to the end,
+     * so that the fetches in flight are cancelled. A page that fails to
+     * load ends the stream with a RuntimeException caused by a
+     * JiraException.
+     *
+     * @param key Issue key or id
+     * @param parallelism Number of pages fetched at the same time
+     *
+     * @return the history entries, oldest first
+     *
+     * @throws JiraException failed to obtain the first page
+     */
+    public Stream<IssueHistory> getIssueChangeLogStream(String key, int parallelism)
+            throws JiraException {
+
+        ChangeLogIterator changes = new ChangeLogIterator(restclient, key, parallelism);
+        Spliterator<IssueHistory> spliterator = Spliterators.spliteratorUnknownSize(changes,
+                Spliterator.ORDERED | Spliterator.NONNULL);
 
-        params.put("expand", "changelog.fields");
-        URI uri = restclient.buildURI(Issue.getBaseUri() + "issue/" + issue.id, params);
-        return restclient.get(uri);
+        return StreamSupport.stream(spliterator, false).onClose(changes::close);
     }
 }
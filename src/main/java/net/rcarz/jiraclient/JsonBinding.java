@@ -0,0 +1,441 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Typed JSON binding: reads issues and their common nested resources
+ * straight from the token stream instead of through a generic Map tree.
+ *
+ * Resources take part by overriding {@link Resource#readField}. Fields a
+ * resource doesn't know are kept as plain Maps/Lists (issues) or skipped.
+ */
+final class JsonBinding {
+
+    /**
+     * One page of search results.
+     */
+    static final class SearchPage {
+        int startAt = 0;
+        int maxResults = 0;
+        int total = 0;
+        List<Issue> issues = new ArrayList<Issue>();
+    }
+
+    private static final Map EMPTY = Collections.emptyMap();
+
+    /* attribute keys: the fields a search asked for, and the same set while
+       the fields of a top-level issue are read */
+    private static final String SEARCH_PROJECTION = "jira-client.searchProjection";
+    private static final String PROJECTION = "jira-client.projection";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .registerModule(createModule());
+
+    private JsonBinding() { }
+
+    private static SimpleModule createModule() {
+        SimpleModule module = new SimpleModule("jira-client-typed");
+
+        /* instances start from the defaults the Map-based constructors produce */
+        register(module, Issue.class, () -> new Issue());
+        register(module, User.class, () -> new User(null, EMPTY));
+        register(module, Status.class, () -> new Status(null, EMPTY));
+        register(module, StatusCategory.class, () -> new StatusCategory(null, EMPTY));
+        register(module, Priority.class, () -> new Priority(null, EMPTY));
+        register(module, IssueType.class, () -> new IssueType(null, EMPTY));
+        register(module, Resolution.class, () -> new Resolution(null, EMPTY));
+        register(module, Project.class, () -> new Project(null, EMPTY));
+        register(module, ProjectCategory.class, () -> new ProjectCategory(null, EMPTY));
+        register(module, Version.class, () -> new Version(null, EMPTY));
+        register(module, Component.class, () -> new Component(null, EMPTY));
+        register(module, Votes.class, () -> new Votes(null, EMPTY));
+        register(module, Watches.class, () -> new Watches(null, EMPTY));
+        module.addDeserializer(SearchPage.class, new SearchPageDeserializer());
+
+        return module;
+    }
+
+    private static <T extends Resource> void register(
+            SimpleModule module, Class<T> type, Supplier<T> supplier) {
+
+        module.addDeserializer(type, new ResourceDeserializer<T>(type, supplier));
+    }
+
+    private static ObjectReader reader(RestClient restclient, Class<?> type) {
+        ObjectReader reader = MAPPER.readerFor(type);
+        return restclient != null ? reader.withAttribute(RestClient.class, restclient) : reader;
+    }
+
+    /**
+     * Reads an issue.
+     *
+     * @param restclient REST client instance
+     * @param json JSON-encoded issue
+     *
+     * @return an issue instance or null if json is empty
+     */
+    static Issue readIssue(RestClient restclient, String json) throws IOException {
+        return reader(restclient, Issue.class).readValue(json);
+    }
+
+    /**
+     * Reads an issue into an existing instance.
+     *
+     * @param restclient REST client instance
+     * @param json JSON-encoded issue
+     * @param issue Issue to update
+     */
+    static void readIssue(RestClient restclient, String json, Issue issue) throws IOException {
+        reader(restclient, Issue.class).withValueToUpdate(issue).readValue(json);
+    }
+
+    /**
+     * Reads an issue from a parser positioned on its start.
+     *
+     * @param restclient REST client instance
+     * @param p JSON parser
+     * @param projection Issue fields to keep or null to keep all
+     *
+     * @return an issue instance or null if the object is empty
+     */
+    static Issue readIssue(RestClient restclient, JsonParser p, Set<String> projection)
+            throws IOException {
+
+        ObjectReader reader = reader(restclient, Issue.class);
+
+        if (projection != null)
+            reader = reader.withAttribute(PROJECTION, projection);
+
+        return reader.readValue(p);
+    }
+
+    /**
+     * Reads one page of search results.
+     *
+     * @param restclient REST client instance
+     * @param json JSON-encoded search result
+     *
+     * @return the page
+     */
+    static SearchPage readSearchPage(RestClient restclient, String json) throws IOException {
+        return readSearchPage(restclient, json, null);
+    }
+
+    /**
+     * Reads one page of search results, skipping issue fields that aren't
+     * in the projection.
+     *
+     * @param restclient REST client instance
+     * @param json JSON-encoded search result
+     * @param projection Issue fields to keep or null to keep all
+     *
+     * @return the page
+     */
+    static SearchPage readSearchPage(RestClient restclient, String json, Set<String> projection)
+            throws IOException {
+
+        ObjectReader reader = reader(restclient, SearchPage.class);
+
+        if (projection != null)
+            reader = reader.withAttribute(SEARCH_PROJECTION, projection);
+
+        return reader.readValue(json);
+    }
+
+    /**
+     * Gets the projection for the issue fields about to be read. Only the
+     * top-level issues of a search page have one; it is cleared here so
+     * that nested issues (parent, subtasks) are read in full.
+     */
+    static Set<String> takeProjection(DeserializationContext ctxt) {
+        Set<String> projection = (Set<String>) ctxt.getAttribute(PROJECTION);
+
+        if (projection != null)
+            ctxt.setAttribute(PROJECTION, null);
+
+        return projection;
+    }
+
+    /**
+     * Gets the REST client the current read was started with.
+     */
+    static RestClient getRestClient(DeserializationContext ctxt) {
+        return (RestClient) ctxt.getAttribute(RestClient.class);
+    }
+
+    /**
+     * Reads a string value, the equivalent of {@link Field#getString}.
+     */
+    static String readString(JsonParser p) throws IOException {
+        if (p.getCurrentToken() == JsonToken.VALUE_STRING)
+            return p.getText();
+
+        p.skipChildren();
+        return null;
+    }
+
+    /**
+     * Reads a boolean value, the equivalent of {@link Field#getBoolean}.
+     */
+    static boolean readBoolean(JsonParser p) throws IOException {
+        JsonToken t = p.getCurrentToken();
+        p.skipChildren();
+        return t == JsonToken.VALUE_TRUE;
+    }
+
+    /**
+     * Reads an integer value, the equivalent of {@link Field#getInteger}.
+     */
+    static int readInteger(JsonParser p) throws IOException {
+        if (p.getCurrentToken() == JsonToken.VALUE_NUMBER_INT
+                && p.getNumberType() == JsonParser.NumberType.INT)
+            return p.getIntValue();
+
+        p.skipChildren();
+        return 0;
+    }
+
+    /**
+     * Reads a list of strings, the equivalent of {@link Field#getStringArray}.
+     */
+    static List<String> readStringArray(JsonParser p) throws IOException {
+        List<String> results = new ArrayList<String>();
+
+        if (p.getCurrentToken() != JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return results;
+        }
+
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            if (p.getCurrentToken() == JsonToken.VALUE_STRING)
+                results.add(p.getText());
+            else
+                p.skipChildren();
+        }
+
+        return results;
+    }
+
+    /**
+     * Reads a string to string map, the equivalent of {@link Field#getMap}.
+     */
+    static Map<String, String> readStringMap(JsonParser p) throws IOException {
+        Map<String, String> result = new HashMap<String, String>();
+
+        if (p.getCurrentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return result;
+        }
+
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.getCurrentName();
+
+            if (p.nextToken() == JsonToken.VALUE_STRING)
+                result.put(name, p.getText());
+            else
+                p.skipChildren();
+        }
+
+        return result;
+    }
+
+    /**
+     * Reads any value as plain Maps, Lists and scalars.
+     */
+    static Object readUntyped(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.getCurrentToken() == JsonToken.VALUE_NULL)
+            return null;
+
+        return ctxt.readValue(p, Object.class);
+    }
+
+    /**
+     * Reads a resource, the equivalent of {@link Field#getResource}.
+     */
+    static <T extends Resource> T readResource(
+            Class<T> type, JsonParser p, DeserializationContext ctxt) throws IOException {
+
+        if (p.getCurrentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return null;
+        }
+
+        RestClient restclient = getRestClient(ctxt);
+        ResourcePool pool = restclient != null ? restclient.getResourcePool() : null;
+
+        /* pooled types need their JSON to be compared against the pool */
+        if (pool != null && pool.accepts(type))
+            return Field.getResource(type, readUntyped(p, ctxt), restclient);
+
+        return ctxt.readValue(p, type);
+    }
+
+    /**
+     * Reads a list of resources, the equivalent of {@link Field#getResourceArray}.
+     */
+    static <T extends Resource> List<T> readResourceArray(
+            Class<T> type, JsonParser p, DeserializationContext ctxt) throws IOException {
+
+        List<T> results = new ArrayList<T>();
+
+        if (p.getCurrentToken() != JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return results;
+        }
+
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            T item = readResource(type, p, ctxt);
+
+            if (item != null)
+                results.add(item);
+        }
+
+        return results;
+    }
+
+    /**
+     * Binds a JSON object to a resource through {@link Resource#readField}.
+     */
+    private static final class ResourceDeserializer<T extends Resource> extends StdDeserializer<T> {
+
+        private final Supplier<T> supplier;
+
+        ResourceDeserializer(Class<T> type, Supplier<T> supplier) {
+            super(type);
+            this.supplier = supplier;
+        }
+
+        @Override
+        public T deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            T resource = supplier.get();
+
+            /* an empty object maps to null, just like Field.getResource */
+            return read(p, ctxt, resource) ? resource : null;
+        }
+
+        @Override
+        public T deserialize(JsonParser p, DeserializationContext ctxt, T resource) throws IOException {
+            read(p, ctxt, resource);
+            return resource;
+        }
+
+        private boolean read(JsonParser p, DeserializationContext ctxt, T resource) throws IOException {
+            JsonToken t = p.getCurrentToken();
+
+            if (t == JsonToken.START_OBJECT)
+                t = p.nextToken();
+            else if (t != JsonToken.FIELD_NAME) {
+                ctxt.handleUnexpectedToken(handledType(), p);
+                return false;
+            }
+
+            resource.restclient = getRestClient(ctxt);
+            boolean seen = false;
+
+            for (; t == JsonToken.FIELD_NAME; t = p.nextToken()) {
+                String name = p.getCurrentName();
+                p.nextToken();
+                seen = true;
+
+                if (!resource.readField(name, p, ctxt))
+                    p.skipChildren();
+            }
+
+            return seen;
+        }
+    }
+
+    /**
+     * Reads the paging attributes and issues of a search page, skipping
+     * everything else.
+     */
+    private static final class SearchPageDeserializer extends StdDeserializer<SearchPage> {
+
+        SearchPageDeserializer() {
+            super(SearchPage.class);
+        }
+
+        @Override
+        public SearchPage deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            SearchPage page = new SearchPage();
+            JsonToken t = p.getCurrentToken();
+
+            if (t == JsonToken.START_OBJECT)
+                t = p.nextToken();
+
+            for (; t == JsonToken.FIELD_NAME; t = p.nextToken()) {
+                String name = p.getCurrentName();
+                p.nextToken();
+
+                if (name.equals("startAt"))
+                    page.startAt = readInteger(p);
+                else if (name.equals("maxResults"))
+                    page.maxResults = readInteger(p);
+                else if (name.equals("total"))
+                    page.total = readInteger(p);
+                else if (name.equals("issues"))
+                    page.issues = readIssues(p, ctxt);
+                else
+                    p.skipChildren();
+            }
+
+            return page;
+        }
+
+        private List<Issue> readIssues(JsonParser p, DeserializationContext ctxt) throws IOException {
+            List<Issue> results = new ArrayList<Issue>();
+            Object projection = ctxt.getAttribute(SEARCH_PROJECTION);
+
+            if (p.getCurrentToken() != JsonToken.START_ARRAY) {
+                p.skipChildren();
+                return results;
+            }
+
+            while (p.nextToken() != JsonToken.END_ARRAY) {
+                ctxt.setAttribute(PROJECTION, projection);
+                Issue issue = readResource(Issue.class, p, ctxt);
+
+                if (issue != null)
+                    results.add(issue);
+            }
+
+            return results;
+        }
+    }
+}
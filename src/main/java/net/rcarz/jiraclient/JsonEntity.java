@@ -0,0 +1,103 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import net.rcarz.jiraclient.util.JsonUtil;
+import org.apache.http.entity.AbstractHttpEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A repeatable HTTP entity that streams a JSON request body straight to the
+ * connection through a Jackson generator.
+ */
+public class JsonEntity extends AbstractHttpEntity {
+
+    /**
+     * Writes the JSON payload.
+     */
+    public interface Writer {
+
+        /**
+         * Writes exactly one JSON value to the generator.
+         *
+         * @param gen JSON generator
+         *
+         * @throws IOException when writing fails
+         */
+        void write(JsonGenerator gen) throws IOException;
+    }
+
+    private final Writer writer;
+
+    /**
+     * Creates a JSON entity.
+     *
+     * @param writer Writes the payload, may be called once per attempt
+     */
+    public JsonEntity(Writer writer) {
+        if (writer == null)
+            throw new NullPointerException("writer may not be null");
+
+        this.writer = writer;
+        setContentType("application/json; charset=UTF-8");
+        setChunked(true);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeTo(out);
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        JsonGenerator gen = JsonUtil.OBJECT_MAPPER.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        try {
+            writer.write(gen);
+        } finally {
+            gen.close();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adapts the page size of paginated requests (issue search, sprints) to
+ * what the server actually delivers.
+ * <p>
+ * The server cap is detected from the maxResults the server reports back
+ * when it is lower than what was asked for. The page size is then tuned
+ * from the measured time and size per item towards a target page time and
+ * below a byte budget, so pages shrink by themselves when e.g. changelog
+ * expansion makes each issue heavy. Pages grow at most twofold per step
+ * and shrink at once.
+ * <p>
+ * An instance set on {@link RestClient#setPageSizer(PageSizer)} only holds
+ * the settings. Each iterator works on its own copy from
+ * {@link #newSizer(Integer)}.
+ */
+public final class PageSizer {
+
+    private final int initialSize;
+    private final int minSize;
+    private final int maxSize;
+    private final long targetNanos;
+    private final long maxBytes;
+
+    private int size;
+    private int serverCap = Integer.MAX_VALUE;
+
+    /**
+     * Creates a page sizer with a 50 issue first page, pages between 10 and
+     * 1000 items, a two second target and an 8 MiB budget per page.
+     */
+    public PageSizer() {
+        this(50, 10, 1000, 2000, 8L << 20);
+    }
+
+    /**
+     * Creates a page sizer.
+     *
+     * @param initialSize Size of the first page unless the caller asks for one
+     * @param minSize Smallest page size
+     * @param maxSize Largest page size
+     * @param targetMillis Target time per page in milliseconds
+     * @param maxBytes Largest response size per page or 0 for no limit
+     */
+    public PageSizer(int initialSize, int minSize, int maxSize, long targetMillis, long maxBytes) {
+        if (minSize < 1 || maxSize < minSize)
+            throw new IllegalArgumentException("Invalid page size range " + minSize + ".." + maxSize);
+
+        this.initialSize = initialSize;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(targetMillis);
+        this.maxBytes = maxBytes;
+        this.size = clamp(initialSize);
+    }
+
+    /**
+     * Creates a sizer with the same settings and fresh measurements.
+     *
+     * @param requested Page size asked for by the caller or null
+     *
+     * @return a new page sizer
+     */
+    public PageSizer newSizer(Integer requested) {
+        return new PageSizer(requested != null ? requested : initialSize,
+                minSize, maxSize, TimeUnit.NANOSECONDS.toMillis(targetNanos), maxBytes);
+    }
+
+    /**
+     * Gets the page size to request next.
+     *
+     * @return the page size
+     */
+    public int getPageSize() {
+        return size;
+    }
+
+    /**
+     * Gets the page size cap the server enforces.
+     *
+     * @return the cap or -1 if none was detected
+     */
+    public int getServerCap() {
+        return serverCap == Integer.MAX_VALUE ? -1 : serverCap;
+    }
+
+    /**
+     * Records a page and adjusts the page size.
+     *
+     * @param requested Page size that was requested
+     * @param returnedMax maxResults reported by the server
+     * @param count Number of items on the page
+     * @param nanos Time it took to get the page
+     * @param bytes Size of the response
+     */
+    public void record(int requested, int returnedMax, int count, long nanos, long bytes) {
+        if (returnedMax > 0 && returnedMax < requested)
+            serverCap = returnedMax;
+
+        if (count <= 0) {
+            size = clamp(size);
+            return;
+        }
+
+        long ideal = maxSize;
+
+        if (nanos > 0)
+            ideal = targetNanos * count / nanos;
+
+        if (maxBytes > 0 && bytes > 0)
+            ideal = Math.min(ideal, maxBytes * count / bytes);
+
+        size = clamp((int) Math.min(ideal, 2L * size));
+    }
+
+    private int clamp(int n) {
+        /* the server cap wins over the configured minimum */
+        return Math.min(Math.max(minSize, Math.min(n, maxSize)), serverCap);
+    }
+}
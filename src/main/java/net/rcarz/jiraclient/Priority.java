@@ -19,8 +19,11 @@
 
 package net.rcarz.jiraclient;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
 import net.rcarz.jiraclient.util.JsonUtil;
 
+import java.io.IOException;
 import java.util.Map;
 
 /**
@@ -56,6 +59,18 @@ public class Priority extends Resource {
         name = Field.getString(map.get("name"));
     }
 
+    @Override
+    boolean readField(String name, JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (name.equals("iconUrl"))
+            iconUrl = JsonBinding.readString(p);
+        else if (name.equals("name"))
+            this.name = JsonBinding.readString(p);
+        else
+            return super.readField(name, p, ctxt);
+
+        return true;
+    }
+
     /**
      * Retrieves the given priority record.
      *
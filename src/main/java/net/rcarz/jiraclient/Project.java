@@ -19,8 +19,11 @@
 
 package net.rcarz.jiraclient;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
 import net.rcarz.jiraclient.util.JsonUtil;
 
+import java.io.IOException;
 import java.net.URI;
 import java.util.*;
 
@@ -80,6 +83,44 @@ public class Project extends Resource {
         email = Field.getString( map.get("email"));
     }
 
+    @Override
+    boolean readField(String name, JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (name.equals("avatarUrls"))
+            avatarUrls = JsonBinding.readStringMap(p);
+        else if (name.equals("key"))
+            key = JsonBinding.readString(p);
+        else if (name.equals("name"))
+            this.name = JsonBinding.readString(p);
+        else if (name.equals("description"))
+            description = JsonBinding.readString(p);
+        else if (name.equals("lead"))
+            lead = JsonBinding.readResource(User.class, p, ctxt);
+        else if (name.equals("assigneeType"))
+            assigneeType = JsonBinding.readString(p);
+        else if (name.equals("components"))
+            components = JsonBinding.readResourceArray(Component.class, p, ctxt);
+        else if (name.equals("issueTypes"))
+            issueTypes = JsonBinding.readResourceArray(IssueType.class, p, ctxt);
+        else if (name.equals("issuetypes")) {
+            /* "issueTypes" takes precedence when both are present */
+            List<IssueType> types = JsonBinding.readResourceArray(IssueType.class, p, ctxt);
+            if (issueTypes == null || issueTypes.isEmpty())
+                issueTypes = types;
+        }
+        else if (name.equals("versions"))
+            versions = JsonBinding.readResourceArray(Version.class, p, ctxt);
+        else if (name.equals("roles"))
+            roles = JsonBinding.readStringMap(p);
+        else if (name.equals("projectCategory"))
+            category = JsonBinding.readResource(ProjectCategory.class, p, ctxt);
+        else if (name.equals("email"))
+            email = JsonBinding.readString(p);
+        else
+            return super.readField(name, p, ctxt);
+
+        return true;
+    }
+
     /**
      * Retrieves the given project record.
      *
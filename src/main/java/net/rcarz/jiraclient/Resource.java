@@ -19,6 +19,11 @@
 
 package net.rcarz.jiraclient;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+
+import java.io.IOException;
+
 /**
  * A base class for JIRA resources.
  */
@@ -43,6 +48,28 @@ public abstract class Resource {
     public Resource() {
     }
 
+    /**
+     * Reads one attribute in the typed JSON binding. The parser is positioned
+     * on the value; implementations consume it completely when they return
+     * true and leave it untouched otherwise.
+     *
+     * @param name Attribute name
+     * @param p JSON parser
+     * @param ctxt Deserialization context
+     *
+     * @return true if the attribute was consumed
+     */
+    boolean readField(String name, JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (name.equals("id"))
+            id = JsonBinding.readString(p);
+        else if (name.equals("self"))
+            self = JsonBinding.readString(p);
+        else
+            return false;
+
+        return true;
+    }
+
     /**
      * Gets the JIRA REST API revision number.
      */
@@ -0,0 +1,251 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Canonicalizes nested resources while issues are read, so that e.g. the
+ * reporter of ten thousand issues is one shared User instance instead of
+ * ten thousand identical copies.
+ * <p>
+ * Resources are pooled by type and identity (self URL or id). A pooled
+ * instance is only handed out again when the JSON it was built from has the
+ * same fingerprint as the new JSON, so representations that differ (with
+ * and without email address, say) stay separate. The pool keeps the
+ * fingerprint, not the JSON. Entries are weakly referenced and disappear
+ * once no issue refers to the instance anymore.
+ * <p>
+ * <b>Pooled resources are shared, not copied.</b> The same User, Status or
+ * Project instance is returned by every issue that refers to it, so
+ * anything done to one of them, such as changing a map or list returned by
+ * one of its getters, shows up in all of those issues. Treat pooled
+ * resources as read-only, and don't use a pool when resources have to be
+ * modified.
+ */
+public final class ResourcePool {
+
+    private static final class Key {
+        final Class<?> type;
+        final String id;
+
+        Key(Class<?> type, String id) {
+            this.type = type;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+
+            Key other = (Key) o;
+            return type == other.type && id.equals(other.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * type.hashCode() + id.hashCode();
+        }
+    }
+
+    private static final class Entry extends WeakReference<Resource> {
+        final Key key;
+        final long fingerprint;
+        final int hash;
+
+        Entry(Key key, Map source, Resource resource, ReferenceQueue<Resource> queue) {
+            super(resource, queue);
+            this.key = key;
+            this.fingerprint = fingerprint(source);
+            this.hash = source.hashCode();
+        }
+
+        boolean matches(Map json) {
+            return hash == json.hashCode() && fingerprint == fingerprint(json);
+        }
+    }
+
+    private static final String[] IDENTITY_FIELDS = { "self", "id", "accountId", "key", "name" };
+
+    private final Set<Class<?>> types;
+    private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<Key, Entry>();
+    private final ReferenceQueue<Resource> queue = new ReferenceQueue<Resource>();
+
+    /**
+     * Creates a pool for users, statuses, priorities, issue types, projects
+     * and resolutions.
+     */
+    public ResourcePool() {
+        this(User.class, Status.class, Priority.class, IssueType.class,
+                Project.class, Resolution.class);
+    }
+
+    /**
+     * Creates a pool for the given resource types.
+     *
+     * @param types Resource types to canonicalize
+     */
+    @SafeVarargs
+    public ResourcePool(Class<? extends Resource>... types) {
+        this.types = Collections.unmodifiableSet(new HashSet<Class<?>>(Arrays.asList(types)));
+    }
+
+    /**
+     * Checks whether resources of the given type are pooled.
+     *
+     * @param type Resource type
+     *
+     * @return true if the type is pooled
+     */
+    public boolean accepts(Class<?> type) {
+        return types.contains(type);
+    }
+
+    /**
+     * Gets the number of pooled resources.
+     *
+     * @return the number of live entries
+     */
+    public int size() {
+        expunge();
+        return entries.size();
+    }
+
+    /**
+     * Drops all pooled resources.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Gets the pooled resource equal to the given JSON or creates and pools
+     * a new one.
+     *
+     * @param type Resource type
+     * @param json JSON payload the resource is built from
+     * @param factory Creates the resource when it's not pooled yet
+     *
+     * @return a shared resource instance or whatever the factory returns
+     */
+    <T extends Resource> T intern(Class<T> type, Map json, Supplier<T> factory) {
+        Object id = getIdentity(json);
+
+        if (id == null || !accepts(type))
+            return factory.get();
+
+        expunge();
+
+        Key key = new Key(type, id.toString());
+        Entry entry = entries.get(key);
+
+        if (entry != null) {
+            Resource pooled = entry.get();
+
+            if (pooled != null && type.isInstance(pooled) && entry.matches(json))
+                return type.cast(pooled);
+        }
+
+        T created = factory.get();
+
+        /* a different representation of the same id replaces the old one */
+        if (created != null)
+            entries.put(key, new Entry(key, json, created, queue));
+
+        return created;
+    }
+
+    /**
+     * Users don't always carry an id, so fall back to the other fields that
+     * identify a resource. The JSON is compared anyway, this only needs to
+     * be a good bucket.
+     */
+    private static Object getIdentity(Map json) {
+        for (String field : IDENTITY_FIELDS) {
+            Object id = json.get(field);
+
+            if (id != null)
+                return id;
+        }
+
+        return null;
+    }
+
+    /**
+     * A 64 bit hash of a JSON value, which together with the 32 bit
+     * Map.hashCode tells representations of the same resource apart. Like
+     * Map.equals it doesn't depend on the order of object members.
+     */
+    static long fingerprint(Object json) {
+        if (json == null)
+            return 0x9e3779b97f4a7c15L;
+
+        if (json instanceof Map) {
+            long h = 0x6a09e667f3bcc909L;
+
+            for (Object e : ((Map) json).entrySet()) {
+                Map.Entry entry = (Map.Entry) e;
+                h += mix(fingerprint(entry.getKey()) * 31 + fingerprint(entry.getValue()));
+            }
+
+            return mix(h);
+        }
+
+        if (json instanceof Iterable) {
+            long h = 0xbb67ae8584caa73bL;
+
+            for (Object item : (Iterable) json)
+                h = (h ^ fingerprint(item)) * 0x100000001b3L;
+
+            return mix(h);
+        }
+
+        long h = 0xcbf29ce484222325L ^ json.getClass().getName().hashCode();
+        String value = json.toString();
+
+        for (int i = 0; i < value.length(); i++)
+            h = (h ^ value.charAt(i)) * 0x100000001b3L;
+
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    private void expunge() {
+        Entry stale;
+
+        while ((stale = (Entry) queue.poll()) != null)
+            entries.remove(stale.key, stale);
+    }
+}
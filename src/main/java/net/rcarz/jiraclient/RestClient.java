@@ -19,26 +19,32 @@
 
 package net.rcarz.jiraclient;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import net.rcarz.jiraclient.util.JsonUtil;
 import net.sf.json.JSON;
 import net.sf.json.JSONObject;
+import net.sf.json.JSONSerializer;
 import org.apache.http.*;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.*;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.entity.StringEntity;
-import org.apache.http.entity.mime.MultipartEntity;
-import org.apache.http.entity.mime.content.ByteArrayBody;
-import org.apache.http.entity.mime.content.FileBody;
-import org.apache.http.entity.mime.content.InputStreamBody;
 import org.apache.http.util.EntityUtils;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
 
 /**
  * A simple REST client that speaks JSON.
@@ -48,6 +54,17 @@ public class RestClient {
     private HttpClient httpClient = null;
     private ICredentials creds = null;
     private URI uri = null;
+    private boolean typedBinding = false;
+    private boolean lazyFields = false;
+    private boolean cacheFieldPlans = false;
+    private volatile ResourcePool resourcePool = null;
+    private boolean compactFields = false;
+    private Set<String> retainedFields = null;
+    private volatile ExecutorService searchExecutor = null;
+    private volatile PageSizer pageSizer = null;
+    private volatile AttachmentCache attachmentCache = null;
+    private final ConcurrentMap<String, FieldPlan> fieldPlans =
+            new ConcurrentHashMap<String, FieldPlan>();
 
     /**
      * Creates a REST client instance with a URI.
@@ -168,38 +185,17 @@ public class RestClient {
     private String request(HttpEntityEnclosingRequestBase req, File file)
             throws RestException, IOException {
         if (file!=null) {
-            File fileUpload = file;
             req.setHeader("X-Atlassian-Token", "nocheck");
-            MultipartEntity ent = new MultipartEntity();
-            ent.addPart("file", new FileBody(fileUpload));
-            req.setEntity(ent);
+            req.setEntity(new AttachmentEntity(new Issue.NewAttachment[] { new Issue.NewAttachment(file) }, null));
         }
         return request(req);
     }
 
-    private String request(HttpEntityEnclosingRequestBase req, Issue.NewAttachment... attachments)
-            throws RestException, IOException {
+    private String request(HttpEntityEnclosingRequestBase req, Attachment.ProgressListener listener,
+            Issue.NewAttachment... attachments) throws RestException, IOException {
         if (attachments!=null) {
             req.setHeader("X-Atlassian-Token", "nocheck");
-            MultipartEntity ent = new MultipartEntity();
-            for (Issue.NewAttachment attachment : attachments) {
-                String filename = attachment.getFilename();
-                Object content = attachment.getContent();
-                if (content instanceof byte[]) {
-                    ent.addPart("file", new ByteArrayBody((byte[]) content, filename));
-                } else if (content instanceof InputStream) {
-                    ent.addPart("file", new InputStreamBody((InputStream) content, filename));
-                } else if (content instanceof File) {
-                    ent.addPart("file", new FileBody((File) content, filename));
-                } else if (content==null) {
-                    throw new IllegalArgumentException("Missing content for the file " + filename);
-                } else {
-                    throw new IllegalArgumentException(
-                            "Expected file type byte[], java.io.InputStream or java.io.File but provided " +
-                                    content.getClass().getName() + " for the file " + filename);
-                }
-            }
-            req.setEntity(ent);
+            req.setEntity(new AttachmentEntity(attachments, listener));
         }
         return request(req);
     }
@@ -210,6 +206,17 @@ public class RestClient {
         return request(req, payload!=null ? payload.toString():null);
     }
 
+    private String request(HttpEntityEnclosingRequestBase req, JsonEntity.Writer payload)
+            throws RestException, IOException {
+
+        if (payload!=null) {
+            req.addHeader("Content-Type", "application/json");
+            req.setEntity(new JsonEntity(payload));
+        }
+
+        return request(req);
+    }
+
     /**
      * Executes an HTTP DELETE with the given URI.
      *
@@ -274,6 +281,87 @@ public class RestClient {
         return get(path, null);
     }
 
+    /**
+     * Handles a response body as a stream.
+     */
+    public interface ContentHandler<T> {
+
+        /**
+         * Reads the response. Only called for successful responses.
+         *
+         * @param response HTTP response
+         * @param entity Response body or null when there's none
+         * @return whatever the handler produces
+         * @throws IOException when an error reading the response occurs
+         */
+        T handle(HttpResponse response, HttpEntity entity) throws IOException;
+    }
+
+    /**
+     * Executes an HTTP GET with the given URI and hands the response body
+     * to the handler without buffering it. The connection is released
+     * when the handler returns and aborted when it fails.
+     *
+     * @param uri     Full URI of the remote endpoint
+     * @param headers Additional request headers or null
+     * @param handler Reads the response body
+     * @return whatever the handler produces
+     * @throws RestException when an HTTP-level error occurs
+     * @throws IOException   when an error reading the response occurs
+     */
+    public <T> T get(URI uri, Map<String, String> headers, ContentHandler<T> handler)
+            throws RestException, IOException {
+
+        return stream(new HttpGet(uri), headers, handler);
+    }
+
+    /**
+     * Executes an HTTP HEAD with the given URI.
+     *
+     * @param uri     Full URI of the remote endpoint
+     * @param handler Reads the response headers
+     * @return whatever the handler produces
+     * @throws RestException when an HTTP-level error occurs
+     * @throws IOException   when an error reading the response occurs
+     */
+    public <T> T head(URI uri, ContentHandler<T> handler) throws RestException, IOException {
+        return stream(new HttpHead(uri), null, handler);
+    }
+
+    private <T> T stream(HttpRequestBase req, Map<String, String> headers, ContentHandler<T> handler)
+            throws RestException, IOException {
+
+        if (headers!=null) {
+            for (Map.Entry<String, String> ent : headers.entrySet())
+                req.addHeader(ent.getKey(), ent.getValue());
+        }
+
+        if (creds!=null)
+            creds.authenticate(req);
+
+        HttpResponse resp = httpClient.execute(req);
+        HttpEntity ent = resp.getEntity();
+        boolean done = false;
+
+        try {
+            StatusLine sl = resp.getStatusLine();
+
+            if (sl.getStatusCode() >= 300) {
+                String result = ent != null ? EntityUtils.toString(ent) : null;
+                done = true;
+                throw new RestException(sl.getReasonPhrase(), sl.getStatusCode(), result);
+            }
+
+            T result = handler.handle(resp, ent);
+            EntityUtils.consume(ent);
+            done = true;
+            return result;
+        } finally {
+            if (!done)
+                req.abort();
+        }
+    }
+
 
     /**
      * Executes an HTTP POST with the given URI and payload.
@@ -288,6 +376,27 @@ public class RestClient {
         return request(new HttpPost(uri), payload);
     }
 
+    /**
+     * Executes an HTTP POST with the given URI, streaming the payload to the
+     * remote service as it is written.
+     * <p>
+     * A subclass that overrides {@link #post(URI, JSON)} is handed the
+     * payload through that method instead, decoded by json-lib as it
+     * was before request bodies were streamed.
+     *
+     * @param uri     Full URI of the remote endpoint
+     * @param payload Writes the JSON data to send to the remote service
+     * @return JSON-encoded result or null when there's no content returned
+     * @throws RestException when an HTTP-level error occurs
+     * @throws IOException   when an error reading the response occurs
+     */
+    public String postStreaming(URI uri, JsonEntity.Writer payload) throws RestException, IOException {
+        if (overrides("post", URI.class, JSON.class))
+            return post(uri, toJson(payload));
+
+        return request(new HttpPost(uri), payload);
+    }
+
     /**
      * Executes an HTTP POST with the given URI and payload.
      * <p>
@@ -327,6 +436,30 @@ public class RestClient {
         return post(buildURI(path), payload);
     }
 
+    /**
+     * Executes an HTTP POST with the given path, streaming the payload to the
+     * remote service as it is written.
+     * <p>
+     * A subclass that overrides {@link #post(String, JSON)} is handed the
+     * payload through that method instead, decoded by json-lib as it
+     * was before request bodies were streamed.
+     *
+     * @param path    Path to be appended to the URI supplied in the construtor
+     * @param payload Writes the JSON data to send to the remote service
+     * @return JSON-encoded result or null when there's no content returned
+     * @throws RestException      when an HTTP-level error occurs
+     * @throws IOException        when an error reading the response occurs
+     * @throws URISyntaxException when an error occurred appending the path to the URI
+     */
+    public String postStreaming(String path, JsonEntity.Writer payload)
+            throws RestException, IOException, URISyntaxException {
+
+        if (overrides("post", String.class, JSON.class))
+            return post(path, toJson(payload));
+
+        return postStreaming(buildURI(path), payload);
+    }
+
     /**
      * Executes an HTTP POST with the given path.
      *
@@ -366,7 +499,23 @@ public class RestClient {
      */
     public String post(String path, Issue.NewAttachment... attachments)
             throws RestException, IOException, URISyntaxException {
-        return request(new HttpPost(buildURI(path)), attachments);
+        return request(new HttpPost(buildURI(path)), null, attachments);
+    }
+
+    /**
+     * Executes an HTTP POST with the given path and file payloads, streamed
+     * as they are written and reporting the upload progress.
+     *
+     * @param path        Full URI of the remote endpoint
+     * @param listener    Receives the upload progress or null
+     * @param attachments the name of the attachment
+     * @throws URISyntaxException
+     * @throws IOException
+     * @throws RestException
+     */
+    public String post(String path, Attachment.ProgressListener listener,
+            Issue.NewAttachment... attachments) throws RestException, IOException, URISyntaxException {
+        return request(new HttpPost(buildURI(path)), listener, attachments);
     }
 
     /**
@@ -398,6 +547,286 @@ public class RestClient {
         return put(buildURI(path), payload);
     }
 
+    /**
+     * Executes an HTTP PUT with the given URI, streaming the payload to the
+     * remote service as it is written.
+     * <p>
+     * A subclass that overrides {@link #put(URI, JSON)} is handed the
+     * payload through that method instead, decoded by json-lib as it
+     * was before request bodies were streamed.
+     *
+     * @param uri     Full URI of the remote endpoint
+     * @param payload Writes the JSON data to send to the remote service
+     * @return JSON-encoded result or null when there's no content returned
+     * @throws RestException when an HTTP-level error occurs
+     * @throws IOException   when an error reading the response occurs
+     */
+    public String putStreaming(URI uri, JsonEntity.Writer payload) throws RestException, IOException {
+        if (overrides("put", URI.class, JSON.class))
+            return put(uri, toJson(payload));
+
+        return request(new HttpPut(uri), payload);
+    }
+
+    /**
+     * Executes an HTTP PUT with the given path, streaming the payload to the
+     * remote service as it is written.
+     * <p>
+     * A subclass that overrides {@link #put(String, JSON)} is handed the
+     * payload through that method instead, decoded by json-lib as it
+     * was before request bodies were streamed.
+     *
+     * @param path    Path to be appended to the URI supplied in the construtor
+     * @param payload Writes the JSON data to send to the remote service
+     * @return JSON-encoded result or null when there's no content returned
+     * @throws RestException      when an HTTP-level error occurs
+     * @throws IOException        when an error reading the response occurs
+     * @throws URISyntaxException when an error occurred appending the path to the URI
+     */
+    public String putStreaming(String path, JsonEntity.Writer payload)
+            throws RestException, IOException, URISyntaxException {
+
+        if (overrides("put", String.class, JSON.class))
+            return put(path, toJson(payload));
+
+        return putStreaming(buildURI(path), payload);
+    }
+
+    /**
+     * Tells whether a subclass overrides one of the json-lib request
+     * methods, which then has to see the streamed request bodies too.
+     */
+    private boolean overrides(String name, Class<?>... parameterTypes) {
+        try {
+            return getClass().getMethod(name, parameterTypes).getDeclaringClass() != RestClient.class;
+        } catch (NoSuchMethodException ex) {
+            return false;
+        }
+    }
+
+    private static JSON toJson(JsonEntity.Writer payload) throws IOException {
+        StringWriter out = new StringWriter();
+
+        try (JsonGenerator gen = JsonUtil.OBJECT_MAPPER.getFactory().createGenerator(out)) {
+            payload.write(gen);
+        }
+
+        return JSONSerializer.toJSON(out.toString());
+    }
+
+    /**
+     * Whether issues are bound straight from the JSON token stream.
+     *
+     * @return the typedBinding property
+     */
+    public boolean isTypedBinding() {
+        return typedBinding;
+    }
+
+    /**
+     * Enables the typed binding mode. Issues and their common nested
+     * resources (users, statuses, versions etc.) are then read directly
+     * from the JSON token stream instead of an intermediate Map tree. In
+     * this mode {@link Issue#getField(String)} only returns the fields
+     * that aren't bound to a typed getter, such as custom fields.
+     *
+     * @param typedBinding true to enable the typed binding
+     */
+    public void setTypedBinding(boolean typedBinding) {
+        this.typedBinding = typedBinding;
+    }
+
+    /**
+     * Whether issue fields are materialized on first access.
+     *
+     * @return the lazyFields property
+     */
+    public boolean isLazyFields() {
+        return lazyFields;
+    }
+
+    /**
+     * Enables lazy issue fields. Issues then keep the raw field values and
+     * build the typed value (comments, worklogs, users etc.) the first time
+     * its getter is called. This mode doesn't apply to the typed binding.
+     *
+     * @param lazyFields true to materialize issue fields on demand
+     */
+    public void setLazyFields(boolean lazyFields) {
+        this.lazyFields = lazyFields;
+    }
+
+    /**
+     * Whether compiled create and edit metadata is cached.
+     *
+     * @return the cacheFieldPlans property
+     */
+    public boolean isCacheFieldPlans() {
+        return cacheFieldPlans;
+    }
+
+    /**
+     * Enables caching of compiled create and edit metadata per project and
+     * issue type. Creating or updating many issues then fetches and parses
+     * the metadata once instead of once per issue. Edit metadata may vary
+     * with the workflow status of an issue; only enable this when it
+     * doesn't for the fields being updated.
+     *
+     * @param cacheFieldPlans true to cache field plans
+     */
+    public void setCacheFieldPlans(boolean cacheFieldPlans) {
+        this.cacheFieldPlans = cacheFieldPlans;
+
+        if (!cacheFieldPlans)
+            fieldPlans.clear();
+    }
+
+    /**
+     * Drops all cached field plans, e.g. after screens or custom fields
+     * were changed on the server.
+     */
+    public void clearFieldPlans() {
+        fieldPlans.clear();
+    }
+
+    /**
+     * Gets the pool nested resources are canonicalized with.
+     *
+     * @return the resource pool or null when pooling is off
+     */
+    public ResourcePool getResourcePool() {
+        return resourcePool;
+    }
+
+    /**
+     * Sets a pool to canonicalize nested resources (users, statuses,
+     * projects etc.) with while issues are read. Identical resources are
+     * then shared between issues instead of copied. Set a fresh pool before
+     * a large search to scope it to that search, or null to turn pooling
+     * off.
+     * <p>
+     * Pooled resources are shared by every issue that refers to them and
+     * must be treated as read-only, see {@link ResourcePool}.
+     *
+     * @param resourcePool the resource pool or null
+     */
+    public void setResourcePool(ResourcePool resourcePool) {
+        this.resourcePool = resourcePool;
+    }
+
+    /**
+     * Whether issues only keep part of their raw fields.
+     *
+     * @return the compactFields property
+     */
+    public boolean isCompactFields() {
+        return compactFields;
+    }
+
+    /**
+     * Enables the compact retention mode. Issues normally keep the raw
+     * fields map for {@link Issue#getField(String)} next to the typed
+     * fields built from it, so most of their data is held twice. In compact
+     * mode the raw map only keeps the retained fields (see
+     * {@link #setRetainedFields(Set)}), by default every field without a
+     * typed getter such as custom fields. Typed fields are then always
+     * built eagerly, regardless of {@link #setLazyFields(boolean)}.
+     *
+     * @param compactFields true to enable the compact mode
+     */
+    public void setCompactFields(boolean compactFields) {
+        this.compactFields = compactFields;
+    }
+
+    /**
+     * Gets the raw fields kept in compact mode.
+     *
+     * @return the field names or null for all fields without a typed getter
+     */
+    public Set<String> getRetainedFields() {
+        return retainedFields;
+    }
+
+    /**
+     * Sets the raw fields issues keep in compact mode, e.g. the custom
+     * fields an application reads through {@link Issue#getField(String)}.
+     *
+     * @param retainedFields the field names or null for all fields without
+     *                       a typed getter
+     */
+    public void setRetainedFields(Set<String> retainedFields) {
+        this.retainedFields = retainedFields != null
+                ? Collections.unmodifiableSet(new HashSet<String>(retainedFields)) : null;
+    }
+
+    /**
+     * Gets the worker pool search pages are decoded on.
+     *
+     * @return the executor or null when pages are decoded on the caller's
+     * thread
+     */
+    public ExecutorService getSearchExecutor() {
+        return searchExecutor;
+    }
+
+    /**
+     * Sets a worker pool to decode search pages on. The issues of a page
+     * are then parsed in parallel while the next page is already being
+     * fetched; iteration order doesn't change. The pool is owned by the
+     * caller and should have at least two threads. Don't iterate search
+     * results from a thread of the same pool.
+     *
+     * @param searchExecutor the executor or null to decode on the caller's
+     *                       thread
+     */
+    public void setSearchExecutor(ExecutorService searchExecutor) {
+        this.searchExecutor = searchExecutor;
+    }
+
+    /**
+     * Gets the settings for adaptive page sizing.
+     *
+     * @return the page sizer or null when page sizes are fixed
+     */
+    public PageSizer getPageSizer() {
+        return pageSizer;
+    }
+
+    /**
+     * Enables adaptive page sizing for issue searches and sprint lists.
+     * The maxResults given by the caller is only the size of the first page
+     * then; later pages follow the server cap and the measured page time
+     * and size.
+     *
+     * @param pageSizer the page sizer settings or null for fixed page sizes
+     */
+    public void setPageSizer(PageSizer pageSizer) {
+        this.pageSizer = pageSizer;
+    }
+
+    /**
+     * Gets the attachment content cache.
+     *
+     * @return the cache or null when attachments aren't cached
+     */
+    public AttachmentCache getAttachmentCache() {
+        return attachmentCache;
+    }
+
+    /**
+     * Serves repeat attachment downloads from a local cache. Ranged
+     * downloads bypass the cache.
+     *
+     * @param attachmentCache the cache or null to download every time
+     */
+    public void setAttachmentCache(AttachmentCache attachmentCache) {
+        this.attachmentCache = attachmentCache;
+    }
+
+    ConcurrentMap<String, FieldPlan> getFieldPlans() {
+        return fieldPlans;
+    }
+
     /**
      * Exposes the http client.
      *
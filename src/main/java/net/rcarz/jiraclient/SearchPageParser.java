@@ -0,0 +1,320 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import net.rcarz.jiraclient.util.JsonUtil;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Reads search pages token by token, keeping only the issue fields the
+ * caller asked for. Everything else the server sends along (names, schema,
+ * rendered fields, fields it added on its own) is skipped without being
+ * decoded.
+ * <p>
+ * Pages can also be scanned for issue boundaries first and the issues
+ * decoded in parallel afterwards.
+ */
+final class SearchPageParser {
+
+    /* the fewest issues decoded by one task, so small pages aren't split up */
+    private static final int MIN_DECODE_BATCH = 4;
+
+    /**
+     * A search page that has been scanned but whose issues aren't decoded
+     * yet. Each issue is a range of the page text.
+     */
+    static final class RawPage {
+        int startAt = 0;
+        int maxResults = 0;
+        int total = 0;
+        char[] text;
+        int[] offsets = new int[32];
+        int count = 0;
+
+        void addIssue(int start, int end) {
+            if (count * 2 == offsets.length)
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+
+            offsets[count * 2] = start;
+            offsets[count * 2 + 1] = end;
+            count++;
+        }
+    }
+
+    private SearchPageParser() { }
+
+    /**
+     * Works out which fields a search asked for.
+     *
+     * @param includedFields the fields parameter of the search
+     *
+     * @return the field names or null when the search asked for a wildcard
+     * or excluded fields, i.e. when no projection applies
+     */
+    static Set<String> getProjection(String includedFields) {
+        if (includedFields == null || includedFields.trim().isEmpty())
+            return null;
+
+        Set<String> projection = new HashSet<String>();
+
+        for (String name : includedFields.split(",")) {
+            name = name.trim();
+
+            if (name.startsWith("*") || name.startsWith("-"))
+                return null;
+            else if (!name.isEmpty())
+                projection.add(name);
+        }
+
+        return Collections.unmodifiableSet(projection);
+    }
+
+    /**
+     * Reads one page of search results.
+     *
+     * @param restclient REST client instance
+     * @param json JSON-encoded search result
+     * @param projection Issue fields to keep
+     *
+     * @return the page
+     */
+    static JsonBinding.SearchPage parse(RestClient restclient, String json, Set<String> projection)
+            throws IOException {
+
+        JsonBinding.SearchPage page = new JsonBinding.SearchPage();
+
+        try (JsonParser p = JsonUtil.OBJECT_MAPPER.getFactory().createParser(json)) {
+            if (p.nextToken() != JsonToken.START_OBJECT)
+                throw new IOException("Search result is not an object");
+
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.getCurrentName();
+                p.nextToken();
+
+                if (name.equals("startAt"))
+                    page.startAt = JsonBinding.readInteger(p);
+                else if (name.equals("maxResults"))
+                    page.maxResults = JsonBinding.readInteger(p);
+                else if (name.equals("total"))
+                    page.total = JsonBinding.readInteger(p);
+                else if (name.equals("issues") && p.getCurrentToken() == JsonToken.START_ARRAY) {
+                    while (p.nextToken() != JsonToken.END_ARRAY) {
+                        Issue issue = Field.getResource(Issue.class, readIssue(p, projection), restclient);
+
+                        if (issue != null)
+                            page.issues.add(issue);
+                    }
+                } else
+                    p.skipChildren();
+            }
+        }
+
+        return page;
+    }
+
+    /**
+     * Scans a search page for its paging attributes and the bounds of each
+     * issue, without decoding the issues.
+     *
+     * @param json JSON-encoded search result
+     *
+     * @return the scanned page
+     */
+    static RawPage scan(String json) throws IOException {
+        RawPage page = new RawPage();
+        page.text = json.toCharArray();
+
+        try (JsonParser p = JsonUtil.OBJECT_MAPPER.getFactory().createParser(page.text)) {
+            if (p.nextToken() != JsonToken.START_OBJECT)
+                throw new IOException("Search result is not an object");
+
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.getCurrentName();
+                p.nextToken();
+
+                if (name.equals("startAt"))
+                    page.startAt = JsonBinding.readInteger(p);
+                else if (name.equals("maxResults"))
+                    page.maxResults = JsonBinding.readInteger(p);
+                else if (name.equals("total"))
+                    page.total = JsonBinding.readInteger(p);
+                else if (name.equals("issues") && p.getCurrentToken() == JsonToken.START_ARRAY) {
+                    while (p.nextToken() != JsonToken.END_ARRAY) {
+                        int start = (int) p.getTokenLocation().getCharOffset();
+                        p.skipChildren();
+                        page.addIssue(start, (int) p.getCurrentLocation().getCharOffset());
+                    }
+                } else
+                    p.skipChildren();
+            }
+        }
+
+        return page;
+    }
+
+    /**
+     * Decodes the issues of a scanned page on a worker pool. The issues are
+     * split into a few batches per processor, each decoded by one task, and
+     * returned in page order.
+     *
+     * @param restclient REST client instance
+     * @param page Scanned page
+     * @param projection Issue fields to keep or null to keep all
+     * @param executor Worker pool
+     *
+     * @return the issues of the page
+     */
+    static List<Issue> decode(final RestClient restclient, final RawPage page,
+            final Set<String> projection, ExecutorService executor)
+            throws IOException, InterruptedException {
+
+        int tasks = Runtime.getRuntime().availableProcessors() * 2;
+        int batch = Math.max(MIN_DECODE_BATCH, (page.count + tasks - 1) / tasks);
+        List<Future<List<Issue>>> futures = new ArrayList<Future<List<Issue>>>();
+
+        for (int from = 0; from < page.count; from += batch) {
+            final int first = from;
+            final int last = Math.min(page.count, from + batch);
+
+            futures.add(executor.submit(() -> decodeIssues(restclient, page, first, last, projection)));
+        }
+
+        List<Issue> issues = new ArrayList<Issue>(page.count);
+
+        try {
+            for (Future<List<Issue>> future : futures)
+                issues.addAll(future.get());
+        } catch (ExecutionException ex) {
+            throw new IOException("Failed to decode issue", ex.getCause());
+        } finally {
+            for (Future<List<Issue>> future : futures)
+                future.cancel(true);
+        }
+
+        return issues;
+    }
+
+    private static List<Issue> decodeIssues(RestClient restclient, RawPage page, int first, int last,
+            Set<String> projection) throws IOException {
+
+        List<Issue> issues = new ArrayList<Issue>(last - first);
+
+        for (int i = first; i < last; i++) {
+            if (Thread.currentThread().isInterrupted())
+                throw new InterruptedIOException("Decoding was cancelled");
+
+            Issue issue = decodeIssue(restclient, page.text, page.offsets[i * 2], page.offsets[i * 2 + 1],
+                    projection);
+
+            if (issue != null)
+                issues.add(issue);
+        }
+
+        return issues;
+    }
+
+    private static Issue decodeIssue(RestClient restclient, char[] text, int start, int end,
+            Set<String> projection) throws IOException {
+
+        try (JsonParser p = JsonUtil.OBJECT_MAPPER.getFactory().createParser(text, start, end - start)) {
+            p.nextToken();
+
+            if (restclient != null && restclient.isTypedBinding())
+                return JsonBinding.readIssue(restclient, p, projection);
+
+            Map json = projection != null
+                    ? readIssue(p, projection)
+                    : (Map) readValue(p);
+
+            return Field.getResource(Issue.class, json, restclient);
+        }
+    }
+
+    /**
+     * Reads an issue object into a Map with only the projected fields.
+     */
+    static Map readIssue(JsonParser p, Set<String> projection) throws IOException {
+        Map issue = new LinkedHashMap();
+
+        if (p.getCurrentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return issue;
+        }
+
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.getCurrentName();
+            p.nextToken();
+
+            if (name.equals("id") || name.equals("self") || name.equals("key"))
+                issue.put(name, JsonBinding.readString(p));
+            else if (name.equals("fields"))
+                issue.put(name, readFields(p, projection));
+            else if (name.equals(Field.CHANGE_LOG))
+                issue.put(name, readValue(p));
+            else
+                p.skipChildren();
+        }
+
+        return issue;
+    }
+
+    private static Map readFields(JsonParser p, Set<String> projection) throws IOException {
+        Map fields = new LinkedHashMap();
+
+        if (p.getCurrentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return fields;
+        }
+
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.getCurrentName();
+            p.nextToken();
+
+            if (projection == null || projection.contains(name))
+                fields.put(name, readValue(p));
+            else
+                p.skipChildren();
+        }
+
+        return fields;
+    }
+
+    private static Object readValue(JsonParser p) throws IOException {
+        if (p.getCurrentToken() == JsonToken.VALUE_NULL)
+            return null;
+
+        return JsonUtil.OBJECT_MAPPER.readValue(p, Object.class);
+    }
+}
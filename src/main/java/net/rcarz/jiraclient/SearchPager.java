@@ -0,0 +1,138 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+
+/**
+ * Walks the pages of a search by position. The caller reads each page
+ * and reports where it started, how many issues it held and the total;
+ * the next page starts where that one ended, since the server may return
+ * fewer issues per page than requested.
+ */
+final class SearchPager {
+
+    private final RestClient restclient;
+    private final String resourcePath;
+    private final String includedFields;
+    private final String expandFields;
+    private String jql;
+    private int pageSize;
+    private int startAt = 0;
+    private boolean done = false;
+
+    /**
+     * @param restclient REST client instance
+     * @param resourcePath Search resource or null for the default
+     * @param jql JQL statement
+     * @param includedFields Fields parameter of the search
+     * @param expandFields Expand parameter of the search
+     * @param pageSize Issues per page
+     */
+    SearchPager(RestClient restclient, String resourcePath, String jql, String includedFields,
+            String expandFields, int pageSize) {
+
+        this.restclient = restclient;
+        this.resourcePath = resourcePath;
+        this.jql = jql;
+        this.includedFields = includedFields;
+        this.expandFields = expandFields;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * @return false once a page was the last one
+     */
+    boolean hasNext() {
+        return !done;
+    }
+
+    /**
+     * @return the position of the next page
+     */
+    int getStartAt() {
+        return startAt;
+    }
+
+    /**
+     * Sets the number of issues requested for the following pages.
+     */
+    void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Starts over from the first page of another query.
+     */
+    void restart(String jql) {
+        this.jql = jql;
+        this.startAt = 0;
+        this.done = false;
+    }
+
+    /**
+     * @return the URI of the next page
+     */
+    URI nextUri() throws URISyntaxException {
+        return Issue.createSearchURI(restclient, resourcePath, jql, includedFields, expandFields,
+                pageSize, startAt, null);
+    }
+
+    /**
+     * Requests the next page.
+     *
+     * @return the JSON-encoded page
+     */
+    String fetch() throws JiraException, RestException, IOException, URISyntaxException {
+        return get(nextUri());
+    }
+
+    /**
+     * Requests a page whose URI was taken earlier, e.g. to fetch it on
+     * another thread.
+     *
+     * @return the JSON-encoded page
+     */
+    String get(URI uri) throws JiraException, RestException, IOException {
+        String json = restclient.get(uri);
+
+        if (json == null)
+            throw new JiraException("JSON payload is malformed");
+
+        return json;
+    }
+
+    /**
+     * Moves past a page that has been read.
+     *
+     * @param pageStart Position the server reported for the page
+     * @param count Number of issues on the page
+     * @param total Total the server reported
+     *
+     * @return whether there is another page
+     */
+    boolean advance(int pageStart, int count, int total) {
+        startAt = pageStart + count;
+        done = count == 0 || startAt >= total;
+        return !done;
+    }
+}
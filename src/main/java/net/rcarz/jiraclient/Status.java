@@ -19,8 +19,11 @@
 
 package net.rcarz.jiraclient;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
 import net.rcarz.jiraclient.util.JsonUtil;
 
+import java.io.IOException;
 import java.util.Map;
 
 /**
@@ -59,6 +62,22 @@ public class Status extends Resource {
         statusCategory = Field.getResource(StatusCategory.class, json.get( "statusCategory" ), restclient);
     }
 
+    @Override
+    boolean readField(String name, JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (name.equals("description"))
+            description = JsonBinding.readString(p);
+        else if (name.equals("iconUrl"))
+            iconUrl = JsonBinding.readString(p);
+        else if (name.equals("name"))
+            this.name = JsonBinding.readString(p);
+        else if (name.equals("statusCategory"))
+            statusCategory = JsonBinding.readResource(StatusCategory.class, p, ctxt);
+        else
+            return super.readField(name, p, ctxt);
+
+        return true;
+    }
+
     /**
      * Retrieves the given status record.
      *
@@ -1,7 +1,10 @@
 package net.rcarz.jiraclient;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
 import net.rcarz.jiraclient.util.JsonUtil;
 
+import java.io.IOException;
 import java.util.Map;
 
 /**
@@ -41,6 +44,20 @@ public class StatusCategory extends Resource {
         name = Field.getString(json.get("name"));
     }
 
+    @Override
+    boolean readField(String name, JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (name.equals("key"))
+            key = JsonBinding.readString(p);
+        else if (name.equals("colorName"))
+            colorName = JsonBinding.readString(p);
+        else if (name.equals("name"))
+            this.name = JsonBinding.readString(p);
+        else
+            return super.readField(name, p, ctxt);
+
+        return true;
+    }
+
     /**
      * Retrieves the given statusCategory record.
      *
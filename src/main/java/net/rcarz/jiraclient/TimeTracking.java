@@ -19,8 +19,10 @@
 
 package net.rcarz.jiraclient;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import net.sf.json.JSONObject;
 
+import java.io.IOException;
 import java.util.Map;
 
 /**
@@ -80,6 +82,31 @@ public class TimeTracking {
         return object;
     }
 
+    /**
+     * Writes the estimates as a JSON object.
+     *
+     * @param gen JSON generator
+     *
+     * @throws IOException when writing fails
+     */
+    void writeJson(JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+
+        if (originalEstimate != null)
+            gen.writeStringField("originalEstimate", originalEstimate);
+
+        if (remainingEstimate != null)
+            gen.writeStringField("remainingEstimate", remainingEstimate);
+
+        if (originalEstimateSeconds != null && originalEstimateSeconds >= 0)
+            gen.writeNumberField("originalEstimateSeconds", originalEstimateSeconds);
+
+        if (remainingEstimateSeconds != null && remainingEstimateSeconds >= 0)
+            gen.writeNumberField("remainingEstimateSeconds", remainingEstimateSeconds);
+
+        gen.writeEndObject();
+    }
+
     public String getOriginalEstimate() {
         return originalEstimate;
     }
@@ -19,8 +19,11 @@
 
 package net.rcarz.jiraclient;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
 import net.rcarz.jiraclient.util.JsonUtil;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -94,6 +97,30 @@ public class User extends Resource {
         name = Field.getString(map.get("name"));
     }
 
+    @Override
+    boolean readField(String name, JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (name.equals("active"))
+            active = JsonBinding.readBoolean(p);
+        else if (name.equals("avatarUrls"))
+            avatarUrls = JsonBinding.readStringMap(p);
+        else if (name.equals("displayName"))
+            displayName = JsonBinding.readString(p);
+        else if (name.equals("email"))
+            email = JsonBinding.readString(p);
+        else if (name.equals("emailAddress")) {
+            /* "email" takes precedence when both are present */
+            String emailAddress = JsonBinding.readString(p);
+            if (email == null)
+                email = emailAddress;
+        }
+        else if (name.equals("name"))
+            this.name = JsonBinding.readString(p);
+        else
+            return super.readField(name, p, ctxt);
+
+        return true;
+    }
+
     /**
      * API changes email address might be represented as either "email" or "emailAddress"
      *
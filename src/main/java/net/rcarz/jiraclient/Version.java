@@ -19,9 +19,12 @@
 
 package net.rcarz.jiraclient;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
 import net.rcarz.jiraclient.util.JsonUtil;
 import net.sf.json.JSONObject;
 
+import java.io.IOException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -258,6 +261,26 @@ public class Version extends Resource {
         description = Field.getString(map.get("description"));
     }
 
+    @Override
+    boolean readField(String name, JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (name.equals("name"))
+            this.name = JsonBinding.readString(p);
+        else if (name.equals("archived"))
+            archived = JsonBinding.readBoolean(p);
+        else if (name.equals("released"))
+            released = JsonBinding.readBoolean(p);
+        else if (name.equals("startDate"))
+            startDate = JsonBinding.readString(p);
+        else if (name.equals("releaseDate"))
+            releaseDate = JsonBinding.readString(p);
+        else if (name.equals("description"))
+            description = JsonBinding.readString(p);
+        else
+            return super.readField(name, p, ctxt);
+
+        return true;
+    }
+
     @Override
     public String toString() {
         return getName();
@@ -19,8 +19,11 @@
 
 package net.rcarz.jiraclient;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
 import net.rcarz.jiraclient.util.JsonUtil;
 
+import java.io.IOException;
 import java.util.Map;
 
 /**
@@ -56,6 +59,18 @@ public class Votes extends Resource {
         hasVoted = Field.getBoolean(map.get("hasVoted"));
     }
 
+    @Override
+    boolean readField(String name, JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (name.equals("votes"))
+            votes = JsonBinding.readInteger(p);
+        else if (name.equals("hasVoted"))
+            hasVoted = JsonBinding.readBoolean(p);
+        else
+            return super.readField(name, p, ctxt);
+
+        return true;
+    }
+
     /**
      * Retrieves the given votes record.
      *
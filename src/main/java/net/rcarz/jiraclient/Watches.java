@@ -19,8 +19,11 @@
 
 package net.rcarz.jiraclient;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
 import net.rcarz.jiraclient.util.JsonUtil;
 
+import java.io.IOException;
 import java.util.Map;
 
 /**
@@ -57,6 +60,18 @@ public class Watches extends Resource {
         isWatching = Field.getBoolean(map.get("isWatching"));
     }
 
+    @Override
+    boolean readField(String name, JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (name.equals("watchCount"))
+            watchCount = JsonBinding.readInteger(p);
+        else if (name.equals("isWatching"))
+            isWatching = JsonBinding.readBoolean(p);
+        else
+            return super.readField(name, p, ctxt);
+
+        return true;
+    }
+
     /**
      * Retrieves the given watches record.
      *
@@ -25,6 +25,9 @@ import net.rcarz.jiraclient.RestClient;
 import net.rcarz.jiraclient.util.JsonUtil;
 import org.apache.commons.lang.math.NumberUtils;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
@@ -45,6 +48,23 @@ public abstract class AgileResource {
 
     public static final String RESOURCE_URI = "/rest/agile/1.0/";
 
+    private static final MethodType CONSTRUCTOR_TYPE =
+            MethodType.methodType(AgileResource.class, RestClient.class, Map.class);
+
+    /* (RestClient, Map) constructor of each resource type, resolved once per class */
+    private static final ClassValue<MethodHandle> CONSTRUCTORS = new ClassValue<MethodHandle>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            try {
+                Constructor<?> constructor = type.getDeclaredConstructor(RestClient.class, Map.class);
+                constructor.setAccessible(true);
+                return MethodHandles.lookup().unreflectConstructor(constructor).asType(CONSTRUCTOR_TYPE);
+            } catch (Exception e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+    };
+
     private RestClient restclient = null;
     private long id = 0;
     private String name;
@@ -81,14 +101,23 @@ public abstract class AgileResource {
             throw new JiraException("JSON payload is malformed");
         }
 
+        MethodHandle constructor;
+
+        try {
+            constructor = CONSTRUCTORS.get(type);
+        } catch (IllegalArgumentException e) {
+            throw new JiraException("Failed to deserialize object.", e.getCause());
+        }
+
         T result = null;
 
-            try {
-                Constructor<T> constructor = type.getDeclaredConstructor(RestClient.class, Map.class);
-                result = constructor.newInstance(restclient, ((Map) r));
-            } catch (Exception e) {
-                throw new JiraException("Failed to deserialize object.", e);
-            }
+        try {
+            result = type.cast((AgileResource) constructor.invokeExact(restclient, (Map) r));
+        } catch (JiraException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new JiraException("Failed to deserialize object.", e);
+        }
 
         return result;
     }
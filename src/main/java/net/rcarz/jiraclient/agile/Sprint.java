@@ -21,6 +21,7 @@ package net.rcarz.jiraclient.agile;
 
 import net.rcarz.jiraclient.Field;
 import net.rcarz.jiraclient.JiraException;
+import net.rcarz.jiraclient.PageSizer;
 import net.rcarz.jiraclient.RestClient;
 import net.rcarz.jiraclient.util.JsonUtil;
 
@@ -118,12 +119,16 @@ public class Sprint extends AgileResource {
         private Integer startAt;
         private List<Sprint> sprints;
         private int total;
+        private PageSizer sizer;
 
         public SprintIterator(RestClient restclient, Long boardId,  Integer maxResults, Integer startAt) throws JiraException {
             this.restclient = restclient;
             this.boardId = boardId;
             this.maxResults = maxResults;
             this.startAt = startAt;
+
+            PageSizer template = restclient.getPageSizer();
+            this.sizer = template != null ? template.newSizer(maxResults) : null;
         }
 
         public boolean hasNext() {
@@ -185,10 +190,19 @@ public class Sprint extends AgileResource {
 
             Map result = null;
 
+            if (sizer != null) {
+                maxResults = sizer.getPageSize();
+            }
+
+            int requested = maxResults != null ? maxResults : -1;
+            long started = System.nanoTime();
+            long bytes = 0;
+
             try {
                 URI searchUri = createSearchURI(restclient, boardId, maxResults, startAt);
                 String resultJson = restclient.get(searchUri);
                 if (resultJson!=null) {
+                    bytes = resultJson.length();
                     result = JsonUtil.OBJECT_MAPPER.readValue(resultJson, Map.class);
                 }
             } catch (Exception ex) {
@@ -206,6 +220,10 @@ public class Sprint extends AgileResource {
             this.maxResults = Field.getInteger(map.get("maxResults"));
             this.total = Field.getInteger(map.get("total"));
             this.sprints = AgileResource.getResourceArray(Sprint.class, map, restclient, "values");
+
+            if (sizer != null) {
+                sizer.record(requested, maxResults, sprints.size(), System.nanoTime() - started, bytes);
+            }
             return sprints;
         }
     }
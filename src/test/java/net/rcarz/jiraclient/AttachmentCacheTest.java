@@ -0,0 +1,239 @@
+package net.rcarz.jiraclient;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AttachmentCacheTest {
+
+    private static final int SIZE = 40;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Rule
+    public LocalHttpServer server = new LocalHttpServer();
+
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+    private RestClient restclient;
+    private Path cacheDir;
+    private AttachmentCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        server.handle("/", exchange -> {
+            String id = exchange.getRequestURI().getPath().substring(1);
+            requests.add(id);
+            LocalHttpServer.respond(exchange, 200, content(id));
+        });
+
+        restclient = server.newRestClient();
+        cacheDir = folder.getRoot().toPath().resolve("cache");
+        cache = new AttachmentCache(cacheDir, 100, 16);
+        restclient.setAttachmentCache(cache);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        cache.close();
+    }
+
+    /* ids starting with 9 are larger than the cache */
+    private static byte[] content(String id) {
+        byte[] body = new byte[id.startsWith("9") ? 150 : SIZE];
+        Arrays.fill(body, (byte) id.charAt(0));
+        return body;
+    }
+
+    private Attachment attachment(String id, String created) {
+        return attachment(id, created, SIZE);
+    }
+
+    private Attachment attachment(String id, String created, int size) {
+        Map<String, Object> json = new HashMap<String, Object>();
+        json.put("id", id);
+        json.put("filename", id + ".png");
+        json.put("size", size);
+        json.put("created", created);
+        json.put("content", server.baseUrl() + "/" + id);
+
+        return new Attachment(restclient, json);
+    }
+
+    private Attachment attachment(String id) {
+        return attachment(id, "2020-01-02");
+    }
+
+    @Test
+    public void testRepeatDownloadsAreServedFromDisk() throws Exception {
+        assertArrayEquals(content("1"), attachment("1").download());
+        assertArrayEquals(content("1"), attachment("1").download());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        attachment("1").download(out);
+        assertArrayEquals(content("1"), out.toByteArray());
+
+        Path path = folder.getRoot().toPath().resolve("copy.png");
+        attachment("1").download(path);
+        assertArrayEquals(content("1"), Files.readAllBytes(path));
+
+        assertEquals(Collections.singletonList("1"), requests);
+        assertEquals(1, cache.size());
+        assertEquals(SIZE, cache.getUsedBytes());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws Exception {
+        attachment("1").download();
+        attachment("2").download();
+        attachment("1").download();
+        attachment("3").download();
+
+        assertEquals(Arrays.asList("1", "2", "3"), requests);
+        assertEquals(2, cache.size());
+        assertFalse(Files.exists(cacheDir.resolve("2")));
+
+        requests.clear();
+        attachment("1").download();
+        attachment("2").download();
+        assertEquals(Collections.singletonList("2"), requests);
+    }
+
+    @Test
+    public void testChangedAttachmentIsRefreshed() throws Exception {
+        attachment("1").download();
+        attachment("1", "2021-05-06").download();
+
+        assertEquals(Arrays.asList("1", "1"), requests);
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testIndexSurvivesReopen() throws Exception {
+        attachment("1").download();
+        attachment("2").download();
+        cache.close();
+
+        Files.write(cacheDir.resolve("7.tmp.part"), "stray".getBytes(StandardCharsets.UTF_8));
+        cache = new AttachmentCache(cacheDir, 100, 16);
+        restclient.setAttachmentCache(cache);
+
+        assertEquals(2, cache.size());
+        assertFalse(Files.exists(cacheDir.resolve("7.tmp.part")));
+
+        requests.clear();
+        assertArrayEquals(content("2"), attachment("2").download());
+        assertEquals(Collections.<String>emptyList(), requests);
+    }
+
+    @Test
+    public void testKeepsEntriesWhenCapacityChanges() throws Exception {
+        attachment("1").download();
+        attachment("2").download();
+        cache.close();
+
+        for (int capacity : new int[] { 64, 16 }) {
+            cache = new AttachmentCache(cacheDir, 100, capacity);
+            restclient.setAttachmentCache(cache);
+
+            assertEquals(2, cache.size());
+            assertEquals(2 * SIZE, cache.getUsedBytes());
+            assertArrayEquals(content("1"), attachment("1").download());
+            cache.close();
+        }
+
+        cache = new AttachmentCache(cacheDir, 100, 16);
+        assertEquals(Arrays.asList("1", "2"), requests);
+        assertFalse(Files.exists(cacheDir.resolve(AttachmentCache.INDEX + ".tmp")));
+    }
+
+    @Test
+    public void testLeavesForeignFilesAlone() throws Exception {
+        attachment("1").download();
+        cache.close();
+
+        Files.write(cacheDir.resolve("77"), "orphan".getBytes(StandardCharsets.UTF_8));
+        Files.write(cacheDir.resolve("notes.txt"), "mine".getBytes(StandardCharsets.UTF_8));
+        Files.write(cacheDir.resolve("123456789012345678901234"), "mine".getBytes(StandardCharsets.UTF_8));
+        Files.createDirectories(cacheDir.resolve("sub"));
+        Files.write(cacheDir.resolve("sub/file"), "mine".getBytes(StandardCharsets.UTF_8));
+        Files.createDirectories(cacheDir.resolve("42"));
+        Files.write(cacheDir.resolve("42/file"), "mine".getBytes(StandardCharsets.UTF_8));
+
+        cache = new AttachmentCache(cacheDir, 100, 16);
+
+        assertEquals(1, cache.size());
+        assertFalse(Files.exists(cacheDir.resolve("77")));
+        assertTrue(Files.exists(cacheDir.resolve("notes.txt")));
+        assertTrue(Files.exists(cacheDir.resolve("123456789012345678901234")));
+        assertTrue(Files.exists(cacheDir.resolve("sub/file")));
+        assertTrue(Files.exists(cacheDir.resolve("42/file")));
+    }
+
+    @Test
+    public void testRefusesForeignIndex() throws Exception {
+        Path dir = folder.newFolder("other").toPath();
+        byte[] foreign = "not a cache index".getBytes(StandardCharsets.UTF_8);
+        Files.write(dir.resolve(AttachmentCache.INDEX), foreign);
+
+        try {
+            new AttachmentCache(dir, 100, 16).close();
+            fail("a foreign index file should be refused");
+        } catch (IOException ex) {
+            assertTrue(ex.getMessage().contains("not an attachment cache index"));
+        }
+
+        assertArrayEquals(foreign, Files.readAllBytes(dir.resolve(AttachmentCache.INDEX)));
+    }
+
+    @Test
+    public void testOversizedContentOfUnknownSizeIsDownloadedOnce() throws Exception {
+        List<Long> progress = new ArrayList<Long>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        attachment("9", "2020-01-02", 0).download(out, (transferred, total) -> progress.add(transferred));
+
+        assertArrayEquals(content("9"), out.toByteArray());
+        assertEquals(Collections.singletonList("9"), requests);
+        assertEquals(Long.valueOf(150), progress.get(progress.size() - 1));
+        assertEquals(0, cache.size());
+        assertEquals(Collections.singletonList(AttachmentCache.INDEX), Arrays.asList(cacheDir.toFile().list()));
+    }
+
+    @Test
+    public void testProgressIsReportedOnce() throws Exception {
+        List<Long> progress = new ArrayList<Long>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        attachment("1").download(out, (transferred, total) -> progress.add(transferred));
+
+        for (int i = 1; i < progress.size(); i++)
+            assertTrue(progress.get(i) > progress.get(i - 1));
+        assertEquals(Long.valueOf(SIZE), progress.get(progress.size() - 1));
+
+        progress.clear();
+        attachment("1").download(out, (transferred, total) -> progress.add(transferred));
+        assertEquals(Collections.singletonList(Long.valueOf(SIZE)), progress);
+        assertEquals(Collections.singletonList("1"), requests);
+    }
+}
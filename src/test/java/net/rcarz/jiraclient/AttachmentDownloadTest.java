@@ -0,0 +1,111 @@
+package net.rcarz.jiraclient;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AttachmentDownloadTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Rule
+    public LocalHttpServer server = new LocalHttpServer();
+
+    private RestClient restclient;
+    private byte[] data;
+
+    @Before
+    public void setUp() throws Exception {
+        data = new byte[300 * 1024 + 17];
+        new Random(7).nextBytes(data);
+
+        server.handle("/content/1", exchange -> LocalHttpServer.respond(exchange, 200, data));
+        server.handle("/content/chunked", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(data);
+            }
+        });
+        server.handle("/content/missing", exchange ->
+                LocalHttpServer.respondJson(exchange, 404, "{\"errorMessages\":[\"gone\"]}"));
+
+        restclient = server.newRestClient();
+    }
+
+    @Test
+    public void testDownloadToByteArray() throws Exception {
+        assertArrayEquals(data, attachment("/content/1").download());
+        assertArrayEquals(data, attachment("/content/chunked").download());
+    }
+
+    @Test
+    public void testDownloadToStreamReportsProgress() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final AtomicLong last = new AtomicLong();
+        final AtomicLong total = new AtomicLong();
+
+        long n = attachment("/content/1").download(out, (transferred, length) -> {
+            assertTrue(transferred > last.get());
+            last.set(transferred);
+            total.set(length);
+        });
+
+        assertEquals(data.length, n);
+        assertEquals(data.length, last.get());
+        assertEquals(data.length, total.get());
+        assertArrayEquals(data, out.toByteArray());
+    }
+
+    @Test
+    public void testDownloadToPath() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("file.bin");
+        Files.write(path, new byte[] { 1, 2, 3 });
+
+        assertEquals(data.length, attachment("/content/chunked").download(path));
+        assertArrayEquals(data, Files.readAllBytes(path));
+        assertEquals(1, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void testErrorStatusFails() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("missing.bin");
+
+        try {
+            attachment("/content/missing").download(path);
+            fail("expected a JiraException");
+        } catch (JiraException ex) {
+            assertTrue(ex.getCause() instanceof RestException);
+            assertEquals(404, ((RestException) ex.getCause()).getHttpStatusCode());
+        }
+
+        assertFalse(Files.exists(path));
+        assertEquals(0, folder.getRoot().list().length);
+    }
+
+    private Attachment attachment(String path) {
+        Map<String, Object> json = new HashMap<String, Object>();
+        json.put("id", "1");
+        json.put("filename", "file.bin");
+        json.put("size", data.length);
+        json.put("content", server.baseUrl() + path);
+
+        return new Attachment(restclient, json);
+    }
+}
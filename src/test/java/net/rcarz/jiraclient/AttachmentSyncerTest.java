@@ -0,0 +1,172 @@
+package net.rcarz.jiraclient;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AttachmentSyncerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Rule
+    public LocalHttpServer server = new LocalHttpServer();
+
+    private final Map<String, byte[]> contents = new ConcurrentHashMap<String, byte[]>();
+    private final List<String> downloads = Collections.synchronizedList(new ArrayList<String>());
+    private volatile String searchQuery;
+    private volatile boolean searchFails = false;
+    private RestClient restclient;
+
+    @Before
+    public void setUp() throws Exception {
+        contents.put("10", "first".getBytes(StandardCharsets.UTF_8));
+        contents.put("11", "second file".getBytes(StandardCharsets.UTF_8));
+        contents.put("20", "third".getBytes(StandardCharsets.UTF_8));
+
+        server.handle("/", this::serve);
+        restclient = server.newRestClient(8);
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        byte[] body;
+        int status = 200;
+
+        if (path.endsWith("/search") && searchFails) {
+            status = 500;
+            body = "{\"errorMessages\":[\"down\"]}".getBytes(StandardCharsets.UTF_8);
+        } else if (path.endsWith("/search")) {
+            searchQuery = exchange.getRequestURI().getQuery();
+            body = (searchQuery.contains("startAt=0") ? searchPage() : emptyPage())
+                    .getBytes(StandardCharsets.UTF_8);
+        } else {
+            String id = path.substring(path.lastIndexOf('/') + 1);
+            downloads.add(id);
+            body = contents.get(id);
+
+            if (body == null) {
+                status = 404;
+                body = "{}".getBytes(StandardCharsets.UTF_8);
+            }
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+        LocalHttpServer.respond(exchange, status, body);
+    }
+
+    private String searchPage() {
+        return "{\"startAt\":0,\"maxResults\":100,\"total\":2,\"issues\":["
+                + "{\"id\":\"1\",\"key\":\"T-1\",\"fields\":{\"attachment\":["
+                + attachment("10", "a.txt") + "," + attachment("11", "../b.txt") + "]}},"
+                + "{\"id\":\"2\",\"key\":\"T-2\",\"fields\":{\"attachment\":[" + attachment("20", "c.txt")
+                + "]}}]}";
+    }
+
+    private String emptyPage() {
+        return "{\"startAt\":2,\"maxResults\":100,\"total\":2,\"issues\":[]}";
+    }
+
+    private String attachment(String id, String filename) {
+        byte[] content = contents.get(id);
+        int size = content != null ? content.length : 1;
+
+        return "{\"id\":\"" + id + "\",\"filename\":\"" + filename + "\",\"size\":" + size
+                + ",\"created\":\"2020-01-02T03:04:05.000+0000\",\"content\":\""
+                + server.baseUrl() + "/secure/attachment/" + id + "\"}";
+    }
+
+    @Test
+    public void testIncrementalSync() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        AttachmentSyncer syncer = new AttachmentSyncer(restclient, dir).threads(2).maxPerHost(1);
+
+        AttachmentSyncer.Result first = syncer.sync("project = T");
+        assertEquals(3, first.getDownloaded());
+        assertEquals(0, first.getSkipped());
+        assertTrue(searchQuery.contains("fields=attachment"));
+        assertArrayEquals(contents.get("10"), Files.readAllBytes(dir.resolve("T-1/10-a.txt")));
+        assertArrayEquals(contents.get("11"), Files.readAllBytes(dir.resolve("T-1/11-.._b.txt")));
+        assertArrayEquals(contents.get("20"), Files.readAllBytes(dir.resolve("T-2/20-c.txt")));
+
+        downloads.clear();
+        AttachmentSyncer.Result second = new AttachmentSyncer(restclient, dir).sync("project = T");
+        assertEquals(0, second.getDownloaded());
+        assertEquals(3, second.getSkipped());
+        assertTrue(downloads.isEmpty());
+
+        contents.put("20", "third, changed".getBytes(StandardCharsets.UTF_8));
+        AttachmentSyncer.Result third = syncer.sync("project = T");
+        assertEquals(1, third.getDownloaded());
+        assertEquals(Collections.singletonList("20"), downloads);
+        assertArrayEquals(contents.get("20"), Files.readAllBytes(dir.resolve("T-2/20-c.txt")));
+    }
+
+    @Test
+    public void testFailedDownloadIsRetried() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        byte[] second = contents.remove("11");
+
+        AttachmentSyncer.Result first = new AttachmentSyncer(restclient, dir).sync("project = T");
+        assertEquals(2, first.getDownloaded());
+        assertEquals(Collections.singleton("11"), first.getFailures().keySet());
+
+        contents.put("11", second);
+        downloads.clear();
+
+        AttachmentSyncer.Result retry = new AttachmentSyncer(restclient, dir).sync("project = T");
+        assertEquals(1, retry.getDownloaded());
+        assertEquals(2, retry.getSkipped());
+        assertEquals(Collections.singletonList("11"), downloads);
+    }
+
+    @Test
+    public void testManifestFailureDoesNotHideSearchFailure() throws Exception {
+        /* the mirror directory can't be created where a file is in the way */
+        Path dir = folder.newFile("mirror").toPath();
+        searchFails = true;
+
+        try {
+            new AttachmentSyncer(restclient, dir).sync("project = T");
+            fail("the search failure should be thrown");
+        } catch (JiraException ex) {
+            assertEquals("Failed to sync attachments", ex.getMessage());
+            assertTrue(ex.getCause() instanceof JiraException);
+            assertEquals(1, ex.getSuppressed().length);
+            assertEquals("Failed to write attachment manifest", ex.getSuppressed()[0].getMessage());
+        }
+    }
+
+    @Test
+    public void testUnexpectedFailureIsNotWrapped() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+
+        try {
+            new AttachmentSyncer(restclient, folder.getRoot().toPath()).executor(executor).sync("project = T");
+            fail("the rejected download should be thrown");
+        } catch (RejectedExecutionException ex) {
+            assertTrue(Files.exists(folder.getRoot().toPath().resolve(AttachmentSyncer.MANIFEST)));
+        }
+    }
+}
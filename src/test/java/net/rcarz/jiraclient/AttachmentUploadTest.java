@@ -0,0 +1,155 @@
+package net.rcarz.jiraclient;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AttachmentUploadTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Rule
+    public LocalHttpServer server = new LocalHttpServer();
+
+    private final List<String> bodies = Collections.synchronizedList(new ArrayList<String>());
+    private final List<String> lengths = Collections.synchronizedList(new ArrayList<String>());
+    private final List<String> encodings = Collections.synchronizedList(new ArrayList<String>());
+    private Issue issue;
+
+    @Before
+    public void setUp() throws Exception {
+        server.handle("/", this::serve);
+
+        RestClient restclient = server.newRestClient();
+        Map<String, Object> json = new HashMap<String, Object>();
+        json.put("id", "1");
+        json.put("key", "T-1");
+        json.put("fields", new HashMap<String, Object>());
+        issue = Field.getResource(Issue.class, json, restclient);
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) > 0)
+                body.write(buffer, 0, n);
+        }
+
+        bodies.add(body.toString("UTF-8"));
+        lengths.add(exchange.getRequestHeaders().getFirst("Content-Length"));
+        encodings.add(exchange.getRequestHeaders().getFirst("Transfer-Encoding"));
+
+        LocalHttpServer.respondJson(exchange, 200, "[]");
+    }
+
+    @Test
+    public void testSingleRequestWithKnownLength() throws Exception {
+        Path file = folder.newFile("a.txt").toPath();
+        Files.write(file, "file content".getBytes(StandardCharsets.UTF_8));
+
+        issue.addAttachments(
+                new Issue.NewAttachment(file),
+                new Issue.NewAttachment("b.txt", "bytes".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(1, bodies.size());
+        assertEquals(String.valueOf(bodies.get(0).getBytes(StandardCharsets.UTF_8).length), lengths.get(0));
+        assertNull(encodings.get(0));
+        assertTrue(bodies.get(0).contains("filename=\"a.txt\"\r\nContent-Type: application/octet-stream\r\n\r\nfile content\r\n"));
+        assertTrue(bodies.get(0).contains("filename=\"b.txt\"\r\nContent-Type: application/octet-stream\r\n\r\nbytes\r\n"));
+    }
+
+    @Test
+    public void testUnknownLengthIsChunked() throws Exception {
+        InputStream in = new ByteArrayInputStream("streamed".getBytes(StandardCharsets.UTF_8));
+
+        issue.addAttachments(new Issue.NewAttachment("s.txt", in));
+
+        assertEquals(1, bodies.size());
+        assertNull(lengths.get(0));
+        assertEquals("chunked", encodings.get(0));
+        assertTrue(bodies.get(0).contains("\r\n\r\nstreamed\r\n"));
+    }
+
+    @Test
+    public void testSplitsIntoBoundedRequests() throws Exception {
+        byte[] content = new byte[400];
+        final List<Long> progress = new ArrayList<Long>();
+        final List<Long> totals = new ArrayList<Long>();
+
+        issue.addAttachments(1000, (transferred, total) -> {
+            progress.add(transferred);
+            totals.add(total);
+        },
+                new Issue.NewAttachment("1.bin", content),
+                new Issue.NewAttachment("2.bin", content),
+                new Issue.NewAttachment("3.bin", content),
+                new Issue.NewAttachment("4.bin", new ByteArrayInputStream(content)),
+                new Issue.NewAttachment("5.bin", content));
+
+        assertEquals(4, bodies.size());
+        assertTrue(bodies.get(0).contains("1.bin") && bodies.get(0).contains("2.bin"));
+        assertTrue(bodies.get(1).contains("3.bin"));
+        assertEquals("chunked", encodings.get(2));
+        assertTrue(bodies.get(3).contains("5.bin"));
+        assertEquals(Long.valueOf(2000), progress.get(progress.size() - 1));
+        assertEquals(Long.valueOf(-1), totals.get(0));
+    }
+
+    @Test
+    public void testStreamMustMatchDeclaredLength() throws Exception {
+        byte[] content = "streamed".getBytes(StandardCharsets.UTF_8);
+
+        for (long declared : new long[] { content.length - 1, content.length + 1 }) {
+            AttachmentEntity entity = new AttachmentEntity(new Issue.NewAttachment[] {
+                    new Issue.NewAttachment("s.txt", new ByteArrayInputStream(content), declared) }, null);
+
+            try {
+                entity.writeTo(new ByteArrayOutputStream());
+                fail("a stream of " + content.length + " bytes was declared as " + declared);
+            } catch (IOException ex) {
+                assertTrue(ex.getMessage().contains("declared"));
+            }
+        }
+    }
+
+    @Test
+    public void testFileMustKeepItsSize() throws Exception {
+        Path file = folder.newFile("a.txt").toPath();
+        Files.write(file, "file content".getBytes(StandardCharsets.UTF_8));
+
+        AttachmentEntity entity = new AttachmentEntity(new Issue.NewAttachment[] {
+                new Issue.NewAttachment(file) }, null);
+        Files.write(file, "file content, appended".getBytes(StandardCharsets.UTF_8));
+
+        try {
+            entity.writeTo(new ByteArrayOutputStream());
+            fail("the file changed size after the length was declared");
+        } catch (IOException ex) {
+            assertTrue(ex.getMessage().contains("changed size"));
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package net.rcarz.jiraclient;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static net.rcarz.jiraclient.LocalHttpServer.param;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ChangeLogFetcherTest {
+
+    private static final int ISSUES = 120;
+    private static final int INLINE = 3;
+    private static final int ENDPOINT_CAP = 2;
+
+    @Rule
+    public LocalHttpServer server = new LocalHttpServer(8);
+
+    private final AtomicInteger searches = new AtomicInteger();
+    private final AtomicInteger changelogs = new AtomicInteger();
+    private volatile boolean legacy = false;
+    private volatile boolean noWindow = false;
+    private RestClient restclient;
+
+    @Before
+    public void setUp() throws Exception {
+        server.handle("/", this::serve);
+        restclient = server.newRestClient(8);
+    }
+
+    /**
+     * Every tenth issue has a history longer than the inline window.
+     */
+    private static int historyLength(int issue) {
+        return issue % 10 == 0 ? 7 : issue % 3;
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String query = exchange.getRequestURI().getQuery();
+        int startAt = Integer.parseInt(param(query, "startAt"));
+        int maxResults = Integer.parseInt(param(query, "maxResults"));
+        StringBuilder body = new StringBuilder();
+
+        if (path.endsWith("/search")) {
+            searches.incrementAndGet();
+            assertTrue(query.contains("expand=changelog"));
+
+            body.append("{\"startAt\":").append(startAt).append(",\"maxResults\":").append(maxResults)
+                .append(",\"total\":").append(ISSUES).append(",\"issues\":[");
+
+            for (int i = startAt; i < Math.min(ISSUES, startAt + maxResults); i++) {
+                int length = historyLength(i);
+
+                if (i > startAt)
+                    body.append(',');
+
+                body.append("{\"id\":\"").append(i).append("\",\"key\":\"T-").append(i).append('"');
+
+                if (!noWindow) {
+                    body.append(",\"changelog\":{\"startAt\":0,\"maxResults\":").append(INLINE)
+                        .append(",\"total\":").append(length).append(",\"histories\":")
+                        .append(histories(0, Math.min(length, INLINE))).append('}');
+                }
+
+                body.append('}');
+            }
+
+            body.append("]}");
+        } else if (legacy) {
+            /* no changelog endpoint, and the expanded issue ignores startAt */
+            int status = path.endsWith("/changelog") ? 404 : 200;
+            int issue = Integer.parseInt(path.replaceAll(".*/T-([0-9]+)(/changelog)?", "$1"));
+            int length = historyLength(issue);
+
+            body.append("{\"key\":\"T-").append(issue)
+                .append("\",\"changelog\":{\"startAt\":0,\"maxResults\":").append(INLINE).append(",\"total\":").append(length).append(",\"histories\":")
+                .append(histories(0, Math.min(length, INLINE))).append("}}");
+
+            LocalHttpServer.respondJson(exchange, status, body.toString());
+            return;
+        } else {
+            changelogs.incrementAndGet();
+            int issue = Integer.parseInt(path.replaceAll(".*/T-([0-9]+)/changelog", "$1"));
+            int length = historyLength(issue);
+            int end = Math.min(length, startAt + ENDPOINT_CAP);
+
+            body.append("{\"startAt\":").append(startAt).append(",\"maxResults\":").append(ENDPOINT_CAP)
+                .append(",\"total\":").append(length).append(",\"values\":")
+                .append(histories(startAt, end)).append("}");
+        }
+
+        LocalHttpServer.respondJson(exchange, 200, body.toString());
+    }
+
+    private static String histories(int from, int to) {
+        StringBuilder json = new StringBuilder("[");
+
+        for (int i = from; i < to; i++) {
+            if (i > from)
+                json.append(',');
+
+            json.append("{\"id\":\"").append(i).append("\",\"created\":\"2020-01-02T03:04:05.000+0000\",")
+                .append("\"items\":[{\"field\":\"status\"}]}");
+        }
+
+        return json.append(']').toString();
+    }
+
+    @Test
+    public void testOnlyLongHistoriesArePaged() throws Exception {
+        Map<String, List<String>> received = new ConcurrentHashMap<String, List<String>>();
+
+        ChangeLogFetcher.Result result = new ChangeLogFetcher(restclient).threads(3).fetch("project = T",
+                (key, history) -> received.put(key,
+                        history.stream().map(IssueHistory::getId).collect(Collectors.toList())));
+
+        assertEquals(ISSUES, result.getIssues());
+        assertEquals(12, result.getPaged());
+        assertTrue(result.getFailures().isEmpty());
+        assertEquals(3, searches.get());
+        assertEquals(12 * 4, changelogs.get());
+
+        for (int i = 0; i < ISSUES; i++) {
+            List<String> expected = new ArrayList<String>();
+
+            for (int n = 0; n < historyLength(i); n++)
+                expected.add(String.valueOf(n));
+
+            assertEquals(expected, received.get("T-" + i));
+        }
+    }
+
+    @Test
+    public void testIssuesWithoutWindowArePaged() throws Exception {
+        noWindow = true;
+        Map<String, List<String>> received = new ConcurrentHashMap<String, List<String>>();
+
+        ChangeLogFetcher.Result result = new ChangeLogFetcher(restclient).fetch("project = T",
+                (key, history) -> received.put(key,
+                        history.stream().map(IssueHistory::getId).collect(Collectors.toList())));
+
+        assertEquals(ISSUES, result.getIssues());
+        assertEquals(ISSUES, result.getPaged());
+        assertTrue(result.getFailures().isEmpty());
+        assertEquals(Arrays.asList("0", "1", "2", "3", "4", "5", "6"), received.get("T-10"));
+        assertEquals(Collections.emptyList(), received.get("T-3"));
+    }
+
+    @Test
+    public void testSinkFailuresAreReported() throws Exception {
+        ChangeLogFetcher.Result result = new ChangeLogFetcher(restclient).fetch("project = T",
+                (key, history) -> {
+                    if (key.endsWith("0"))
+                        throw new IllegalStateException(key);
+                });
+
+        assertEquals(ISSUES - 12, result.getIssues());
+        assertEquals(12, result.getFailures().size());
+        assertTrue(result.getFailures().get("T-10") instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testTruncatedHistoriesAreFailures() throws Exception {
+        legacy = true;
+        Map<String, List<IssueHistory>> received = new ConcurrentHashMap<String, List<IssueHistory>>();
+
+        ChangeLogFetcher.Result result = new ChangeLogFetcher(restclient).fetch("project = T", received::put);
+
+        assertEquals(ISSUES - 12, result.getIssues());
+        assertEquals(12, result.getFailures().size());
+        assertTrue(result.getFailures().get("T-10") instanceof JiraException);
+        assertEquals("Only 3 of 7 history entries of T-10 could be read",
+                result.getFailures().get("T-10").getMessage());
+        assertFalse(received.containsKey("T-10"));
+    }
+}
@@ -0,0 +1,100 @@
+package net.rcarz.jiraclient;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ChangeLogFilterTest {
+
+    private static IssueHistory record(String id, String... fields) {
+        List<Map<String, Object>> items = new ArrayList<Map<String, Object>>();
+
+        for (String field : fields) {
+            Map<String, Object> item = new HashMap<String, Object>();
+            item.put("field", field);
+            items.add(item);
+        }
+
+        Map<String, Object> json = new HashMap<String, Object>();
+        json.put("id", id);
+        json.put("items", items);
+        return new IssueHistory(null, json);
+    }
+
+    private static List<String> fields(IssueHistory record) {
+        return record.getChanges().stream().map(IssueHistoryItem::getField).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testMatchesWholeFieldNames() {
+        ChangeLogFilter filter = new ChangeLogFilter(" status , assignee");
+
+        assertNull(filter.apply(record("1", "statuscategory", "sign")));
+        assertEquals(Arrays.asList("status"), fields(filter.apply(record("2", "statuscategory", "status"))));
+    }
+
+    @Test
+    public void testFullyMatchingRecordIsNotCopied() {
+        IssueHistory record = record("1", "status", "assignee");
+
+        assertSame(record, new ChangeLogFilter("status,assignee").apply(record));
+    }
+
+    @Test
+    public void testFilterChangeLog() throws Exception {
+        JiraClient jira = new JiraClient("http://localhost");
+        List<IssueHistory> history = Arrays.asList(
+                record("1", "status"), record("2", "priority"), record("3", "status", "resolution"));
+
+        List<IssueHistory> filtered = jira.filterChangeLog(history, "status");
+
+        assertEquals(2, filtered.size());
+        assertEquals("1", filtered.get(0).getId());
+        assertEquals(Arrays.asList("status"), fields(filtered.get(1)));
+    }
+
+    @Test
+    public void testStreamIsFilteredLazily() {
+        AtomicInteger decoded = new AtomicInteger();
+        Stream<IssueHistory> history = Stream.iterate(0, i -> i + 1)
+                .map(i -> {
+                    decoded.incrementAndGet();
+                    return record(String.valueOf(i), i % 2 == 0 ? "status" : "priority");
+                });
+
+        List<String> ids = new ChangeLogFilter("status").filter(history).limit(3)
+                .map(IssueHistory::getId).collect(Collectors.toList());
+
+        assertEquals(Arrays.asList("0", "2", "4"), ids);
+        assertEquals(5, decoded.get());
+    }
+
+    @Test
+    public void testFilterAllIssues() {
+        Map<String, List<IssueHistory>> histories = new LinkedHashMap<String, List<IssueHistory>>();
+
+        for (int i = 0; i < 2000; i++) {
+            histories.put("T-" + i, Arrays.asList(
+                    record("a" + i, i % 3 == 0 ? "status" : "priority"), record("b" + i, "labels")));
+        }
+
+        Map<String, List<IssueHistory>> filtered = new ChangeLogFilter("status").filterAll(histories);
+
+        assertEquals(667, filtered.size());
+        assertEquals("T-0", filtered.keySet().iterator().next());
+        assertEquals("a3", filtered.get("T-3").get(0).getId());
+        assertEquals(1, filtered.get("T-3").size());
+    }
+}
@@ -0,0 +1,225 @@
+package net.rcarz.jiraclient;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static net.rcarz.jiraclient.LocalHttpServer.param;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ChangeLogTest {
+
+    private static final int TOTAL = 230;
+    private static final int SERVER_CAP = 50;
+
+    @Rule
+    public LocalHttpServer server = new LocalHttpServer(8);
+
+    private final List<String> queries = Collections.synchronizedList(new ArrayList<String>());
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+    private volatile boolean legacy = false;
+    private volatile boolean ignoresStartAt = false;
+    private volatile boolean noContent = false;
+    private volatile boolean laterPagesFail = false;
+    private volatile int shortPageAt = -1;
+    private JiraClient jira;
+
+    @Before
+    public void setUp() throws Exception {
+        server.handle("/", this::serve);
+        jira = new JiraClient(server.baseUrl());
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String query = exchange.getRequestURI().getQuery();
+        int startAt = Integer.parseInt(param(query, "startAt"));
+        int maxResults = Math.min(Integer.parseInt(param(query, "maxResults")), SERVER_CAP);
+        queries.add(path + "?" + query);
+
+        int now = active.incrementAndGet();
+        maxActive.accumulateAndGet(now, Math::max);
+
+        try {
+            Thread.sleep(20);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        String body;
+        int status = 200;
+
+        if (path.endsWith("/changelog") && !legacy) {
+            int count = startAt == shortPageAt ? 20 : maxResults;
+            body = "{\"startAt\":" + startAt + ",\"maxResults\":" + maxResults + ",\"total\":" + TOTAL
+                    + ",\"values\":" + histories(startAt, count) + "}";
+        } else if (path.endsWith("/changelog")) {
+            status = 404;
+            body = "{\"errorMessages\":[\"Not found\"]}";
+        } else {
+            if (ignoresStartAt)
+                startAt = 0;
+
+            body = "{\"id\":\"1\",\"key\":\"T-1\",\"changelog\":{\"startAt\":" + startAt
+                    + ",\"maxResults\":" + maxResults + ",\"total\":" + TOTAL
+                    + ",\"histories\":" + histories(startAt, maxResults) + "}}";
+        }
+
+        active.decrementAndGet();
+
+        if (noContent)
+            LocalHttpServer.respond(exchange, 204, new byte[0]);
+        else if (laterPagesFail && startAt > 0)
+            LocalHttpServer.respondJson(exchange, 500, "{\"errorMessages\":[\"down\"]}");
+        else
+            LocalHttpServer.respondJson(exchange, status, body);
+    }
+
+    private static String histories(int startAt, int maxResults) {
+        StringBuilder json = new StringBuilder("[");
+
+        for (int i = startAt; i < Math.min(TOTAL, startAt + maxResults); i++) {
+            if (i > startAt)
+                json.append(',');
+
+            json.append("{\"id\":\"").append(i).append("\",")
+                .append("\"author\":{\"name\":\"joe\"},")
+                .append("\"created\":\"2020-01-02T03:04:05.000+0000\",")
+                .append("\"items\":[{\"field\":\"status\",\"fromString\":\"Open\",\"toString\":\"Done\"}]}");
+        }
+
+        return json.append(']').toString();
+    }
+
+    private static List<String> expectedIds() {
+        List<String> ids = new ArrayList<String>();
+
+        for (int i = 0; i < TOTAL; i++)
+            ids.add(String.valueOf(i));
+
+        return ids;
+    }
+
+    @Test
+    public void testPagesAreFetchedConcurrentlyInOrder() throws Exception {
+        List<String> ids;
+
+        try (Stream<IssueHistory> changes = jira.getIssueChangeLogStream("T-1", 4)) {
+            ids = changes.map(IssueHistory::getId).collect(Collectors.toList());
+        }
+
+        assertEquals(expectedIds(), ids);
+        assertEquals(5, queries.size());
+        assertTrue(maxActive.get() > 1);
+
+        for (String query : queries) {
+            assertTrue(query.contains("/issue/T-1/changelog"));
+            assertTrue(query.contains("maxResults=" + (query.contains("startAt=0") ? 100 : SERVER_CAP)));
+            assertFalse(query.contains("expand"));
+        }
+    }
+
+    @Test
+    public void testShortPageInTheMiddleSkipsNothing() throws Exception {
+        shortPageAt = 100;
+        List<String> ids;
+
+        try (Stream<IssueHistory> changes = jira.getIssueChangeLogStream("T-1", 4)) {
+            ids = changes.map(IssueHistory::getId).collect(Collectors.toList());
+        }
+
+        assertEquals(expectedIds(), ids);
+    }
+
+    @Test
+    public void testEntriesAreDecoded() throws Exception {
+        Issue issue = Field.getResource(Issue.class, Collections.singletonMap("id", "T-1"), null);
+        List<IssueHistory> changes = jira.getIssueChangeLog(issue);
+
+        assertEquals(TOTAL, changes.size());
+        assertEquals(expectedIds().get(TOTAL - 1), changes.get(TOTAL - 1).getId());
+        assertEquals("joe", changes.get(0).getUser().getName());
+        assertEquals("status", changes.get(0).getChanges().get(0).getField());
+        assertEquals("Done", changes.get(0).getChanges().get(0).getToStr());
+    }
+
+    @Test
+    public void testClosingStopsPaging() throws Exception {
+        try (Stream<IssueHistory> changes = jira.getIssueChangeLogStream("T-1", 1)) {
+            assertEquals(10, changes.limit(10).count());
+        }
+
+        assertTrue(queries.size() <= 2);
+    }
+
+    @Test
+    public void testFallsBackToExpandedIssue() throws Exception {
+        legacy = true;
+        List<String> ids;
+
+        try (Stream<IssueHistory> changes = jira.getIssueChangeLogStream("T-1")) {
+            ids = changes.map(IssueHistory::getId).collect(Collectors.toList());
+        }
+
+        assertEquals(expectedIds(), ids);
+        assertTrue(queries.get(1).contains("expand=changelog"));
+    }
+
+    @Test
+    public void testExpandedIssueIgnoringStartAtIsNotRepeated() throws Exception {
+        legacy = true;
+        ignoresStartAt = true;
+        List<String> ids;
+
+        try (Stream<IssueHistory> changes = jira.getIssueChangeLogStream("T-1")) {
+            ids = changes.map(IssueHistory::getId).collect(Collectors.toList());
+        }
+
+        assertEquals(expectedIds().subList(0, SERVER_CAP), ids);
+    }
+
+    @Test
+    public void testWithoutExecutorPagesAreFetchedOnCallingThread() throws Exception {
+        Issue issue = Field.getResource(Issue.class, Collections.singletonMap("id", "T-1"), null);
+
+        assertEquals(TOTAL, jira.getIssueChangeLog(issue).size());
+        assertEquals(5, queries.size());
+        assertEquals(1, maxActive.get());
+    }
+
+    @Test
+    public void testNoContentIsNull() throws Exception {
+        noContent = true;
+        Issue issue = Field.getResource(Issue.class, Collections.singletonMap("id", "T-1"), null);
+
+        assertNull(jira.getIssueChangeLog(issue));
+    }
+
+    @Test
+    public void testFailedPageIsJiraException() throws Exception {
+        laterPagesFail = true;
+        Issue issue = Field.getResource(Issue.class, Collections.singletonMap("id", "T-1"), null);
+
+        try {
+            jira.getIssueChangeLog(issue);
+            fail("the failed page should be reported");
+        } catch (JiraException ex) {
+            assertEquals("Failed to retrieve changelog of T-1", ex.getMessage());
+            assertTrue(ex.getCause() instanceof RestException);
+        }
+    }
+}
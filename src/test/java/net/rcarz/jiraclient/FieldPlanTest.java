@@ -0,0 +1,150 @@
+package net.rcarz.jiraclient;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import net.rcarz.jiraclient.util.JsonUtil;
+import org.apache.http.util.EntityUtils;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FieldPlanTest {
+
+    private static final String EDITMETA = "{\"fields\":{"
+            + "\"summary\":{\"required\":true,\"schema\":{\"type\":\"string\",\"system\":\"summary\"}},"
+            + "\"labels\":{\"required\":false,\"schema\":{\"type\":\"array\",\"items\":\"string\"}},"
+            + "\"points\":{\"required\":false,\"schema\":{\"type\":\"number\"}},"
+            + "\"broken\":{\"required\":false}}}";
+
+    @Test
+    public void testCompiledPlanMatchesWriteJson() throws Exception {
+        Map meta = new HashMap();
+        Map schema = new HashMap();
+        schema.put("type", "user");
+        Map field = new HashMap();
+        field.put("schema", schema);
+        meta.put("assignee", field);
+        meta.put("broken", new HashMap());
+
+        FieldPlan plan = FieldPlan.compile(meta);
+
+        assertTrue(plan.contains("assignee"));
+        assertFalse(plan.contains("summary"));
+        assertEquals("{\"assignee\":{\"name\":\"joseph\"}}",
+                write(gen -> Field.writeJson(gen, "assignee", "joseph", meta)));
+        assertEquals("{\"assignee\":{\"name\":\"joseph\"}}",
+                write(gen -> plan.write(gen, "assignee", "joseph")));
+
+        try {
+            write(gen -> plan.write(gen, "broken", "x"));
+            fail("expected a metadata error");
+        } catch (JiraException ex) {
+            assertEquals("Field 'broken' is missing schema metadata", ex.getMessage());
+        }
+
+        try {
+            write(gen -> plan.write(gen, "summary", "x"));
+            fail("expected a missing field error");
+        } catch (JiraException ex) {
+            assertEquals("Field 'summary' does not exist or read-only", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testUpdateReusesCachedPlan() throws Exception {
+        CountingRestClient restClient = new CountingRestClient();
+        restClient.setCacheFieldPlans(true);
+
+        Issue first = new Issue(restClient, Utils.getTestIssue());
+        Issue second = new Issue(restClient, Utils.getTestIssue());
+        first.update().field(Field.SUMMARY, "one").execute();
+        second.update().field(Field.SUMMARY, "two").execute();
+
+        assertEquals(1, restClient.metaRequests);
+        assertEquals("{\"fields\":{\"summary\":\"two\"}}", restClient.putPayload);
+
+        restClient.setCacheFieldPlans(false);
+        first.update().field(Field.SUMMARY, "three").execute();
+        assertEquals(2, restClient.metaRequests);
+    }
+
+    @Test
+    public void testBadValueFailsBeforeRequest() throws Exception {
+        CountingRestClient restClient = new CountingRestClient();
+        Issue issue = new Issue(restClient, Utils.getTestIssue());
+
+        try {
+            issue.update().field(Field.SUMMARY, "one").field("points", "many").execute();
+            fail("expected a bad value error");
+        } catch (JiraException ex) {
+            assertEquals("Field 'points' expects a Numeric value", ex.getMessage());
+        }
+
+        assertEquals(0, restClient.putRequests);
+
+        issue.update().field("points", 3).fieldAdd("labels", "b").execute();
+        assertEquals(1, restClient.putRequests);
+        assertEquals("{\"fields\":{\"points\":3},\"update\":{\"labels\":[{\"add\":\"b\"}]}}",
+                restClient.putPayload);
+    }
+
+    @Test
+    public void testNullTupleValue() throws Exception {
+        Map meta = new HashMap();
+        Map schema = new HashMap();
+        schema.put("type", "user");
+        Map field = new HashMap();
+        field.put("schema", schema);
+        meta.put("assignee", field);
+
+        assertEquals("{\"assignee\":{\"name\":null}}",
+                write(FieldPlan.compile(meta).bind("assignee", Field.valueByName(null))::write));
+        assertEquals("null", Field.valueByName(null).value.toString());
+    }
+
+    private interface PlanWriter {
+        void write(JsonGenerator gen) throws JiraException, IOException;
+    }
+
+    private static String write(PlanWriter writer) throws Exception {
+        StringWriter out = new StringWriter();
+        JsonGenerator gen = JsonUtil.OBJECT_MAPPER.getFactory().createGenerator(out);
+        gen.writeStartObject();
+        writer.write(gen);
+        gen.writeEndObject();
+        gen.close();
+        return out.toString();
+    }
+
+    private static class CountingRestClient extends RestClient {
+
+        int metaRequests = 0;
+        int putRequests = 0;
+        String putPayload = null;
+
+        CountingRestClient() {
+            super(null, URI.create("http://localhost"));
+        }
+
+        @Override
+        public String get(String path) {
+            metaRequests++;
+            return EDITMETA;
+        }
+
+        @Override
+        public String putStreaming(String path, JsonEntity.Writer payload) throws IOException {
+            putRequests++;
+            putPayload = EntityUtils.toString(new JsonEntity(payload));
+            return null;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package net.rcarz.jiraclient;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import net.rcarz.jiraclient.util.JsonUtil;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.sql.Timestamp;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class FieldTest {
+
+    @Test
+    public void testGetDateTime() {
+        Date d = Field.getDateTime("2013-09-29T20:16:19.854+0100");
+
+        assertEquals(1380482179854L, d.getTime());
+        assertNull(Field.getDateTime("not a date"));
+        assertNull(Field.getDateTime(null));
+    }
+
+    @Test
+    public void testGetDateTimeSprint() {
+        assertEquals(1429192860000L, Field.getDateTimeSprint("2015-04-16T14:01:00.000Z").getTime());
+        assertEquals(1429182060000L, Field.getDateTimeSprint("2015-04-16T14:01:00.000+03:00").getTime());
+        assertEquals(1429182060000L, Field.getDateTimeSprint("2015-04-16T14:01:00.000+0300").getTime());
+    }
+
+    @Test
+    public void testGetDateMatchesSimpleDateFormat() {
+        SimpleDateFormat df = new SimpleDateFormat(Field.DATE_FORMAT);
+
+        assertEquals(df.parse("2013-12-01", new ParsePosition(0)), Field.getDate("2013-12-01"));
+        assertEquals(df.parse("2013-12-01", new ParsePosition(0)),
+                Field.getDate("2013-12-01T20:16:19.854+0100"));
+        assertNull(Field.getDate("12/01/2013"));
+    }
+
+    @Test
+    public void testToDate() {
+        assertEquals(Field.getDate("2013-12-01"), Field.toDate("2013-12-01"));
+        assertEquals(Field.getDateTime("2013-09-29T20:16:19.854+0100"),
+                Field.toDate("2013-09-29T20:16:19.854+0100"));
+        assertNull(Field.toDate(null));
+    }
+
+    @Test
+    public void testDateToJson() throws JiraException {
+        Date d = Field.getDate("2013-12-01");
+        Timestamp ts = new Timestamp(1380482179854L);
+
+        assertEquals("2013-12-01", Field.toJson("duedate", d, getEditMeta("date")));
+        assertEquals(new SimpleDateFormat(Field.DATETIME_FORMAT_ZTIMEZONE).format(ts),
+                Field.toJson("duedate", ts, getEditMeta("datetime")));
+    }
+
+    @Test
+    public void testWriteJson() throws Exception {
+        Map editmeta = new HashMap();
+        editmeta.putAll(getEditMeta("duedate", "date", null));
+        editmeta.putAll(getEditMeta("assignee", "user", null));
+        editmeta.putAll(getEditMeta("project", "project", null));
+        editmeta.putAll(getEditMeta("summary", "string", null));
+        editmeta.putAll(getEditMeta("labels", "array", "string"));
+        editmeta.putAll(getEditMeta("components", "array", "component"));
+        editmeta.putAll(getEditMeta("points", "number", null));
+
+        StringWriter out = new StringWriter();
+        JsonGenerator gen = JsonUtil.OBJECT_MAPPER.getFactory().createGenerator(out);
+        gen.writeStartObject();
+        Field.writeJson(gen, "duedate", "2013-12-01", editmeta);
+        Field.writeJson(gen, "assignee", null, editmeta);
+        Field.writeJson(gen, "project", "FILTA", editmeta);
+        Field.writeJson(gen, "summary", "{\"not\": \"json\"}", editmeta);
+        Field.writeJson(gen, "labels", Arrays.asList("a", new Field.Operation("add", "b")), editmeta);
+        Field.writeJson(gen, "components", Arrays.asList(Field.valueById("10")), editmeta);
+        Field.writeJson(gen, "points", 3, editmeta);
+        gen.writeEndObject();
+        gen.close();
+
+        assertEquals("{\"duedate\":\"2013-12-01\",\"assignee\":null,\"project\":{\"key\":\"FILTA\"},"
+                + "\"summary\":\"{\\\"not\\\": \\\"json\\\"}\",\"labels\":[\"a\",{\"add\":\"b\"}],"
+                + "\"components\":[{\"id\":\"10\"}],\"points\":3}", out.toString());
+    }
+
+    @Test
+    public void testGetResourceUsesRegisteredFactory() {
+        Map json = new HashMap();
+        json.put("name", "joseph");
+
+        assertEquals(User.class, Field.getResource(User.class, json, null).getClass());
+
+        Field.registerResourceFactory(User.class, (rc, m, parentId) -> new LightUser(rc, m));
+        try {
+            User user = Field.getResource(User.class, json, null);
+            assertEquals(LightUser.class, user.getClass());
+            assertEquals("joseph", user.getName());
+        } finally {
+            Field.unregisterResourceFactory(User.class);
+        }
+
+        assertEquals(User.class, Field.getResource(User.class, json, null).getClass());
+        assertNull(Field.getResource(User.class, new HashMap(), null));
+    }
+
+    private static class LightUser extends User {
+        LightUser(RestClient restclient, Map json) {
+            super(restclient, json);
+        }
+    }
+
+    private static Map getEditMeta(String type) {
+        return getEditMeta("duedate", type, null);
+    }
+
+    private static Map getEditMeta(String name, String type, String items) {
+        Map schema = new HashMap();
+        schema.put("type", type);
+        schema.put("items", items);
+        Map field = new HashMap();
+        field.put("schema", schema);
+        Map editmeta = new HashMap();
+        editmeta.put(name, field);
+        return editmeta;
+    }
+}
@@ -0,0 +1,46 @@
+package net.rcarz.jiraclient;
+
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class IssueCompactFieldsTest {
+
+    @Test
+    public void testCompactIssueDropsTypedRawFields() {
+        RestClient restclient = new RestClient(null, URI.create("http://localhost"));
+        Issue full = new Issue(restclient, Utils.getTestIssue());
+        restclient.setCompactFields(true);
+        restclient.setLazyFields(true);
+        Issue compact = new Issue(restclient, Utils.getTestIssue());
+
+        assertEquals(full.getSummary(), compact.getSummary());
+        assertEquals(full.getStatus().getName(), compact.getStatus().getName());
+        assertEquals(full.getComments().size(), compact.getComments().size());
+        assertEquals(full.getWorkLogs().size(), compact.getWorkLogs().size());
+        assertNotNull(full.getField(Field.SUMMARY));
+        assertNull(compact.getField(Field.SUMMARY));
+        assertNull(compact.getField(Field.STATUS));
+        assertNotNull(compact.getField("progress"));
+    }
+
+    @Test
+    public void testCompactIssueKeepsRetainedFields() throws Exception {
+        RestClient restclient = new RestClient(null, URI.create("http://localhost"));
+        restclient.setCompactFields(true);
+        restclient.setRetainedFields(Collections.singleton(Field.SUMMARY));
+
+        Issue compact = new Issue(restclient, Utils.getTestIssue());
+        Issue typed = JsonBinding.readIssue(restclient, Utils.getTestIssue().toString());
+
+        assertEquals(compact.getSummary(), compact.getField(Field.SUMMARY));
+        assertNull(compact.getField("progress"));
+        assertNull(typed.getField("progress"));
+        assertEquals(compact.getSummary(), typed.getSummary());
+    }
+}
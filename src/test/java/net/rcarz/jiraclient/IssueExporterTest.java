@@ -0,0 +1,98 @@
+package net.rcarz.jiraclient;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IssueExporterTest {
+
+    private static final int TOTAL = 7;
+    private static final int PAGE_SIZE = 3;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testNdjsonPassthrough() throws Exception {
+        PagingRestClient restclient = newRestClient();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = new IssueExporter(restclient).pageSize(PAGE_SIZE)
+                .export("project = T", Channels.newChannel(out));
+
+        String[] lines = out.toString("UTF-8").split("\n");
+        assertEquals(TOTAL, count);
+        assertEquals(TOTAL, lines.length);
+        assertEquals(issue(0), lines[0]);
+        assertEquals(issue(TOTAL - 1), lines[TOTAL - 1]);
+        assertFalse(restclient.requests.get(0).contains("fields="));
+    }
+
+    @Test
+    public void testNdjsonOfPrettyPrintedResponse() throws Exception {
+        PagingRestClient restclient = new PagingRestClient(TOTAL, PAGE_SIZE,
+                i -> "{\r\n  " + issue(i).substring(1).replace("},\"labels\"", "},\n  \"labels\"") + "\n");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        new IssueExporter(restclient).pageSize(PAGE_SIZE).export("project = T", Channels.newChannel(out));
+
+        String[] lines = out.toString("UTF-8").split("\n");
+        assertEquals(TOTAL, lines.length);
+        assertEquals(issue(2), lines[2]);
+    }
+
+    @Test
+    public void testNdjsonProjection() throws Exception {
+        PagingRestClient restclient = newRestClient();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        new IssueExporter(restclient).columns("summary").pageSize(PAGE_SIZE)
+                .export("project = T", Channels.newChannel(out));
+
+        String[] lines = out.toString("UTF-8").split("\n");
+        assertEquals("{\"id\":\"1\",\"key\":\"T-1\",\"fields\":{\"summary\":\"Summary, \\\"1\\\"\"}}", lines[1]);
+        assertTrue(restclient.requests.get(0).contains("fields=summary"));
+    }
+
+    @Test
+    public void testCsvToPath() throws Exception {
+        Path path = folder.newFile("issues.csv").toPath();
+
+        long count = new IssueExporter(newRestClient()).format(IssueExporter.Format.CSV)
+                .columns("key", "summary", "status", "labels", "customfield_1").pageSize(PAGE_SIZE)
+                .export("project = T", path);
+
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        assertEquals(TOTAL, count);
+        assertEquals(TOTAL + 1, lines.size());
+        assertEquals("key,summary,status,labels,customfield_1", lines.get(0));
+        assertEquals("T-2,\"Summary, \"\"2\"\"\",Open,a;b,", lines.get(3));
+    }
+
+    @Test(expected = JiraException.class)
+    public void testCsvRequiresColumns() throws Exception {
+        new IssueExporter(newRestClient()).format(IssueExporter.Format.CSV)
+                .export("project = T", Channels.newChannel(new ByteArrayOutputStream()));
+    }
+
+    private static PagingRestClient newRestClient() {
+        return new PagingRestClient(TOTAL, PAGE_SIZE, IssueExporterTest::issue);
+    }
+
+    private static String issue(int i) {
+        return "{\"id\":\"" + i + "\",\"key\":\"T-" + i + "\",\"fields\":{\"summary\":\"Summary, \\\""
+                + i + "\\\"\",\"status\":{\"self\":\"http://localhost/status/1\",\"name\":\"Open\"},"
+                + "\"labels\":[\"a\",\"b\"],\"customfield_1\":null}}";
+    }
+}
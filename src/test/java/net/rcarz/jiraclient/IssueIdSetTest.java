@@ -0,0 +1,77 @@
+package net.rcarz.jiraclient;
+
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class IssueIdSetTest {
+
+    @Test
+    public void testBuilderSortsAndRemovesDuplicates() {
+        IssueIdSet.Builder b = new IssueIdSet.Builder(0);
+        Random random = new Random(42);
+
+        for (int i = 0; i < 1000; i++) {
+            long id = random.nextInt(500);
+            b.add(id, "TEST-" + id);
+        }
+
+        IssueIdSet set = b.build();
+        long[] ids = set.getIds();
+
+        for (int i = 1; i < ids.length; i++)
+            assertTrue(ids[i - 1] < ids[i]);
+
+        for (int i = 0; i < set.size(); i++)
+            assertEquals("TEST-" + set.getId(i), set.getKey(i));
+    }
+
+    @Test
+    public void testSetOperations() {
+        IssueIdSet a = new IssueIdSet.Builder(4).add(3, "A-3").add(1, "A-1").add(2, "A-2").build();
+        IssueIdSet b = new IssueIdSet.Builder(4).add(2, "A-2").add(4, "A-4").build();
+
+        assertTrue(a.contains(2));
+        assertFalse(a.contains(4));
+        assertEquals("A-3", a.getKey(3L));
+        assertNull(a.getKey(4L));
+        assertArrayEquals(new long[] { 1, 3 }, a.difference(b).getIds());
+        assertArrayEquals(new String[] { "A-1", "A-3" }, a.difference(b).getKeys());
+        assertArrayEquals(new long[] { 2 }, a.intersection(b).getIds());
+        assertEquals(0, IssueIdSet.EMPTY.difference(a).size());
+    }
+
+    @Test
+    public void testSearchIdsPagesThroughResults() throws Exception {
+        final List<String> queries = new ArrayList<String>();
+        RestClient restclient = new RestClient(null, URI.create("http://localhost")) {
+            @Override
+            public String get(URI uri) {
+                queries.add(uri.getQuery());
+
+                if (uri.getQuery().contains("startAt=0"))
+                    return "{\"startAt\":0,\"maxResults\":2,\"total\":3,\"issues\":["
+                            + "{\"expand\":\"x\",\"id\":\"10002\",\"self\":\"s\",\"key\":\"T-2\",\"fields\":{}},"
+                            + "{\"id\":\"10001\",\"key\":\"T-1\"}]}";
+
+                return "{\"startAt\":2,\"maxResults\":2,\"total\":3,\"issues\":[{\"id\":\"10003\",\"key\":\"T-3\"}]}";
+            }
+        };
+
+        IssueIdSet ids = Issue.searchIds(restclient, "project = T");
+
+        assertEquals(2, queries.size());
+        assertTrue(queries.get(0).contains("fields=&") || queries.get(0).endsWith("fields="));
+        assertArrayEquals(new long[] { 10001, 10002, 10003 }, ids.getIds());
+        assertArrayEquals(new String[] { "T-1", "T-2", "T-3" }, ids.getKeys());
+    }
+}
@@ -0,0 +1,60 @@
+package net.rcarz.jiraclient;
+
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class IssueLazyFieldsTest {
+
+    @Test
+    public void testLazyIssueMatchesEagerIssue() {
+        RestClient restclient = new RestClient(null, URI.create("http://localhost"));
+        Issue eager = new Issue(restclient, Utils.getTestIssue());
+        restclient.setLazyFields(true);
+        Issue lazy = new Issue(restclient, Utils.getTestIssue());
+
+        assertEquals(eager.getKey(), lazy.getKey());
+        assertEquals(eager.getSummary(), lazy.getSummary());
+        assertEquals(eager.getStatus().getName(), lazy.getStatus().getName());
+        assertEquals(eager.getCreatedDate(), lazy.getCreatedDate());
+        assertEquals(eager.getComments().size(), lazy.getComments().size());
+        assertEquals(eager.getWorkLogs().size(), lazy.getWorkLogs().size());
+        assertEquals(eager.getTimeSpent(), lazy.getTimeSpent());
+        assertEquals(eager.getLabels(), lazy.getLabels());
+        assertSame(lazy.getStatus(), lazy.getStatus());
+    }
+
+    @Test
+    public void testLazyFieldIsBuiltOnce() throws Exception {
+        RestClient restclient = new RestClient(null, URI.create("http://localhost"));
+        restclient.setLazyFields(true);
+        final Issue lazy = new Issue(restclient, Utils.getTestIssue());
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Object>> results = new ArrayList<Future<Object>>();
+            for (int i = 0; i < 16; i++) {
+                results.add(pool.submit(new Callable<Object>() {
+                    public Object call() {
+                        return lazy.getReporter();
+                    }
+                }));
+            }
+
+            Object first = results.get(0).get();
+            for (Future<Object> f : results)
+                assertSame(first, f.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package net.rcarz.jiraclient;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class IssueStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Rule
+    public LocalHttpServer server = new LocalHttpServer();
+
+    private static String json(String key, String summary) {
+        return "{\"id\":\"" + key.substring(key.indexOf('-') + 1) + "\",\"key\":\"" + key
+                + "\",\"fields\":{\"summary\":\"" + summary + "\"}}";
+    }
+
+    private static List<Path> segments(Path dir) throws Exception {
+        List<Path> files = new ArrayList<Path>();
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*.log")) {
+            for (Path file : stream)
+                files.add(file);
+        }
+
+        Collections.sort(files);
+        return files;
+    }
+
+    @Test
+    public void testPutGetAndReopen() throws Exception {
+        Path dir = folder.getRoot().toPath();
+
+        try (IssueStore store = new IssueStore(null, dir)) {
+            store.put(json("T-1", "first"));
+            store.put("T-2", json("T-2", "second"));
+            store.put(json("T-1", "first, edited"));
+
+            assertEquals(2, store.size());
+            assertEquals("first, edited", store.get("T-1").getSummary());
+            assertEquals(json("T-2", "second"), store.getJson("T-2"));
+            assertNull(store.get("T-3"));
+
+            assertTrue(store.remove("T-2"));
+            assertFalse(store.remove("T-2"));
+            assertNull(store.get("T-2"));
+        }
+
+        try (IssueStore store = new IssueStore(null, dir)) {
+            assertEquals(1, store.size());
+            assertEquals("T-1", store.get("T-1").getKey());
+            assertNull(store.get("T-2"));
+            assertTrue(store.getReclaimableBytes() > 0);
+        }
+    }
+
+    @Test
+    public void testRecoversFromCrash() throws Exception {
+        Path dir = folder.newFolder("store").toPath();
+        Path crashed = folder.newFolder("crashed").toPath();
+
+        try (IssueStore store = new IssueStore(null, dir)) {
+            store.put(json("T-1", "one"));
+            store.put(json("T-2", "two"));
+            store.remove("T-1");
+            store.flush();
+
+            /* what a crash leaves behind: a dirty index and a torn record */
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+                for (Path file : files)
+                    Files.copy(file, crashed.resolve(file.getFileName()));
+            }
+        }
+
+        Path segment = segments(crashed).get(0);
+        long intact = Files.size(segment);
+        Files.write(segment, new byte[] { 0, 0, 0, 50, 1, 2, 3, 4, 5, 6 }, StandardOpenOption.APPEND);
+
+        try (IssueStore store = new IssueStore(null, crashed)) {
+            assertEquals(1, store.size());
+            assertNull(store.get("T-1"));
+            assertEquals("two", store.get("T-2").getSummary());
+            assertEquals(intact, Files.size(segment));
+
+            store.put(json("T-3", "three"));
+        }
+
+        try (IssueStore store = new IssueStore(null, crashed)) {
+            assertEquals(2, store.size());
+            assertEquals("three", store.get("T-3").getSummary());
+        }
+    }
+
+    @Test
+    public void testRefusesDamagedSealedSegment() throws Exception {
+        Path dir = folder.getRoot().toPath();
+
+        try (IssueStore store = new IssueStore(null, dir, 1024)) {
+            for (int i = 0; i < 40; i++)
+                store.put(json("T-" + i, "summary " + i));
+        }
+
+        Files.delete(dir.resolve(IssueStore.INDEX));
+        Path first = segments(dir).get(0);
+        byte[] bytes = Files.readAllBytes(first);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(first, bytes);
+
+        try {
+            new IssueStore(null, dir, 1024).close();
+            fail("a damaged sealed segment should fail the open");
+        } catch (IOException ex) {
+            assertTrue(ex.getMessage().startsWith("Corrupt record in segment 1 at "));
+        }
+
+        assertEquals(bytes.length, Files.size(first));
+    }
+
+    @Test
+    public void testParallelLookups() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try (IssueStore store = new IssueStore(null, dir)) {
+            for (int i = 0; i < 500; i++)
+                store.put(json("T-" + i, "summary " + i));
+
+            List<Future<?>> readers = new ArrayList<Future<?>>();
+
+            for (int t = 0; t < 4; t++) {
+                readers.add(executor.submit(() -> {
+                    for (int i = 0; i < 2000; i++)
+                        assertEquals("summary " + i % 500, store.get("T-" + i % 500).getSummary());
+
+                    return null;
+                }));
+            }
+
+            /* grows the index while the readers run */
+            for (int i = 500; i < 3000; i++)
+                store.put(json("T-" + i, "summary " + i));
+
+            for (Future<?> reader : readers)
+                reader.get();
+
+            assertEquals(3000, store.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        Path dir = folder.getRoot().toPath();
+
+        try (IssueStore store = new IssueStore(null, dir, 1024)) {
+            for (int version = 0; version < 20; version++) {
+                for (int i = 0; i < 10; i++)
+                    store.put(json("T-" + i, "version " + version));
+            }
+
+            store.remove("T-9");
+            assertTrue(segments(dir).size() > 10);
+
+            store.compact();
+
+            assertEquals(0, store.getReclaimableBytes());
+            assertTrue(segments(dir).size() <= 3);
+            assertEquals(9, store.size());
+            assertEquals("version 19", store.get("T-0").getSummary());
+            assertNull(store.get("T-9"));
+        }
+
+        try (IssueStore store = new IssueStore(null, dir, 1024)) {
+            assertEquals(9, store.size());
+            assertEquals("version 19", store.get("T-8").getSummary());
+            assertNull(store.get("T-9"));
+        }
+    }
+
+    @Test
+    public void testIndexGrows() throws Exception {
+        Path dir = folder.getRoot().toPath();
+
+        try (IssueStore store = new IssueStore(null, dir)) {
+            for (int i = 0; i < 5000; i++)
+                store.put(json("T-" + i, "issue " + i));
+        }
+
+        try (IssueStore store = new IssueStore(null, dir)) {
+            assertEquals(5000, store.size());
+
+            for (int i = 0; i < 5000; i += 499)
+                assertEquals("issue " + i, store.get("T-" + i).getSummary());
+        }
+    }
+
+    @Test
+    public void testLoadFromSearch() throws Exception {
+        server.handle("/", exchange -> {
+            boolean first = exchange.getRequestURI().getQuery().contains("startAt=0");
+            LocalHttpServer.respondJson(exchange, 200, "{\"startAt\":" + (first ? 0 : 2)
+                    + ",\"maxResults\":100,\"total\":2,\"issues\":["
+                    + (first ? json("T-1", "one") + "," + json("T-2", "two") : "") + "]}");
+        });
+
+        try (IssueStore store = new IssueStore(server.newRestClient(), folder.getRoot().toPath())) {
+            assertEquals(2, store.load("project = T", "summary"));
+            assertEquals("two", store.get("T-2").getSummary());
+            assertEquals(json("T-1", "one"), store.getJson("T-1"));
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package net.rcarz.jiraclient;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class IssueSyncerTest {
+
+    private static final long MINUTE = 60 * 1000;
+    private static final Pattern SINCE = Pattern.compile("updated >= -([0-9]+)m");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Rule
+    public LocalHttpServer server = new LocalHttpServer();
+
+    /* id -> { created, updated } */
+    private final Map<String, long[]> issues = new ConcurrentHashMap<String, long[]>();
+    private final List<String> queries = Collections.synchronizedList(new ArrayList<String>());
+    private final long now = System.currentTimeMillis();
+    private volatile Runnable betweenPages = null;
+    private RestClient restclient;
+    private Path dir;
+
+    @Before
+    public void setUp() throws Exception {
+        issues.put("1", new long[] { now - 90 * MINUTE, now - 60 * MINUTE });
+        issues.put("2", new long[] { now - 90 * MINUTE, now - 30 * MINUTE });
+        issues.put("3", new long[] { now - 90 * MINUTE, now - 10 * MINUTE });
+
+        server.handle("/", this::serve);
+        restclient = server.newRestClient();
+        dir = folder.getRoot().toPath();
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        String query = URLDecoder.decode(exchange.getRequestURI().getRawQuery(), "UTF-8");
+        String jql = query.replaceAll(".*jql=([^&]*).*", "$1");
+        int startAt = Integer.parseInt(query.replaceAll(".*startAt=([0-9]+).*", "$1"));
+        Matcher since = SINCE.matcher(jql);
+        long floor = since.find() ? System.currentTimeMillis() - Long.parseLong(since.group(1)) * MINUTE : 0;
+
+        if (startAt == 0)
+            queries.add(jql);
+
+        List<String> matching = new ArrayList<String>();
+        for (Map.Entry<String, long[]> issue : issues.entrySet()) {
+            if (issue.getValue()[1] >= floor)
+                matching.add(issue.getKey());
+        }
+
+        matching.sort(Comparator.comparingLong((String id) -> issues.get(id)[1]).thenComparing(id -> id));
+
+        List<String> page = new ArrayList<String>();
+        for (String id : matching.subList(Math.min(startAt, matching.size()),
+                Math.min(startAt + 100, matching.size())))
+            page.add(issue(id));
+
+        LocalHttpServer.respondJson(exchange, 200, "{\"startAt\":" + startAt + ",\"maxResults\":100,\"total\":"
+                + matching.size() + ",\"issues\":[" + String.join(",", page) + "]}");
+
+        Runnable change = betweenPages;
+        betweenPages = null;
+
+        if (change != null)
+            change.run();
+    }
+
+    private String issue(String id) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+        long[] times = issues.get(id);
+
+        return "{\"id\":\"" + id + "\",\"key\":\"T-" + id + "\",\"fields\":{"
+                + "\"created\":\"" + format.format(new Date(times[0])) + "\","
+                + "\"updated\":\"" + format.format(new Date(times[1])) + "\"}}";
+    }
+
+    private List<String> sync(IssueSyncer syncer) throws JiraException {
+        final List<String> events = new ArrayList<String>();
+        syncer.sync("project = T ORDER BY key", (event, issue) -> events.add(event + " " + issue.getKey()));
+        return events;
+    }
+
+    @Test
+    public void testQuery() {
+        assertEquals("(project = T) AND updated >= -16m ORDER BY updated ASC",
+                IssueSyncer.getQuery("project = T order by created DESC", 0, 5 * MINUTE, 10 * MINUTE + 1));
+        assertEquals("project = T ORDER BY updated ASC", IssueSyncer.getQuery("project = T", -1, 0, 0));
+        assertEquals("updated >= -1m ORDER BY updated ASC", IssueSyncer.getQuery("", 0, 0, 0));
+        assertEquals("summary ~ \"sort order by date\" AND project = X ORDER BY updated ASC",
+                IssueSyncer.getQuery("summary ~ \"sort order by date\" AND project = X", -1, 0, 0));
+        assertEquals("summary ~ 'it\\'s order by' ORDER BY updated ASC",
+                IssueSyncer.getQuery("summary ~ 'it\\'s order by' order by key", -1, 0, 0));
+    }
+
+    @Test
+    public void testOnlyChangesAreReported() throws Exception {
+        IssueSyncer syncer = new IssueSyncer(restclient, dir);
+
+        assertEquals(Arrays.asList("CREATED T-1", "CREATED T-2", "CREATED T-3"), sync(syncer));
+        assertEquals("project = T ORDER BY updated ASC", queries.get(0));
+
+        assertEquals(Collections.<String>emptyList(), sync(syncer));
+        assertTrue(SINCE.matcher(queries.get(1)).find());
+
+        issues.get("1")[1] = now;
+        issues.put("4", new long[] { now - MINUTE, now - MINUTE });
+
+        assertEquals(Arrays.asList("CREATED T-4", "UPDATED T-1"), sync(new IssueSyncer(restclient, dir)));
+        assertEquals(Collections.<String>emptyList(), sync(new IssueSyncer(restclient, dir)));
+    }
+
+    @Test
+    public void testFailedRunResumes() throws Exception {
+        final List<String> seen = new ArrayList<String>();
+
+        try {
+            new IssueSyncer(restclient, dir).sync("project = T", (event, issue) -> {
+                if (issue.getKey().equals("T-2"))
+                    throw new IllegalStateException("listener failed");
+
+                seen.add(issue.getKey());
+            });
+            fail("listener failure should stop the run");
+        } catch (JiraException ex) {
+            assertEquals("listener failed", ex.getCause().getMessage());
+        }
+
+        IssueSyncer.Result result = new IssueSyncer(restclient, dir).sync("project = T",
+                (event, issue) -> seen.add(issue.getKey()));
+
+        assertEquals(Arrays.asList("T-1", "T-2", "T-3"), seen);
+        assertEquals(2, result.getUpdated());
+        assertEquals(now - 10 * MINUTE, result.getWatermark().getTime());
+    }
+
+    @Test
+    public void testIssueUpdatedBetweenPagesDoesNotHideOthers() throws Exception {
+        issues.clear();
+
+        for (int i = 0; i < 250; i++)
+            issues.put(String.valueOf(100 + i), new long[] { now - 400 * MINUTE, now - (300 - i) * MINUTE });
+
+        /* the oldest issue moves behind the rest once the first page is read */
+        betweenPages = () -> issues.get("100")[1] = now - MINUTE;
+
+        List<String> events = sync(new IssueSyncer(restclient, dir));
+        Set<String> missing = new HashSet<String>();
+
+        for (int i = 0; i < 250; i++)
+            missing.add("CREATED T-" + (100 + i));
+
+        missing.removeAll(events);
+        assertEquals(Collections.<String>emptySet(), missing);
+        assertEquals(251, events.size());
+        assertEquals("CREATED T-100", events.get(events.size() - 1));
+        assertEquals(Collections.<String>emptyList(), sync(new IssueSyncer(restclient, dir)));
+    }
+}
@@ -0,0 +1,76 @@
+package net.rcarz.jiraclient;
+
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class JsonBindingTest {
+
+    private final RestClient restclient = new RestClient(null, URI.create("http://localhost"));
+
+    @Test
+    public void testTypedIssueMatchesMapIssue() throws Exception {
+        Issue expected = new Issue(restclient, Utils.getTestIssue());
+        Issue actual = JsonBinding.readIssue(restclient, Utils.getTestIssue().toString());
+
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getKey(), actual.getKey());
+        assertEquals(expected.getSummary(), actual.getSummary());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(expected.getCreatedDate(), actual.getCreatedDate());
+        assertEquals(expected.getUpdatedDate(), actual.getUpdatedDate());
+        assertEquals(expected.getDueDate(), actual.getDueDate());
+        assertEquals(expected.getTimeSpent(), actual.getTimeSpent());
+        assertEquals(expected.getTimeEstimate(), actual.getTimeEstimate());
+        assertEquals(expected.getLabels(), actual.getLabels());
+        assertEquals(expected.getStatus().getName(), actual.getStatus().getName());
+        assertEquals(expected.getStatus().getId(), actual.getStatus().getId());
+        assertEquals(expected.getPriority().getName(), actual.getPriority().getName());
+        assertEquals(expected.getIssueType().getName(), actual.getIssueType().getName());
+        assertEquals(expected.getProject().getKey(), actual.getProject().getKey());
+        assertEquals(expected.getProject().getAvatarUrls(), actual.getProject().getAvatarUrls());
+        assertEquals(expected.getReporter().getEmail(), actual.getReporter().getEmail());
+        assertEquals(expected.getReporter().getAvatarUrls(), actual.getReporter().getAvatarUrls());
+        assertEquals(expected.getVotes().getVotes(), actual.getVotes().getVotes());
+        assertEquals(expected.getWatches().getWatchCount(), actual.getWatches().getWatchCount());
+        assertEquals(expected.getFixVersions().size(), actual.getFixVersions().size());
+        assertEquals(expected.getFixVersions().get(0).getName(), actual.getFixVersions().get(0).getName());
+        assertEquals(expected.getComments().size(), actual.getComments().size());
+        assertEquals(expected.getWorkLogs().size(), actual.getWorkLogs().size());
+        assertEquals(expected.getTimeTracking().getTimeSpentSeconds(),
+                actual.getTimeTracking().getTimeSpentSeconds());
+        assertEquals(expected.getResolution(), actual.getResolution());
+        assertEquals(expected.getResolutionDate(), actual.getResolutionDate());
+        assertSame(restclient, actual.getStatus().restclient);
+    }
+
+    @Test
+    public void testTypedIssueKeepsUnknownFields() throws Exception {
+        Issue actual = JsonBinding.readIssue(restclient, Utils.getTestIssue().toString());
+
+        assertNull(actual.getField(Field.SUMMARY));
+        assertTrue(actual.getField("progress") instanceof Map);
+        assertEquals(0, ((Map) actual.getField("progress")).get("total"));
+    }
+
+    @Test
+    public void testTypedSearchPage() throws Exception {
+        String json = "{\"expand\":\"names,schema\",\"startAt\":5,\"maxResults\":50,\"total\":6,"
+                + "\"names\":{\"summary\":\"Summary\"},"
+                + "\"issues\":[" + Utils.getTestIssue().toString() + ",{}]}";
+        JsonBinding.SearchPage page = JsonBinding.readSearchPage(restclient, json);
+
+        assertEquals(5, page.startAt);
+        assertEquals(50, page.maxResults);
+        assertEquals(6, page.total);
+        assertEquals(1, page.issues.size());
+        assertNotNull(page.issues.get(0).getStatus());
+    }
+}
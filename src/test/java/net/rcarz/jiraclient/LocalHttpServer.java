@@ -0,0 +1,149 @@
+package net.rcarz.jiraclient;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.junit.rules.ExternalResource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * An HTTP server on a free local port that stands in for JIRA. As a rule
+ * it is started before and stopped after each test; handlers can be added
+ * at any time.
+ */
+public class LocalHttpServer extends ExternalResource {
+
+    private final int threads;
+    private HttpServer server;
+    private ExecutorService pool;
+
+    /**
+     * Creates a server that handles one request at a time.
+     */
+    public LocalHttpServer() {
+        this(0);
+    }
+
+    /**
+     * @param threads Number of requests handled at the same time, or 0 for
+     * one at a time
+     */
+    public LocalHttpServer(int threads) {
+        this.threads = threads;
+    }
+
+    @Override
+    protected void before() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+
+        if (threads > 0) {
+            pool = Executors.newFixedThreadPool(threads);
+            server.setExecutor(pool);
+        }
+
+        server.start();
+    }
+
+    @Override
+    protected void after() {
+        server.stop(0);
+
+        if (pool != null)
+            pool.shutdownNow();
+    }
+
+    /**
+     * Handles the requests below a path.
+     *
+     * @param path Path prefix
+     * @param handler Request handler
+     *
+     * @return this server
+     */
+    public LocalHttpServer handle(String path, HttpHandler handler) {
+        server.createContext(path, handler);
+        return this;
+    }
+
+    /**
+     * @return the server URL without a trailing slash
+     */
+    public String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Creates a client for sequential requests to this server.
+     *
+     * @return a REST client
+     */
+    public RestClient newRestClient() {
+        return new RestClient(new DefaultHttpClient(), URI.create(baseUrl()));
+    }
+
+    /**
+     * Creates a client for concurrent requests to this server.
+     *
+     * @param connections Number of connections the client may open
+     *
+     * @return a REST client
+     */
+    public RestClient newRestClient(int connections) {
+        PoolingClientConnectionManager connManager = new PoolingClientConnectionManager();
+        connManager.setDefaultMaxPerRoute(connections);
+        return new RestClient(new DefaultHttpClient(connManager), URI.create(baseUrl()));
+    }
+
+    /**
+     * Sends a response with a known length.
+     *
+     * @param exchange Request being answered
+     * @param status HTTP status
+     * @param body Response body
+     */
+    public static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length > 0 ? body.length : -1);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Sends a JSON response.
+     *
+     * @param exchange Request being answered
+     * @param status HTTP status
+     * @param json Response body
+     */
+    public static void respondJson(HttpExchange exchange, int status, String json) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+        respond(exchange, status, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Gets a parameter of a query string, without decoding it.
+     *
+     * @param query Query string
+     * @param name Parameter name
+     *
+     * @return the value or null
+     */
+    public static String param(String query, String name) {
+        for (String pair : query.split("&")) {
+            if (pair.startsWith(name + "="))
+                return pair.substring(name.length() + 1);
+        }
+
+        return null;
+    }
+}
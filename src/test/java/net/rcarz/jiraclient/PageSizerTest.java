@@ -0,0 +1,144 @@
+package net.rcarz.jiraclient;
+
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class PageSizerTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testInitialSize() {
+        PageSizer sizer = new PageSizer(50, 10, 1000, 1000, 0);
+
+        assertEquals(50, sizer.getPageSize());
+        assertEquals(200, sizer.newSizer(200).getPageSize());
+        assertEquals(1000, sizer.newSizer(5000).getPageSize());
+        assertEquals(10, sizer.newSizer(1).getPageSize());
+        assertEquals(50, sizer.newSizer(null).getPageSize());
+        assertEquals(-1, sizer.getServerCap());
+    }
+
+    @Test
+    public void testDetectsServerCap() {
+        PageSizer sizer = new PageSizer(500, 10, 1000, 1000, 0);
+        sizer.record(500, 100, 100, 1, 0);
+
+        assertEquals(100, sizer.getServerCap());
+        assertEquals(100, sizer.getPageSize());
+    }
+
+    @Test
+    public void testServerCapBelowMinimum() {
+        PageSizer sizer = new PageSizer(50, 10, 1000, 1000, 0);
+        sizer.record(50, 5, 5, 1, 0);
+
+        assertEquals(5, sizer.getPageSize());
+    }
+
+    @Test
+    public void testGrowsAtMostTwofold() {
+        PageSizer sizer = new PageSizer(50, 10, 1000, 1000, 0);
+
+        sizer.record(50, 50, 50, SECOND / 100, 0);
+        assertEquals(100, sizer.getPageSize());
+
+        sizer.record(100, 100, 100, SECOND / 100, 0);
+        assertEquals(200, sizer.getPageSize());
+    }
+
+    @Test
+    public void testShrinksSlowPages() {
+        PageSizer sizer = new PageSizer(100, 10, 1000, 1000, 0);
+        sizer.record(100, 100, 100, 4 * SECOND, 0);
+
+        assertEquals(25, sizer.getPageSize());
+
+        sizer.record(25, 25, 25, 100 * SECOND, 0);
+        assertEquals(10, sizer.getPageSize());
+    }
+
+    @Test
+    public void testShrinksHeavyPages() {
+        PageSizer sizer = new PageSizer(100, 10, 1000, 1000, 1000000);
+        sizer.record(100, 100, 100, 1, 4000000);
+
+        assertEquals(25, sizer.getPageSize());
+    }
+
+    @Test
+    public void testEmptyPageKeepsSize() {
+        PageSizer sizer = new PageSizer(100, 10, 1000, 1000, 0);
+        sizer.record(100, 100, 0, SECOND, 0);
+
+        assertEquals(100, sizer.getPageSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRange() {
+        new PageSizer(50, 100, 10, 1000, 0);
+    }
+
+    @Test
+    public void testSearchFollowsServerCap() throws Exception {
+        CappedRestClient restclient = new CappedRestClient();
+        restclient.setPageSizer(new PageSizer(50, 1, 1000, 60000, 0));
+
+        Issue.SearchResult result = Issue.search(restclient, "search", "project = T", null, null,
+                100, null, null);
+        List<String> keys = new ArrayList<String>();
+
+        for (Iterator<Issue> it = result.iterator(); it.hasNext(); )
+            keys.add(it.next().getKey());
+
+        assertEquals(CappedRestClient.TOTAL, keys.size());
+        assertEquals("T-0", keys.get(0));
+        assertEquals("T-" + (CappedRestClient.TOTAL - 1), keys.get(keys.size() - 1));
+        assertEquals(100, restclient.requested.get(0).intValue());
+
+        for (int i = 1; i < restclient.requested.size(); i++)
+            assertEquals(CappedRestClient.CAP, restclient.requested.get(i).intValue());
+    }
+
+    private static class CappedRestClient extends RestClient {
+
+        static final int TOTAL = 45;
+        static final int CAP = 20;
+
+        final List<Integer> requested = new ArrayList<Integer>();
+
+        CappedRestClient() {
+            super(null, URI.create("http://localhost"));
+        }
+
+        @Override
+        public String get(URI uri) {
+            String query = uri.getQuery();
+            int startAt = Integer.parseInt(query.replaceAll(".*startAt=(\\d+).*", "$1"));
+            int max = Integer.parseInt(query.replaceAll(".*maxResults=(\\d+).*", "$1"));
+            requested.add(max);
+
+            int size = Math.min(max, CAP);
+            StringBuilder sb = new StringBuilder();
+            sb.append("{\"startAt\":").append(startAt).append(",\"maxResults\":").append(size)
+                    .append(",\"total\":").append(TOTAL).append(",\"issues\":[");
+
+            for (int i = startAt; i < Math.min(startAt + size, TOTAL); i++) {
+                if (i > startAt)
+                    sb.append(',');
+
+                sb.append("{\"id\":\"").append(i).append("\",\"key\":\"T-").append(i)
+                        .append("\",\"fields\":{}}");
+            }
+
+            return sb.append("]}").toString();
+        }
+    }
+}
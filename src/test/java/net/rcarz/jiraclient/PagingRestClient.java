@@ -0,0 +1,68 @@
+package net.rcarz.jiraclient;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * A REST client that answers every GET with a page of search results
+ * from memory, starting at the requested startAt. The query strings of
+ * the requests are recorded.
+ */
+public class PagingRestClient extends RestClient {
+
+    final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+
+    private final int total;
+    private final int pageSize;
+    private final IntFunction<String> issue;
+
+    /**
+     * @param total Number of issues matching the search
+     * @param pageSize Issues per page
+     */
+    public PagingRestClient(int total, int pageSize) {
+        this(total, pageSize, PagingRestClient::issue);
+    }
+
+    /**
+     * @param total Number of issues matching the search
+     * @param pageSize Issues per page
+     * @param issue JSON of the issue at an index
+     */
+    public PagingRestClient(int total, int pageSize, IntFunction<String> issue) {
+        super(null, URI.create("http://localhost"));
+        this.total = total;
+        this.pageSize = pageSize;
+        this.issue = issue;
+    }
+
+    /**
+     * Issue T-i with a summary and a description.
+     */
+    static String issue(int i) {
+        return "{\"id\":\"" + i + "\",\"key\":\"T-" + i + "\",\"fields\":{\"summary\":\"summary of T-" + i
+                + "\",\"description\":\"skipped\"}}";
+    }
+
+    @Override
+    public String get(URI uri) {
+        requests.add(uri.getQuery());
+
+        int startAt = Integer.parseInt(uri.getQuery().replaceAll(".*startAt=(\\d+).*", "$1"));
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"startAt\":").append(startAt).append(",\"maxResults\":").append(pageSize)
+                .append(",\"total\":").append(total).append(",\"issues\":[");
+
+        for (int i = startAt; i < Math.min(startAt + pageSize, total); i++) {
+            if (i > startAt)
+                sb.append(',');
+
+            sb.append(issue.apply(i));
+        }
+
+        return sb.append("]}").toString();
+    }
+}
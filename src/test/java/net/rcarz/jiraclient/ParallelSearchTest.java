@@ -0,0 +1,126 @@
+package net.rcarz.jiraclient;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelSearchTest {
+
+    private static final int TOTAL = 25;
+    private static final int PAGE_SIZE = 10;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testParallelSearchKeepsOrder() throws Exception {
+        PagingRestClient restclient = new PagingRestClient(TOTAL, PAGE_SIZE);
+        restclient.setSearchExecutor(executor);
+
+        assertEquals(expectedKeys(), iterate(restclient, null));
+        /* three pages plus the empty page that ends the iteration, each requested once */
+        assertEquals(4, restclient.requests.size());
+        assertEquals(4, new HashSet<String>(restclient.requests).size());
+    }
+
+    @Test
+    public void testParallelTypedSearchWithProjection() throws Exception {
+        PagingRestClient restclient = new PagingRestClient(TOTAL, PAGE_SIZE);
+        restclient.setSearchExecutor(executor);
+        restclient.setTypedBinding(true);
+
+        assertEquals(expectedKeys(), iterate(restclient, "summary"));
+        assertEquals(4, restclient.requests.size());
+        assertEquals(4, new HashSet<String>(restclient.requests).size());
+    }
+
+    @Test
+    public void testParallelSearchMatchesSequentialSearch() throws Exception {
+        PagingRestClient sequential = new PagingRestClient(TOTAL, PAGE_SIZE);
+        PagingRestClient parallel = new PagingRestClient(TOTAL, PAGE_SIZE);
+        parallel.setSearchExecutor(executor);
+
+        Issue.SearchResult a = Issue.search(sequential, "search", "project = T", null, null, PAGE_SIZE, null, null);
+        Issue.SearchResult b = Issue.search(parallel, "search", "project = T", null, null, PAGE_SIZE, null, null);
+
+        assertEquals(a.total, b.total);
+        assertEquals(a.issues.size(), b.issues.size());
+        assertEquals(a.issues.get(3).getSummary(), b.issues.get(3).getSummary());
+    }
+
+    @Test
+    public void testCloseCancelsPrefetch() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch cancelled = new CountDownLatch(1);
+        PagingRestClient restclient = new PagingRestClient(TOTAL, PAGE_SIZE) {
+            @Override
+            public String get(URI uri) {
+                if (!uri.getQuery().contains("startAt=0")) {
+                    started.countDown();
+
+                    try {
+                        Thread.sleep(60000);
+                    } catch (InterruptedException ex) {
+                        cancelled.countDown();
+                    }
+                }
+
+                return super.get(uri);
+            }
+        };
+        restclient.setSearchExecutor(executor);
+
+        Issue.StreamingSearchResult result = Issue.searchStreaming(restclient, "search", "project = T",
+                null, null, PAGE_SIZE, null, null);
+        Iterator<Issue> it = result.iterator();
+
+        assertEquals("T-0", it.next().getKey());
+
+        /* a prefetch that hasn't started yet is cancelled without running */
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        result.close();
+
+        assertTrue(cancelled.await(10, TimeUnit.SECONDS));
+        assertFalse(it.hasNext());
+    }
+
+    private static List<String> iterate(RestClient restclient, String fields) throws Exception {
+        Issue.SearchResult result = Issue.search(restclient, "search", "project = T", fields, null,
+                PAGE_SIZE, null, null);
+        List<String> keys = new ArrayList<String>();
+
+        for (Iterator<Issue> it = result.iterator(); it.hasNext(); ) {
+            Issue issue = it.next();
+            assertEquals("summary of " + issue.getKey(), issue.getSummary());
+            keys.add(issue.getKey());
+        }
+
+        return keys;
+    }
+
+    private static List<String> expectedKeys() {
+        List<String> keys = new ArrayList<String>();
+
+        for (int i = 0; i < TOTAL; i++)
+            keys.add("T-" + i);
+
+        return keys;
+    }
+}
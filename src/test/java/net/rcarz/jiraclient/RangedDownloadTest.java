@@ -0,0 +1,203 @@
+package net.rcarz.jiraclient;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RangedDownloadTest {
+
+    private static final int RANGE_SIZE = 1000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Rule
+    public LocalHttpServer server = new LocalHttpServer(4);
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final List<String> ranges = Collections.synchronizedList(new ArrayList<String>());
+    private RestClient restclient;
+    private byte[] data;
+    private volatile String failRange;
+    private volatile boolean rangesSupported = true;
+
+    @Before
+    public void setUp() throws Exception {
+        data = new byte[RANGE_SIZE * 10 + 123];
+        new Random(3).nextBytes(data);
+
+        server.handle("/content/1", this::serve);
+        restclient = server.newRestClient(8);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        String range = exchange.getRequestHeaders().getFirst("Range");
+
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            exchange.getResponseHeaders().set("Content-Length", String.valueOf(data.length));
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+            return;
+        }
+
+        if (range == null || !rangesSupported) {
+            LocalHttpServer.respond(exchange, 200, data);
+            return;
+        }
+
+        ranges.add(range);
+
+        if (range.equals(failRange)) {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+            return;
+        }
+
+        String[] bounds = range.substring("bytes=".length()).split("-");
+        int start = Integer.parseInt(bounds[0]);
+        int end = Integer.parseInt(bounds[1]);
+
+        exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + data.length);
+        exchange.sendResponseHeaders(206, end - start + 1);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(data, start, end - start + 1);
+        }
+    }
+
+    @Test
+    public void testRangedDownload() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("file.bin");
+        final AtomicLong last = new AtomicLong();
+
+        long n = attachment(data.length).download(path, executor, 3, RANGE_SIZE,
+                (transferred, total) -> last.set(transferred));
+
+        assertEquals(data.length, n);
+        assertArrayEquals(data, Files.readAllBytes(path));
+        assertEquals(11, ranges.size());
+        assertEquals(data.length, last.get());
+        assertEquals(1, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void testResumesAfterFailure() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("file.bin");
+        failRange = "bytes=5000-5999";
+
+        try {
+            attachment(data.length).download(path, executor, 1, RANGE_SIZE, null);
+            fail("expected a JiraException");
+        } catch (JiraException ex) {
+            assertFalse(Files.exists(path));
+            assertTrue(Files.exists(path.resolveSibling("file.bin.part")));
+            assertTrue(Files.exists(path.resolveSibling("file.bin.ranges")));
+        }
+
+        /* a single worker stops at the failed range */
+        assertEquals(6, ranges.size());
+        ranges.clear();
+        failRange = null;
+
+        final AtomicLong first = new AtomicLong(-1);
+        attachment(data.length).download(path, executor, 2, RANGE_SIZE, (transferred, total) -> {
+            first.compareAndSet(-1, transferred);
+        });
+
+        assertArrayEquals(data, Files.readAllBytes(path));
+        assertEquals(6, ranges.size());
+        assertFalse(ranges.contains("bytes=0-999"));
+        assertTrue(first.get() > 5 * RANGE_SIZE);
+        assertEquals(1, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void testIgnoresTornStateEntry() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("file.bin");
+        byte[] part = new byte[data.length];
+        System.arraycopy(data, 0, part, 0, RANGE_SIZE);
+
+        /* range 0 is done and the entry for range 12 was cut short */
+        Files.write(path.resolveSibling("file.bin.part"), part);
+        Files.write(path.resolveSibling("file.bin.ranges"),
+                (data.length + " " + RANGE_SIZE + "\n0\n1").getBytes(StandardCharsets.US_ASCII));
+
+        attachment(data.length).download(path, executor, 2, RANGE_SIZE, null);
+
+        assertArrayEquals(data, Files.readAllBytes(path));
+        assertEquals(10, ranges.size());
+        assertTrue(ranges.contains("bytes=1000-1999"));
+    }
+
+    @Test
+    public void testIgnoresStateEntryPastTheEnd() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("file.bin");
+
+        Files.write(path.resolveSibling("file.bin.part"), new byte[data.length]);
+        Files.write(path.resolveSibling("file.bin.ranges"),
+                (data.length + " " + RANGE_SIZE + "\n11\n").getBytes(StandardCharsets.US_ASCII));
+
+        attachment(data.length).download(path, executor, 2, RANGE_SIZE, null);
+
+        assertArrayEquals(data, Files.readAllBytes(path));
+        assertEquals(11, ranges.size());
+    }
+
+    @Test
+    public void testProbesSizeWithHead() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("file.bin");
+
+        attachment(0).download(path, executor, 4, RANGE_SIZE, null);
+
+        assertArrayEquals(data, Files.readAllBytes(path));
+        assertEquals(11, ranges.size());
+    }
+
+    @Test
+    public void testFallsBackWithoutRangeSupport() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("file.bin");
+        rangesSupported = false;
+
+        assertEquals(data.length, attachment(data.length).download(path, executor, 4, RANGE_SIZE, null));
+        assertArrayEquals(data, Files.readAllBytes(path));
+        assertEquals(1, folder.getRoot().list().length);
+    }
+
+    private Attachment attachment(int size) {
+        Map<String, Object> json = new HashMap<String, Object>();
+        json.put("id", "1");
+        json.put("filename", "file.bin");
+        json.put("size", size);
+        json.put("content", server.baseUrl() + "/content/1");
+
+        return new Attachment(restclient, json);
+    }
+}
@@ -0,0 +1,102 @@
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSONObject;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class ResourcePoolTest {
+
+    @Test
+    public void testIssuesShareNestedResources() {
+        RestClient restclient = new RestClient(null, URI.create("http://localhost"));
+        restclient.setResourcePool(new ResourcePool());
+
+        Issue first = new Issue(restclient, Utils.getTestIssue());
+        Issue second = new Issue(restclient, Utils.getTestIssue());
+
+        assertSame(first.getReporter(), second.getReporter());
+        assertSame(first.getStatus(), second.getStatus());
+        assertSame(first.getPriority(), second.getPriority());
+        assertSame(first.getIssueType(), second.getIssueType());
+        assertSame(first.getProject(), second.getProject());
+        assertNotSame(first.getVotes(), second.getVotes());
+    }
+
+    @Test
+    public void testTypedIssuesShareNestedResources() throws Exception {
+        RestClient restclient = new RestClient(null, URI.create("http://localhost"));
+        restclient.setResourcePool(new ResourcePool());
+
+        Issue first = JsonBinding.readIssue(restclient, Utils.getTestIssue().toString());
+        Issue second = JsonBinding.readIssue(restclient, Utils.getTestIssue().toString());
+
+        assertSame(first.getReporter(), second.getReporter());
+        assertSame(first.getProject(), second.getProject());
+        assertEquals("joseph", first.getReporter().getName());
+    }
+
+    @Test
+    public void testDifferentRepresentationsAreNotShared() {
+        RestClient restclient = new RestClient(null, URI.create("http://localhost"));
+        ResourcePool pool = new ResourcePool();
+        restclient.setResourcePool(pool);
+
+        Map full = new HashMap();
+        full.put("id", "10");
+        full.put("name", "joseph");
+        full.put("emailAddress", "joseph@example.com");
+        Map partial = new HashMap(full);
+        partial.remove("emailAddress");
+
+        User a = Field.getResource(User.class, full, restclient);
+        User b = Field.getResource(User.class, partial, restclient);
+        User c = Field.getResource(User.class, new HashMap(partial), restclient);
+
+        assertNotSame(a, b);
+        assertSame(b, c);
+        assertEquals("joseph@example.com", a.getEmail());
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void testFingerprintFollowsEquality() {
+        Map first = new LinkedHashMap();
+        first.put("name", "joseph");
+        first.put("avatarUrls", Collections.singletonMap("16x16", "http://localhost/a.png"));
+        first.put("active", true);
+        Map second = new LinkedHashMap();
+        second.put("active", true);
+        second.put("avatarUrls", Collections.singletonMap("16x16", "http://localhost/a.png"));
+        second.put("name", "joseph");
+
+        assertEquals(ResourcePool.fingerprint(first), ResourcePool.fingerprint(second));
+
+        second.put("avatarUrls", Collections.singletonMap("16x16", "http://localhost/b.png"));
+        assertFalse(ResourcePool.fingerprint(first) == ResourcePool.fingerprint(second));
+
+        second.put("avatarUrls", first.get("avatarUrls"));
+        second.put("active", "true");
+        assertFalse(ResourcePool.fingerprint(first) == ResourcePool.fingerprint(second));
+        assertFalse(ResourcePool.fingerprint(Arrays.asList("a", "b"))
+                == ResourcePool.fingerprint(Arrays.asList("b", "a")));
+    }
+
+    @Test
+    public void testPoolIsOffByDefault() {
+        JSONObject json = Utils.getTestIssue();
+        RestClient restclient = new RestClient(null, URI.create("http://localhost"));
+
+        assertNotSame(new Issue(restclient, json).getReporter(), new Issue(restclient, json).getReporter());
+    }
+}
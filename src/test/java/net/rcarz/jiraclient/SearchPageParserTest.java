@@ -0,0 +1,64 @@
+package net.rcarz.jiraclient;
+
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class SearchPageParserTest {
+
+    private static final String PAGE = "{\"expand\":\"names,schema\",\"startAt\":0,\"maxResults\":50,\"total\":1,"
+            + "\"names\":{\"summary\":\"Summary\"},\"schema\":{\"summary\":{\"type\":\"string\"}},"
+            + "\"issues\":[{\"expand\":\"renderedFields\",\"id\":\"10\",\"self\":\"http://jira/issue/10\","
+            + "\"key\":\"T-1\",\"renderedFields\":{\"description\":\"<p>x</p>\"},"
+            + "\"fields\":{\"summary\":\"first\",\"description\":\"x\",\"customfield_1\":[1,2,3],"
+            + "\"parent\":{\"id\":\"9\",\"key\":\"T-0\",\"fields\":{\"summary\":\"parent\","
+            + "\"status\":{\"id\":\"1\",\"name\":\"Open\"}}}}}]}";
+
+    private final RestClient restclient = new RestClient(null, URI.create("http://localhost"));
+
+    @Test
+    public void testGetProjection() {
+        assertNull(SearchPageParser.getProjection(null));
+        assertNull(SearchPageParser.getProjection("*all"));
+        assertNull(SearchPageParser.getProjection("*navigable,-comment"));
+        assertEquals(new HashSet<String>(Arrays.asList("summary", "parent")),
+                SearchPageParser.getProjection("summary, parent"));
+    }
+
+    @Test
+    public void testParseKeepsProjectedFields() throws Exception {
+        JsonBinding.SearchPage page = SearchPageParser.parse(restclient, PAGE,
+                SearchPageParser.getProjection("summary,parent"));
+
+        assertEquals(1, page.total);
+        assertEquals(50, page.maxResults);
+        assertEquals(1, page.issues.size());
+
+        Issue issue = page.issues.get(0);
+        assertEquals("T-1", issue.getKey());
+        assertEquals("10", issue.getId());
+        assertEquals("first", issue.getSummary());
+        assertNull(issue.getDescription());
+        assertNull(issue.getField("customfield_1"));
+        assertEquals("Open", issue.getParent().getStatus().getName());
+    }
+
+    @Test
+    public void testTypedParseKeepsProjectedFields() throws Exception {
+        JsonBinding.SearchPage page = JsonBinding.readSearchPage(restclient, PAGE,
+                SearchPageParser.getProjection("summary,parent"));
+
+        Issue issue = page.issues.get(0);
+        assertEquals("first", issue.getSummary());
+        assertNull(issue.getDescription());
+        assertNull(issue.getField("customfield_1"));
+        assertNotNull(issue.getParent());
+        assertEquals("Open", issue.getParent().getStatus().getName());
+    }
+}
@@ -0,0 +1,81 @@
+package net.rcarz.jiraclient;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class StreamingSearchTest {
+
+    private static final int TOTAL = 35;
+    private static final int PAGE_SIZE = 10;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testStreamsAllIssues() throws Exception {
+        Issue.StreamingSearchResult result = Issue.searchStreaming(new PagingRestClient(TOTAL, PAGE_SIZE), "search",
+                "project = T", null, null, PAGE_SIZE, null, null);
+
+        assertEquals(TOTAL, result.getTotal());
+        assertEquals(0, result.getStart());
+        assertEquals(PAGE_SIZE, result.getMax());
+
+        List<String> keys = new ArrayList<String>();
+        for (Issue issue : result)
+            keys.add(issue.getKey());
+
+        assertEquals(TOTAL, keys.size());
+        assertEquals("T-0", keys.get(0));
+        assertEquals("T-" + (TOTAL - 1), keys.get(TOTAL - 1));
+        assertFalse(result.iterator().hasNext());
+    }
+
+    @Test
+    public void testStreamsWithSearchExecutor() throws Exception {
+        PagingRestClient restclient = new PagingRestClient(TOTAL, PAGE_SIZE);
+        restclient.setSearchExecutor(executor);
+
+        Issue.StreamingSearchResult result = Issue.searchStreaming(restclient, "search",
+                "project = T", "summary", null, PAGE_SIZE, null, null);
+        int count = 0;
+
+        for (Issue issue : result)
+            assertEquals("T-" + count++, issue.getKey());
+
+        assertEquals(TOTAL, count);
+    }
+
+    @Test
+    public void testReleasesConsumedIssues() throws Exception {
+        Issue.StreamingSearchResult result = Issue.searchStreaming(new PagingRestClient(TOTAL, PAGE_SIZE), "search",
+                "project = T", null, null, PAGE_SIZE, null, null);
+        Iterator<Issue> it = result.iterator();
+        WeakReference<Issue> first = new WeakReference<Issue>(it.next());
+
+        /* move into the second page */
+        for (int i = 1; i <= PAGE_SIZE; i++)
+            it.next();
+
+        for (int i = 0; i < 10 && first.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertNull(first.get());
+    }
+}
@@ -0,0 +1,109 @@
+package net.rcarz.jiraclient.agile;
+
+import net.rcarz.jiraclient.JiraException;
+import net.rcarz.jiraclient.RestClient;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AgileResourceConstructorTest {
+
+    private static final JiraException REJECTED = new JiraException("rejected");
+
+    private final RestClient restclient = new RestClient(null, URI.create("http://localhost"));
+
+    /* a private constructor is only reachable through the cached handle */
+    static final class Private extends AgileResource {
+        private Private(RestClient restclient, Map json) throws JiraException {
+            super(restclient, json);
+        }
+    }
+
+    static final class Rejecting extends AgileResource {
+        Rejecting(RestClient restclient, Map json) throws JiraException {
+            super(restclient, json);
+            throw REJECTED;
+        }
+    }
+
+    static final class Failing extends AgileResource {
+        Failing(RestClient restclient, Map json) throws JiraException {
+            super(restclient, json);
+            throw new IllegalStateException("failing");
+        }
+    }
+
+    private static Map board(long id) {
+        Map json = new HashMap();
+        json.put("id", id);
+        json.put("name", "Board " + id);
+        json.put("self", "http://localhost/rest/agile/1.0/board/" + id);
+        return json;
+    }
+
+    @Test
+    public void testConstructsThroughHandle() throws Exception {
+        Map page = new HashMap();
+        page.put("values", Arrays.asList(board(1), board(2), board(3)));
+
+        List<Board> boards = AgileResource.getResourceArray(Board.class, page, restclient, "values");
+
+        assertEquals(3, boards.size());
+        assertEquals(2, boards.get(1).getId());
+        assertEquals("Board 3", boards.get(2).getName());
+        assertSame(restclient, boards.get(0).getRestclient());
+
+        Private resource = AgileResource.getResource(Private.class, board(4), restclient);
+
+        assertEquals(4, resource.getId());
+        assertSame(resource.getClass(),
+                AgileResource.getResource(Private.class, board(5), restclient).getClass());
+    }
+
+    @Test
+    public void testJiraExceptionPropagatesUnwrapped() {
+        try {
+            AgileResource.getResource(Rejecting.class, board(1), restclient);
+            fail("the constructor's exception should propagate");
+        } catch (JiraException ex) {
+            assertSame(REJECTED, ex);
+        }
+    }
+
+    @Test
+    public void testOtherFailuresAreWrapped() {
+        try {
+            AgileResource.getResource(Failing.class, board(1), restclient);
+            fail("the constructor's exception should be wrapped");
+        } catch (JiraException ex) {
+            assertEquals("Failed to deserialize object.", ex.getMessage());
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+
+        try {
+            AgileResource.getResource(AgileResource.class, board(1), restclient);
+            fail("an abstract type can't be constructed");
+        } catch (JiraException ex) {
+            assertEquals("Failed to deserialize object.", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testMalformedPayload() {
+        try {
+            AgileResource.getResource(Board.class, "not a map", restclient);
+            fail("a payload that isn't a map should be rejected");
+        } catch (JiraException ex) {
+            assertEquals("JSON payload is malformed", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package net.rcarz.jiraclient.benchmark;
+
+import net.rcarz.jiraclient.Field;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares date parsing in {@link Field} against the former approach of
+ * building a new SimpleDateFormat for every value.
+ *
+ * Run with the GC profiler to see the allocation rate per operation
+ * (gc.alloc.rate.norm):
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt
+ * java -cp target/test-classes:target/classes:$(cat cp.txt) \
+ *     net.rcarz.jiraclient.benchmark.FieldDateBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldDateBenchmark {
+
+    private String dateTime = "2013-09-29T20:16:19.854+0100";
+    private String date = "2013-09-29";
+
+    @Benchmark
+    public Date legacyDateTime() {
+        SimpleDateFormat df = new SimpleDateFormat(Field.DATETIME_FORMAT_ZTIMEZONE);
+        return df.parse(dateTime, new ParsePosition(0));
+    }
+
+    @Benchmark
+    public Date fieldDateTime() {
+        return Field.getDateTime(dateTime);
+    }
+
+    @Benchmark
+    public Date legacyDate() {
+        SimpleDateFormat df = new SimpleDateFormat(Field.DATE_FORMAT);
+        return df.parse(date, new ParsePosition(0));
+    }
+
+    @Benchmark
+    public Date fieldDate() {
+        return Field.getDate(date);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FieldDateBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,69 @@
+package net.rcarz.jiraclient.benchmark;
+
+import net.rcarz.jiraclient.Issue;
+import net.rcarz.jiraclient.RestClient;
+import net.rcarz.jiraclient.Utils;
+import net.rcarz.jiraclient.util.JsonUtil;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reports the heap retained per issue with and without the compact
+ * retention mode (see {@link RestClient#setCompactFields(boolean)}).
+ * <p>
+ * Retained size isn't something JMH measures, so this builds a batch of
+ * issues from the test payload and compares the used heap after a full GC:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt
+ * java -cp target/test-classes:target/classes:$(cat cp.txt) \
+ *     net.rcarz.jiraclient.benchmark.IssueRetainedSizeBenchmark
+ * </pre>
+ */
+public class IssueRetainedSizeBenchmark {
+
+    private static final int ISSUES = 20000;
+
+    public static void main(String[] args) throws IOException {
+        String json = Utils.getTestIssue().toString();
+
+        /* warm up class loading and the date formatters */
+        measure(json, false);
+        measure(json, true);
+
+        System.out.printf("default: %,d bytes/issue%n", measure(json, false));
+        System.out.printf("compact: %,d bytes/issue%n", measure(json, true));
+    }
+
+    private static long measure(String json, boolean compact) throws IOException {
+        RestClient restclient = new RestClient(null, URI.create("http://localhost"));
+        restclient.setCompactFields(compact);
+
+        List<Issue> issues = new ArrayList<Issue>(ISSUES);
+        long before = usedHeap();
+
+        for (int i = 0; i < ISSUES; i++) {
+            Map map = JsonUtil.OBJECT_MAPPER.readValue(json, Map.class);
+            issues.add(new Issue(restclient, map));
+        }
+
+        long after = usedHeap();
+
+        if (issues.size() != ISSUES)
+            throw new IllegalStateException();
+
+        return (after - before) / ISSUES;
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+
+        for (int i = 0; i < 3; i++)
+            System.gc();
+
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}